@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Generates the jar files used by the benchmarks, so they do not depend on any external file or network access.
+ * Each jar contains empty classes and a small resource in its own package.
+ */
+final class BenchmarkJars
+{
+    private BenchmarkJars()
+    {
+    }
+
+    /**
+     * @param prefix the prefix of the temporary directory
+     * @return a new temporary directory, deleted on exit
+     * @throws IOException if the directory could not be created
+     */
+    static File createDirectory(String prefix) throws IOException
+    {
+        File dir = File.createTempFile(prefix, "");
+        if (!dir.delete() || !dir.mkdirs())
+            throw new IOException("Unable to create " + dir);
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /**
+     * Generate jar files named <code>lib-N.jar</code>. Jar N contains the classes <code>bench.pN.CM</code> and the
+     * resource <code>bench/pN/resource.txt</code>.
+     * 
+     * @param dir the directory receiving the jar files
+     * @param jarCount the number of jar files
+     * @param classCount the number of classes in each jar file
+     * @return the URLs of the jar files
+     * @throws IOException if a jar file could not be written
+     */
+    static URL[] createJars(File dir, int jarCount, int classCount) throws IOException
+    {
+        URL[] urls = new URL[jarCount];
+        for (int i = 0; i < jarCount; i++) {
+            File file = new File(dir, "lib-" + i + ".jar");
+            file.deleteOnExit();
+            JarOutputStream out = new JarOutputStream(new FileOutputStream(file));
+            try {
+                for (int j = 0; j < classCount; j++) {
+                    out.putNextEntry(new ZipEntry(getResourceName(i, j)));
+                    out.write(createClass(getClassName(i, j).replace('.', '/')));
+                    out.closeEntry();
+                }
+                out.putNextEntry(new ZipEntry("bench/p" + i + "/resource.txt"));
+                out.write(("resource of jar " + i).getBytes("UTF-8"));
+                out.closeEntry();
+            } finally {
+                out.close();
+            }
+            urls[i] = file.toURI().toURL();
+        }
+        return urls;
+    }
+
+    /**
+     * @param jar the number of a jar file
+     * @param index the number of a class in this jar file
+     * @return the binary name of the class
+     */
+    static String getClassName(int jar, int index)
+    {
+        return "bench.p" + jar + ".C" + index;
+    }
+
+    /**
+     * @param jar the number of a jar file
+     * @param index the number of a class in this jar file
+     * @return the resource name of the class
+     */
+    static String getResourceName(int jar, int index)
+    {
+        return getClassName(jar, index).replace('.', '/') + ".class";
+    }
+
+    /**
+     * Build the bytecode of an empty public class extending <code>java.lang.Object</code>, without any member.
+     * 
+     * @param internalName the internal name of the class
+     * @return the content of the class file
+     * @throws IOException never
+     */
+    static byte[] createClass(String internalName) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(50);
+        out.writeShort(5);
+        out.writeByte(1);
+        out.writeUTF(internalName);
+        out.writeByte(7);
+        out.writeShort(1);
+        out.writeByte(1);
+        out.writeUTF("java/lang/Object");
+        out.writeByte(7);
+        out.writeShort(3);
+        out.writeShort(0x0021);
+        out.writeShort(2);
+        out.writeShort(4);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.close();
+        return bytes.toByteArray();
+    }
+}
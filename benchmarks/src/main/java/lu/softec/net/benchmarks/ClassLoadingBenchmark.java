@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net.benchmarks;
+
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lu.softec.net.DynamicURLClassLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures class and resource lookups of a DynamicURLClassLoader over generated jar files, with and without the
+ * package index. Class loading is measured in batches of classes never loaded before by a new class loader, so each
+ * call goes through <code>findClass</code> instead of returning an already loaded class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-opens=java.base/java.net=ALL-UNNAMED",
+    "--add-opens=java.base/sun.net.www.protocol.jar=ALL-UNNAMED"})
+public class ClassLoadingBenchmark
+{
+    /**
+     * Number of classes loaded by each iteration of the class loading benchmarks, which should not exceed the number of
+     * generated classes.
+     */
+    private static final int BATCH_SIZE = 400;
+
+    @Param({"10", "100"})
+    private int jarCount;
+
+    @Param({"50"})
+    private int classCount;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private URL[] urls;
+
+    private DynamicURLClassLoader classLoader;
+
+    private final AtomicInteger nextClass = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void createJars() throws Exception
+    {
+        File dir = BenchmarkJars.createDirectory("classloading");
+        urls = BenchmarkJars.createJars(dir, jarCount, classCount);
+    }
+
+    @Setup(Level.Iteration)
+    public void createClassLoader()
+    {
+        classLoader = new DynamicURLClassLoader(urls, null);
+        classLoader.setIndexed(indexed);
+        // Open all jar files, and build the index, before measuring
+        findLastResource();
+        nextClass.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopClassLoader()
+    {
+        classLoader.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = BATCH_SIZE)
+    @Measurement(iterations = 5, batchSize = BATCH_SIZE)
+    public Class< ? > loadClass() throws Exception
+    {
+        return loadNextClass();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 3, batchSize = BATCH_SIZE / 8)
+    @Measurement(iterations = 5, batchSize = BATCH_SIZE / 8)
+    @Threads(8)
+    public Class< ? > loadClassContended() throws Exception
+    {
+        return loadNextClass();
+    }
+
+    /**
+     * @return a class not yet loaded by the class loader of the iteration, taken across all jar files
+     * @throws ClassNotFoundException if the class is not found
+     */
+    private Class< ? > loadNextClass() throws ClassNotFoundException
+    {
+        int i = nextClass.getAndIncrement();
+        if (i >= jarCount * classCount)
+            throw new IllegalStateException("Not enough classes for a batch");
+        return classLoader.loadClass(BenchmarkJars.getClassName(i % jarCount, i / jarCount));
+    }
+
+    @Benchmark
+    public Object loadMissingClass()
+    {
+        try {
+            return classLoader.loadClass("bench.missing.Missing");
+        } catch (ClassNotFoundException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public URL findLastResource()
+    {
+        return classLoader.findResource("bench/p" + (jarCount - 1) + "/resource.txt");
+    }
+
+    @Benchmark
+    public URL findMissingResource()
+    {
+        return classLoader.findResource("META-INF/services/bench.Missing");
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net.benchmarks;
+
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import lu.softec.net.DynamicJarURLConnection;
+import lu.softec.net.DynamicURLClassLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the reference counting of <code>DynamicJarURLConnection.connect()</code> and <code>close()</code> under
+ * contention, with all threads sharing a single jar file or spread over many jar files. A connection held during
+ * the whole benchmark keeps the jar files opened, so only the reference counting is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = {"--add-opens=java.base/java.net=ALL-UNNAMED",
+    "--add-opens=java.base/sun.net.www.protocol.jar=ALL-UNNAMED"})
+public class ConnectionChurnBenchmark
+{
+    @Param({"1", "64"})
+    private int jarCount;
+
+    private DynamicURLClassLoader classLoader;
+
+    private URL[] resources;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        File dir = BenchmarkJars.createDirectory("churn");
+        classLoader = new DynamicURLClassLoader(BenchmarkJars.createJars(dir, jarCount, 1), null);
+        classLoader.setIndexed(true);
+        resources = new URL[jarCount];
+        for (int i = 0; i < jarCount; i++) {
+            resources[i] = classLoader.findResource("bench/p" + i + "/resource.txt");
+            // Connect once more, so the jar file is never closed during the benchmark
+            resources[i].openConnection().connect();
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        classLoader.stop();
+    }
+
+    @Benchmark
+    public boolean connectAndClose() throws Exception
+    {
+        DynamicJarURLConnection uc =
+            (DynamicJarURLConnection) resources[ThreadLocalRandom.current().nextInt(jarCount)].openConnection();
+        uc.connect();
+        return uc.close();
+    }
+}
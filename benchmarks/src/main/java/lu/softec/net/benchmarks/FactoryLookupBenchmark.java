@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net.benchmarks;
+
+import java.net.URL;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import lu.softec.net.CachedURLClassLoaderFactory;
+import lu.softec.net.ClassPathKey;
+import lu.softec.net.ComparableURLClassLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures <code>CachedURLClassLoaderFactory.getURLClassLoader()</code> on a populated cache, with one thread and
+ * with concurrent threads, from URL arrays and from held class path keys. Use <code>-t</code> to run with other
+ * thread counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-opens=java.base/java.net=ALL-UNNAMED",
+    "--add-opens=java.base/sun.net.www.protocol.jar=ALL-UNNAMED"})
+public class FactoryLookupBenchmark
+{
+    @Param({"10", "1000", "5000"})
+    private int cacheSize;
+
+    @Param({"4"})
+    private int urlsPerLoader;
+
+    private CachedURLClassLoaderFactory factory;
+
+    private URL[][] classPaths;
+
+    private ClassPathKey[] keys;
+
+    private ComparableURLClassLoader[] classLoaders;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        factory = new CachedURLClassLoaderFactory(cacheSize);
+        classPaths = new URL[cacheSize][];
+        keys = new ClassPathKey[cacheSize];
+        classLoaders = new ComparableURLClassLoader[cacheSize];
+        for (int i = 0; i < cacheSize; i++) {
+            classPaths[i] = new URL[urlsPerLoader];
+            for (int j = 0; j < urlsPerLoader; j++) {
+                classPaths[i][j] = new URL("file:/opt/plugins/plugin-" + i + "/lib-" + j + ".jar");
+            }
+            // Keep the class loaders reachable, so they stay in the cache
+            classLoaders[i] = factory.getURLClassLoader(classPaths[i]);
+            keys[i] = ClassPathKey.of(classPaths[i]);
+        }
+    }
+
+    @Benchmark
+    public ComparableURLClassLoader lookup()
+    {
+        return factory.getURLClassLoader(classPaths[ThreadLocalRandom.current().nextInt(cacheSize)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ComparableURLClassLoader lookupContended()
+    {
+        return factory.getURLClassLoader(classPaths[ThreadLocalRandom.current().nextInt(cacheSize)]);
+    }
+
+    @Benchmark
+    public ComparableURLClassLoader lookupByKey()
+    {
+        return factory.getURLClassLoader(keys[ThreadLocalRandom.current().nextInt(cacheSize)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public ComparableURLClassLoader lookupByKeyContended()
+    {
+        return factory.getURLClassLoader(keys[ThreadLocalRandom.current().nextInt(cacheSize)]);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net.benchmarks;
+
+import java.io.File;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import lu.softec.net.CachedURLClassLoaderFactory;
+import lu.softec.net.ComparableURLClassLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the outdated status checks of cached class loaders whose jar files have all been opened, for a single
+ * class loader and for a sweep of the whole cache by <code>refreshCache()</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-opens=java.base/java.net=ALL-UNNAMED",
+    "--add-opens=java.base/sun.net.www.protocol.jar=ALL-UNNAMED"})
+public class StalenessBenchmark
+{
+    @Param({"10", "100"})
+    private int loaderCount;
+
+    @Param({"20"})
+    private int jarCount;
+
+    private CachedURLClassLoaderFactory factory;
+
+    private ComparableURLClassLoader[] classLoaders;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        File dir = BenchmarkJars.createDirectory("staleness");
+        URL[] jars = BenchmarkJars.createJars(dir, jarCount, 1);
+        factory = new CachedURLClassLoaderFactory(loaderCount);
+        factory.setIndexedLoaders(true);
+        classLoaders = new ComparableURLClassLoader[loaderCount];
+        for (int i = 0; i < loaderCount; i++) {
+            // Distinct class paths sharing the same jar files
+            URL[] urls = new URL[jarCount];
+            for (int j = 0; j < jarCount; j++) {
+                urls[j] = jars[(i + j) % jarCount];
+            }
+            classLoaders[i] = factory.getURLClassLoader(urls);
+            classLoaders[i].findResource("bench/p0/resource.txt");
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        for (ComparableURLClassLoader classLoader : classLoaders) {
+            classLoader.stop();
+        }
+    }
+
+    @Benchmark
+    public boolean isOutdated()
+    {
+        return classLoaders[0].isOutdated();
+    }
+
+    @Benchmark
+    public boolean refreshCache()
+    {
+        return factory.refreshCache();
+    }
+}
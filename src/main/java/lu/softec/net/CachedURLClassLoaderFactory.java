@@ -1,23 +1,74 @@
 package lu.softec.net;
 
-import java.lang.ref.Reference;
-import java.lang.ref.ReferenceQueue;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.net.URLStreamHandlerFactory;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class CachedURLClassLoaderFactory
+public class CachedURLClassLoaderFactory implements CachedURLClassLoaderFactoryMXBean
 {
-    private Collection<WeakReference<ComparableURLClassLoader>> cache;
+    private ConcurrentMap<ClassPathKey, LoaderReference> cache;
 
-    private Collection<WeakReference<ComparableURLClassLoader>> stoppedClassLoader;
-    private ReferenceQueue<ComparableURLClassLoader> weakQueue;
-    private int statNewLoader;
-    private int statReusedLoader;
-    private int statDroppedLoader;
+    private Set<LoaderReference> stoppedClassLoader;
+    private LongAdder statNewLoader = new LongAdder();
+    private LongAdder statReusedLoader = new LongAdder();
+    private LongAdder statDroppedLoader = new LongAdder();
+    private LongAdder statEvictedLoader = new LongAdder();
+    private LongAdder statStoppedLoader = new LongAdder();
+    private LongAdder statStaleServed = new LongAdder();
+    private LongAdder statSwappedLoader = new LongAdder();
+    private LongAdder statFailedSwap = new LongAdder();
+    private LongAdder statStaleNanos = new LongAdder();
+    private AtomicLong statMaxStaleNanos = new AtomicLong();
+    private volatile JarWatcher jarWatcher;
+    private StalenessSweeper sweeper;
+    private volatile int sweepParallelism = 8;
+    private volatile long sweepTimeout = 0;
+    private volatile boolean indexedLoaders = false;
+    private volatile int lookupCacheSize = 0;
+    private volatile ClassTransformerChain transformerChain = null;
+    private volatile WarmStartProfile warmStartProfile = null;
+    private final List<ClassLoaderListener> listeners = new CopyOnWriteArrayList<ClassLoaderListener>();
+    private volatile EvictionPolicy evictionPolicy = EvictionPolicy.LEGACY;
+    private ScheduledFuture< ? > maintenance;
+    private final AtomicBoolean maintenancePending = new AtomicBoolean();
+    private final ConcurrentMap<ClassPathKey, Creation> inflight = new ConcurrentHashMap<ClassPathKey, Creation>();
+    private final Lock lock = new ReentrantLock();
+
+    private volatile boolean staleWhileRevalidate = false;
+
+    private static ScheduledThreadPoolExecutor scheduler;
+    private static ThreadPoolExecutor revalidator;
+    private static final Lock executorLock = new ReentrantLock();
     
     public CachedURLClassLoaderFactory() {
         this(10);
@@ -27,15 +78,16 @@ public class CachedURLClassLoaderFactory
      * @param capacity  Initial capacity
      */
     public CachedURLClassLoaderFactory(int capacity) {
-        cache = new ArrayList<WeakReference<ComparableURLClassLoader>>(capacity);
-        stoppedClassLoader = new ArrayList<WeakReference<ComparableURLClassLoader>>(capacity);
-        weakQueue = new ReferenceQueue<ComparableURLClassLoader>();
+        cache = new ConcurrentHashMap<ClassPathKey, LoaderReference>(capacity);
+        stoppedClassLoader = Collections.newSetFromMap(new ConcurrentHashMap<LoaderReference, Boolean>(capacity));
     }
 
     /**
      * Retrieve an existing or create a new ComparableURLClassLoader for the specified URLs using the
      * default delegation parent <code>ClassLoader</code>. URLs will be handle using
      * a DynamicJarURLStreamHandler to control usage of caches by the underlying protocol.
+     * A new ClassPathKey is built from the URLs on each call; callers retrieving the same class loader repeatedly
+     * should rather hold a key obtained from <code>ClassPathKey.of()</code>, whose lookups do not allocate.
      * 
      * @param urls the URLs from which to load classes and resources
      * @return an appropriate class loader for the provided arguments
@@ -44,27 +96,19 @@ public class CachedURLClassLoaderFactory
      *             creation of a class loader or its <code>checkPermission</code> method 
      *             does not allow the ReflectPermission("suppressAccessChecks") permission.
      * @see lu.softec.net.ComparableURLClassLoader
+     * @see #getURLClassLoader(ClassPathKey)
      */
-    public synchronized ComparableURLClassLoader getURLClassLoader(URL[] urls)
+    public ComparableURLClassLoader getURLClassLoader(URL[] urls)
     {
-        cleanUpCache();
-        int hashCode = ComparableURLClassLoader.getHashCode(urls);
-        ComparableURLClassLoader classLoader = getURLClassLoader(hashCode);
-        if( classLoader == null ) {
-            classLoader = new ComparableURLClassLoader(urls);
-            statNewLoader++;
-            assert(hashCode == classLoader.hashCode());
-            addURLClassLoader(classLoader);
-        } else {
-            statReusedLoader++;
-        }
-        return classLoader;
+        return getURLClassLoader(new ClassPathKey(urls, ClassLoader.getSystemClassLoader(), null));
     }
     
     /**
      * Retrieve an existing or create a new ComparableURLClassLoader for the specified URLs using the
      * specified delegation parent <code>ClassLoader</code>. URLs will be handle using
      * a DynamicJarURLStreamHandler to control usage of caches by the underlying protocol.
+     * A new ClassPathKey is built from the URLs on each call; callers retrieving the same class loader repeatedly
+     * should rather hold a key obtained from <code>ClassPathKey.of()</code>, whose lookups do not allocate.
      * 
      * @param urls the URLs from which to load classes and resources
      * @param parent the parent class loader for delegation
@@ -74,26 +118,18 @@ public class CachedURLClassLoaderFactory
      *             creation of a class loader or its <code>checkPermission</code> method 
      *             does not allow the ReflectPermission("suppressAccessChecks") permission.
      * @see lu.softec.net.ComparableURLClassLoader
+     * @see #getURLClassLoader(ClassPathKey)
      */
-    public synchronized ComparableURLClassLoader getURLClassLoader(URL[] urls, ClassLoader parent)
+    public ComparableURLClassLoader getURLClassLoader(URL[] urls, ClassLoader parent)
     {
-        cleanUpCache();
-        int hashCode = ComparableURLClassLoader.getHashCode(urls,parent);
-        ComparableURLClassLoader classLoader = getURLClassLoader(hashCode);
-        if( classLoader == null ) {
-            classLoader = new ComparableURLClassLoader(urls,parent);
-            statNewLoader++;
-            assert(hashCode == classLoader.hashCode());
-            addURLClassLoader(classLoader);
-        } else {
-            statReusedLoader++;
-        }
-        return classLoader;
+        return getURLClassLoader(new ClassPathKey(urls, parent, null));
     }
     
     /**
      * Retrieve an existing or create a new ComparableURLClassLoader for the specified URLs using the specified delegation parent
-     * <code>ClassLoader</code>.
+     * <code>ClassLoader</code>. A new ClassPathKey is built from the URLs on each call; callers retrieving the same
+     * class loader repeatedly should rather hold a key obtained from <code>ClassPathKey.of()</code>, whose lookups do
+     * not allocate.
      * 
      * @param urls the URLs from which to load classes and resources
      * @param parent the parent class loader for delegation
@@ -103,21 +139,11 @@ public class CachedURLClassLoaderFactory
      *                doesn't allow creation of a class loader or its <code>checkPermission</code> method does not allow
      *                the ReflectPermission("suppressAccessChecks") permission.
      * @see lu.softec.net.ComparableURLClassLoader
+     * @see #getURLClassLoader(ClassPathKey)
      */
-    public synchronized ComparableURLClassLoader getURLClassLoader(URL[] urls, ClassLoader parent, URLStreamHandlerFactory factory)
+    public ComparableURLClassLoader getURLClassLoader(URL[] urls, ClassLoader parent, URLStreamHandlerFactory factory)
     {
-        cleanUpCache();
-        int hashCode = ComparableURLClassLoader.getHashCode(urls,parent,factory);
-        ComparableURLClassLoader classLoader = getURLClassLoader(hashCode);
-        if( classLoader == null ) {
-            classLoader = new ComparableURLClassLoader(urls,parent,factory);
-            statNewLoader++;
-            assert(hashCode == classLoader.hashCode());
-            addURLClassLoader(classLoader);
-        } else {
-            statReusedLoader++;
-        }
-        return classLoader;
+        return getURLClassLoader(new ClassPathKey(urls, parent, factory));
     }
     
     /**
@@ -125,7 +151,7 @@ public class CachedURLClassLoaderFactory
      */
     public int getStatNewLoader()
     {
-        return statNewLoader;
+        return statNewLoader.intValue();
     }
 
     /**
@@ -133,7 +159,7 @@ public class CachedURLClassLoaderFactory
      */
     public int getStatReusedLoader()
     {
-        return statReusedLoader;
+        return statReusedLoader.intValue();
     }
 
     /**
@@ -141,59 +167,590 @@ public class CachedURLClassLoaderFactory
      */
     public int getStatDroppedLoader()
     {
-        return statDroppedLoader;
+        return statDroppedLoader.intValue();
+    }
+
+    /**
+     * @return the number of loader that have been removed from the cache because they were outdated or evicted by the
+     *         eviction policy
+     */
+    public long getStatEvictedLoader()
+    {
+        return statEvictedLoader.sum();
+    }
+
+    /**
+     * @return the number of loader that have been stopped by this factory
+     */
+    public long getStatStoppedLoader()
+    {
+        return statStoppedLoader.sum();
+    }
+
+    /**
+     * @return the number of loader currently in the cache, including those not yet known to be garbage collected
+     */
+    public int getCachedLoaderCount()
+    {
+        return cache.size();
+    }
+
+    /**
+     * @return the metrics of the loaders currently in the cache
+     */
+    public List<ClassLoaderMetrics> getClassLoaderMetrics()
+    {
+        List<ClassLoaderMetrics> result = new ArrayList<ClassLoaderMetrics>(cache.size());
+        for (LoaderReference weakRef : cache.values()) {
+            ComparableURLClassLoader classLoader = weakRef.get();
+            if (classLoader != null)
+                result.add(classLoader.getMetrics());
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the class loaders created by this factory use a package index of their jar files
+     */
+    public boolean isIndexedLoaders()
+    {
+        return indexedLoaders;
+    }
+
+    /**
+     * @param indexedLoaders true if the class loaders created from now on by this factory should use a package index
+     *            of their jar files
+     * @see lu.softec.net.DynamicURLClassLoader#setIndexed(boolean)
+     */
+    public void setIndexedLoaders(boolean indexedLoaders)
+    {
+        this.indexedLoaders = indexedLoaders;
+    }
+
+    /**
+     * @return the maximum number of lookup results cached by each class loader created by this factory
+     */
+    public int getLookupCacheSize()
+    {
+        return lookupCacheSize;
+    }
+
+    /**
+     * @param size the maximum number of lookup results cached by each class loader created from now on by this
+     *            factory, 0 to disable caching
+     * @see lu.softec.net.DynamicURLClassLoader#setLookupCacheSize(int)
+     */
+    public void setLookupCacheSize(int size)
+    {
+        if (size < 0)
+            throw new IllegalArgumentException("Size should not be negative");
+        lookupCacheSize = size;
+    }
+
+    /**
+     * @return the chain of transformers used by the class loaders created by this factory, or null if none
+     */
+    public ClassTransformerChain getTransformerChain()
+    {
+        return transformerChain;
     }
 
-    
     /**
-     * Store a ComparableURLClassLoader in the cache
+     * Define a chain of transformers shared by the class loaders created from now on by this factory. With a
+     * TransformedClassCache, a rebuilt class loader reuses the transformed bytecode of its unchanged classes.
      * 
+     * @param chain the chain of transformers, or null to define classes unchanged
+     * @see lu.softec.net.DynamicURLClassLoader#setTransformerChain(ClassTransformerChain)
+     */
+    public void setTransformerChain(ClassTransformerChain chain)
+    {
+        transformerChain = chain;
+    }
+
+    /**
+     * @return the profile recording the class loaders created by this factory, or null if not recording
+     */
+    public WarmStartProfile getWarmStartProfile()
+    {
+        return warmStartProfile;
+    }
+
+    /**
+     * Start or stop recording the class loaders created from now on by this factory, and the classes they define,
+     * into a warm-start profile. The profile could then be saved, and replayed on the next startup.
+     * 
+     * @param profile the profile recording the class loaders, or null to stop recording
+     * @see lu.softec.net.WarmStartProfile
+     */
+    public void setWarmStartProfile(WarmStartProfile profile)
+    {
+        warmStartProfile = profile;
+    }
+
+    /**
+     * Add a listener notified of the lifecycle of the class loaders created by this factory: when they are created,
+     * found outdated, swapped with their replacement, stopped and garbage collected. This allows caches depending on
+     * a class loader to be invalidated as soon as it becomes outdated, instead of polling it, and the latency of
+     * reloads to be measured.
+     * 
+     * @param listener the listener to be added
+     * @see lu.softec.net.ClassLoaderEvent.Type
+     */
+    public void addClassLoaderListener(ClassLoaderListener listener)
+    {
+        if (listener == null)
+            throw new IllegalArgumentException("Listener should not be null");
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to be removed
+     */
+    public void removeClassLoaderListener(ClassLoaderListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the policy limiting the cache of this factory
+     */
+    public EvictionPolicy getEvictionPolicy()
+    {
+        return evictionPolicy;
+    }
+
+    /**
+     * Define the policy limiting the cache of this factory. The retention of the policy applies to the class loaders
+     * already cached, and the cache is maintained in the background: evicted class loaders are removed from the cache
+     * and stopped.
+     * 
+     * @param policy the policy to be followed, EvictionPolicy.LEGACY to only weakly hold class loaders
+     */
+    public void setEvictionPolicy(EvictionPolicy policy)
+    {
+        if (policy == null)
+            throw new IllegalArgumentException("Policy should not be null");
+        lock.lock();
+        try {
+            evictionPolicy = policy;
+            for (LoaderReference weakRef : cache.values()) {
+                weakRef.retain(policy.getRetention());
+            }
+            if (maintenance != null) {
+                maintenance.cancel(false);
+                maintenance = null;
+            }
+            long period = policy.getMaintenancePeriod();
+            if (period > 0) {
+                maintenance = getScheduler().scheduleWithFixedDelay(new Maintenance(this), period, period,
+                    TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (policy.isBounded())
+            scheduleMaintenance();
+    }
+
+    /**
+     * @return the JarWatcher following the local jar files of the created class loaders, or null if none
+     */
+    public JarWatcher getJarWatcher()
+    {
+        return jarWatcher;
+    }
+
+    /**
+     * Define a JarWatcher that will follow the local jar files of the class loaders created from now on by this
+     * factory. Outdated status of those class loaders is then maintained by the watcher instead of being checked on
+     * each lookup.
+     * 
+     * @param jarWatcher the JarWatcher to use, or null to check local jar files on each lookup
+     */
+    public void setJarWatcher(JarWatcher jarWatcher)
+    {
+        this.jarWatcher = jarWatcher;
+    }
+
+    /**
+     * Retrieve an existing or create a new ComparableURLClassLoader matching the given key. Lookups of cached
+     * class loaders are served from the concurrent index without locking. A missing class loader is created only
+     * once: the first thread requesting it creates it outside of any monitor, while concurrent requests for the
+     * same key wait for its completion and requests for other keys proceed independently. The warm-start profile and
+     * the listeners are notified of the creation once the class loader is cached, so they may request it again.
+     * <p>
+     * Callers retrieving the same class loader repeatedly should hold a key obtained from
+     * <code>ClassPathKey.of()</code>, the lookup of a cached class loader is then done without any allocation.
+     * 
+     * @param key the identity of the requested class loader
+     * @return an appropriate class loader for the provided key
+     * @exception SecurityException if a security manager exists and its <code>checkCreateClassLoader</code> method
+     *                doesn't allow creation of a class loader or its <code>checkPermission</code> method does not allow
+     *                the ReflectPermission("suppressAccessChecks") permission.
+     * @see lu.softec.net.ClassPathKey#of(URL[], ClassLoader, URLStreamHandlerFactory)
+     */
+    public ComparableURLClassLoader getURLClassLoader(ClassPathKey key)
+    {
+        if (key == null)
+            throw new IllegalArgumentException("Key should not be null");
+        ComparableURLClassLoader classLoader = getCachedURLClassLoader(key);
+        if( classLoader != null ) {
+            statReusedLoader.increment();
+            return classLoader;
+        }
+
+        Creation creation = new Creation(key);
+        Creation existing = inflight.putIfAbsent(key, creation);
+        if( existing != null ) {
+            if( existing.owner == Thread.currentThread() )
+                throw new IllegalStateException("Class loader requested while being created: " + key);
+            statReusedLoader.increment();
+            return getCreated(existing.task);
+        }
+        try {
+            creation.task.run();
+        } finally {
+            inflight.remove(key, creation);
+        }
+        classLoader = getCreated(creation.task);
+        if( creation.duration >= 0 )
+            created(classLoader, creation.duration);
+        return classLoader;
+    }
+
+    /**
+     * Wait for the completion of the creation of a class loader. The waiting thread is parked, so a virtual thread
+     * waiting here is unmounted from its carrier.
+     * 
+     * @param creation the creation of a class loader
+     * @return the created class loader
+     */
+    private static ComparableURLClassLoader getCreated(FutureTask<ComparableURLClassLoader> creation)
+    {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return creation.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Create a new class loader, configured as defined for this factory. The creation should be reported by
+     * <code>created()</code>, once no more in progress for its key.
+     * 
+     * @param key the identity of the class loader
+     * @return a new class loader for the provided key
+     */
+    private ComparableURLClassLoader newClassLoader(ClassPathKey key)
+    {
+        ComparableURLClassLoader classLoader = key.newClassLoader();
+        classLoader.setIndexed(indexedLoaders);
+        classLoader.setLookupCacheSize(lookupCacheSize);
+        classLoader.setTransformerChain(transformerChain);
+        classLoader.setListeners(listeners);
+        statNewLoader.increment();
+        watch(classLoader);
+        return classLoader;
+    }
+
+    /**
+     * Record a newly created class loader in the warm-start profile, if any, and notify the listeners of its creation.
+     * 
+     * @param classLoader a class loader created by <code>newClassLoader()</code>
+     * @param duration the time spent creating it, in nanoseconds
+     */
+    private void created(ComparableURLClassLoader classLoader, long duration)
+    {
+        WarmStartProfile profile = warmStartProfile;
+        if (profile != null)
+            profile.record(classLoader);
+        if (!listeners.isEmpty()) {
+            ClassLoaderEvent.fire(listeners, new ClassLoaderEvent(ClassLoaderEvent.Type.CREATED, classLoader, null,
+                classLoader.getMetrics().getClassPath(), duration, classLoader.getURLs().length));
+        }
+    }
+
+    /**
+     * Register a new class loader with the JarWatcher, if any. When its jar files could not be watched, the class
+     * loader is simply checked on each lookup.
+     * 
+     * @param classLoader a newly created ComparableURLClassLoader
+     */
+    private void watch( ComparableURLClassLoader classLoader ) {
+        JarWatcher watcher = jarWatcher;
+        if (watcher != null) {
+            try {
+                watcher.watch(classLoader);
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Store a ComparableURLClassLoader in the cache. The entry is removed by the ReclamationService once the class
+     * loader has been garbage collected.
+     * 
+     * @param key the identity of the class loader
      * @param classLoader a ComparableURLClassLoader to be added
      */
-    private void addURLClassLoader( ComparableURLClassLoader classLoader ) {
-        cache.add(new WeakReference<ComparableURLClassLoader>(classLoader,weakQueue));
+    private void addURLClassLoader( ClassPathKey key, ComparableURLClassLoader classLoader ) {
+        LoaderReference weakRef = new LoaderReference(key, classLoader);
+        weakRef.retain(evictionPolicy.getRetention());
+        cache.put(key, weakRef);
+        added(weakRef, classLoader);
+    }
+
+    /**
+     * Follow a class loader newly stored in the cache, so its entry is removed by the ReclamationService once the
+     * class loader has been garbage collected, and maintain the cache if it has grown too large.
+     * 
+     * @param weakRef the reference to the class loader in the cache
+     * @param classLoader the class loader
+     */
+    private void added( LoaderReference weakRef, ComparableURLClassLoader classLoader ) {
+        ReclamationService.getDefault().register(classLoader,
+            new CacheCleanup(cache, stoppedClassLoader, statDroppedLoader, weakRef));
+        EvictionPolicy policy = evictionPolicy;
+        if (policy.getMaxEntries() > 0 && cache.size() > policy.getMaxEntries())
+            scheduleMaintenance();
     }
     
     /**
-     * Retrieve an existing ComparableURLClassLoader having the specified hashCode in the cache if available.
+     * Retrieve an existing ComparableURLClassLoader having the specified key in the cache if available.
+     * An outdated volatile class loader found in the cache is removed and stopped.
      * 
-     * @param hashCode hash value of the class loader to retrieve
+     * @param key identity of the class loader to retrieve
      * @return an existing ComparableURLClassLoader, or null if none are available.
      * @see lu.softec.net.ComparableURLClassLoader
      */
-    private ComparableURLClassLoader getURLClassLoader( int hashCode ) {
-        Iterator<WeakReference<ComparableURLClassLoader>> it = cache.iterator();
-        while (it.hasNext()) {
-            WeakReference<ComparableURLClassLoader> weakRef = it.next();
-            ComparableURLClassLoader classLoader = weakRef.get();
-            if( classLoader != null && classLoader.hashCode() == hashCode ) {
-                if (classLoader.isVolatile() && classLoader.isOutdated()) {
-                    it.remove();
+    private ComparableURLClassLoader getCachedURLClassLoader( ClassPathKey key ) {
+        LoaderReference weakRef = cache.get(key);
+        if (weakRef == null)
+            return null;
+
+        ComparableURLClassLoader classLoader = weakRef.get();
+        if( classLoader != null ) {
+            if (classLoader.isVolatile() && classLoader.isOutdated()) {
+                if (staleWhileRevalidate) {
+                    revalidate(weakRef, classLoader);
+                    weakRef.access();
+                    return classLoader;
+                }
+                if (cache.remove(key, weakRef)) {
                     stoppedClassLoader.add(weakRef);
+                    statEvictedLoader.increment();
+                    statStoppedLoader.increment();
                     if (!classLoader.stop())
                         refreshCache();
-                    return null;
-                } else {
-                    return classLoader;
                 }
-            } 
+                return null;
+            } else {
+                weakRef.access();
+                return classLoader;
+            }
         }
         return null;
     }
 
     /**
-     * Remove outdated class loaders from the cache.
+     * Build and pre-warm in the background a replacement for an outdated class loader, unless already done. The
+     * replacement preloads the classes defined by the outdated class loader, and is then swapped into the cache,
+     * while the outdated class loader is stopped.
+     * 
+     * @param weakRef the reference to the outdated class loader in the cache
+     * @param classLoader the outdated class loader
+     */
+    private void revalidate(final LoaderReference weakRef, ComparableURLClassLoader classLoader)
+    {
+        statStaleServed.increment();
+        if (!weakRef.revalidating.compareAndSet(false, true))
+            return;
+        if (weakRef.staleSince == 0)
+            weakRef.staleSince = System.nanoTime();
+        final Collection<String> classNames = classLoader.getDefinedClassNames();
+        try {
+            getRevalidator().execute(new Runnable()
+            {
+                public void run()
+                {
+                    swap(weakRef, classNames);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            weakRef.revalidating.set(false);
+        }
+    }
+
+    /**
+     * Create, pre-warm and swap into the cache the replacement of an outdated class loader. When the replacement
+     * could not be built, the outdated class loader is kept, and its replacement is attempted again by the next
+     * lookup finding it.
+     * 
+     * @param weakRef the reference to the outdated class loader in the cache
+     * @param classNames the classes to be preloaded by the replacement
+     */
+    private void swap(LoaderReference weakRef, Collection<String> classNames)
+    {
+        ComparableURLClassLoader classLoader = null;
+        boolean built = false;
+        try {
+            long start = System.nanoTime();
+            classLoader = newClassLoader(weakRef.key);
+            created(classLoader, System.nanoTime() - start);
+            if (!classNames.isEmpty()) {
+                try {
+                    classLoader.preload(classNames, null).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // Classes that could not be preloaded will be loaded on demand
+                }
+            }
+            built = true;
+        } finally {
+            if (!built) {
+                statFailedSwap.increment();
+                if (classLoader != null)
+                    classLoader.stop();
+                weakRef.revalidating.set(false);
+            }
+        }
+
+        LoaderReference newRef = new LoaderReference(weakRef.key, classLoader);
+        newRef.retain(evictionPolicy.getRetention());
+        if (cache.replace(weakRef.key, weakRef, newRef) || cache.putIfAbsent(weakRef.key, newRef) == null) {
+            added(newRef, classLoader);
+            statSwappedLoader.increment();
+            long stale = System.nanoTime() - weakRef.staleSince;
+            statStaleNanos.add(stale);
+            long max;
+            while (stale > (max = statMaxStaleNanos.get())) {
+                if (statMaxStaleNanos.compareAndSet(max, stale))
+                    break;
+            }
+            ComparableURLClassLoader outdated = weakRef.get();
+            if (!listeners.isEmpty()) {
+                ClassLoaderEvent.fire(listeners, new ClassLoaderEvent(ClassLoaderEvent.Type.SWAPPED, classLoader,
+                    outdated, classLoader.getMetrics().getClassPath(), stale, classLoader.getJarCount()));
+            }
+            weakRef.retain(LoaderRetention.WEAK);
+            if (outdated != null) {
+                stoppedClassLoader.add(weakRef);
+                statEvictedLoader.increment();
+                statStoppedLoader.increment();
+                outdated.stop();
+            }
+        } else {
+            // The outdated class loader has already been replaced
+            classLoader.stop();
+        }
+    }
+
+    /**
+     * @return true if outdated class loaders are still served while their replacement is prepared in the background
+     */
+    public boolean isStaleWhileRevalidate()
+    {
+        return staleWhileRevalidate;
+    }
+
+    /**
+     * Enable or disable the stale-while-revalidate mode. When enabled, a lookup finding an outdated volatile class
+     * loader still returns it immediately, while a replacement is created in the background and pre-warmed by
+     * preloading the classes defined by the outdated class loader. Once ready, the replacement is swapped into the
+     * cache and the outdated class loader is stopped. When disabled, an outdated class loader is stopped and replaced
+     * by the lookup that finds it.
+     * 
+     * @param enabled true to serve outdated class loaders while they are replaced
+     */
+    public void setStaleWhileRevalidate(boolean enabled)
+    {
+        this.staleWhileRevalidate = enabled;
+    }
+
+    /**
+     * @return the number of lookups that returned an outdated class loader while its replacement was prepared
+     */
+    public long getStatStaleServed()
+    {
+        return statStaleServed.sum();
+    }
+
+    /**
+     * @return the number of outdated class loaders replaced in the background
+     */
+    public long getStatSwappedLoader()
+    {
+        return statSwappedLoader.sum();
+    }
+
+    /**
+     * @return the number of replacements of outdated class loaders that failed to be built, and are retried by the next
+     *         lookup
+     */
+    public long getStatFailedSwap()
+    {
+        return statFailedSwap.sum();
+    }
+
+    /**
+     * @return the total time in milliseconds during which outdated class loaders were served before being replaced
+     */
+    public long getStaleServedTime()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(statStaleNanos.sum());
+    }
+
+    /**
+     * @return the longest time in milliseconds during which an outdated class loader was served before being replaced
      */
-    public synchronized boolean refreshCache()
+    public long getMaxStaleServedTime()
     {
+        return TimeUnit.NANOSECONDS.toMillis(statMaxStaleNanos.get());
+    }
+
+    /**
+     * Remove outdated class loaders from the cache. The class loaders are checked in parallel by a bounded pool of
+     * threads, and the sweep stops at the configured timeout. Class loaders whose checks did not complete in time
+     * are kept until the next sweep. Lookups are not blocked during the sweep.
+     * 
+     * @return true if any class loader has been removed
+     * @see #setSweepParallelism(int)
+     * @see #setSweepTimeout(long)
+     */
+    public boolean refreshCache()
+    {
+        Map<ComparableURLClassLoader, Map.Entry<ClassPathKey, LoaderReference>> entries =
+            new IdentityHashMap<ComparableURLClassLoader, Map.Entry<ClassPathKey, LoaderReference>>();
+        for (Map.Entry<ClassPathKey, LoaderReference> entry : cache.entrySet()) {
+            ComparableURLClassLoader classLoader = entry.getValue().get();
+            if (classLoader != null)
+                entries.put(classLoader, entry);
+        }
+
         boolean result = false;
-        Iterator<WeakReference<ComparableURLClassLoader>> it = cache.iterator();
-        while (it.hasNext()) {
-            WeakReference<ComparableURLClassLoader> weakRef = it.next();
-            ComparableURLClassLoader classLoader = weakRef.get();
-            if (classLoader != null && classLoader.isOutdated()) {
-                it.remove();
+        for (ComparableURLClassLoader classLoader : getSweeper().sweep(entries.keySet(), sweepTimeout)) {
+            Map.Entry<ClassPathKey, LoaderReference> entry = entries.get(classLoader);
+            LoaderReference weakRef = entry.getValue();
+            if (cache.remove(entry.getKey(), weakRef)) {
                 stoppedClassLoader.add(weakRef);
+                statEvictedLoader.increment();
+                statStoppedLoader.increment();
                 classLoader.stop();
                 result = true;
             }
@@ -202,14 +759,312 @@ public class CachedURLClassLoaderFactory
     }
 
     /**
-     * Remove reference to garbage collected class loader from the cache.
+     * @return the maximum number of jar files checked concurrently by <code>refreshCache()</code>
      */
-    private void cleanUpCache() {
-        Reference<? extends ComparableURLClassLoader> weakRef;
-        while( (weakRef = weakQueue.poll()) != null ) {
+    public int getSweepParallelism()
+    {
+        return sweepParallelism;
+    }
+
+    /**
+     * @param parallelism the maximum number of jar files checked concurrently by <code>refreshCache()</code>
+     */
+    public void setSweepParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism should be at least 1");
+        lock.lock();
+        try {
+            sweepParallelism = parallelism;
+            if (sweeper != null) {
+                sweeper.shutdown();
+                sweeper = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the maximum time in milliseconds spent by <code>refreshCache()</code>, 0 for no limit
+     */
+    public long getSweepTimeout()
+    {
+        return sweepTimeout;
+    }
+
+    /**
+     * @param timeout the maximum time in milliseconds spent by <code>refreshCache()</code>, 0 for no limit
+     */
+    public void setSweepTimeout(long timeout)
+    {
+        sweepTimeout = timeout;
+    }
+
+    /**
+     * Request a maintenance of the cache in the background, unless one is already pending.
+     */
+    private void scheduleMaintenance()
+    {
+        if (maintenancePending.compareAndSet(false, true))
+            getScheduler().execute(new Maintenance(this));
+    }
+
+    /**
+     * Evict the class loaders idle for longer than the idle time of the eviction policy, and then the least recently
+     * used class loaders exceeding its maximum number of entries. Evicted class loaders are stopped.
+     */
+    private void maintainCache()
+    {
+        maintenancePending.set(false);
+        EvictionPolicy policy = evictionPolicy;
+        if (!policy.isBounded())
+            return;
+
+        long now = System.nanoTime();
+        long idleTimeout = TimeUnit.MILLISECONDS.toNanos(policy.getIdleTimeout());
+        List<LoaderReference> entries = new ArrayList<LoaderReference>(cache.size());
+        for (LoaderReference weakRef : cache.values()) {
+            if (idleTimeout > 0 && now - weakRef.lastAccess > idleTimeout) {
+                evict(weakRef);
+            } else {
+                entries.add(weakRef);
+            }
+        }
+
+        int excess = entries.size() - policy.getMaxEntries();
+        if (policy.getMaxEntries() > 0 && excess > 0) {
+            Collections.sort(entries, new Comparator<LoaderReference>()
+            {
+                public int compare(LoaderReference o1, LoaderReference o2)
+                {
+                    return Long.signum(o1.lastAccess - o2.lastAccess);
+                }
+            });
+            for (int i = 0; i < excess; i++) {
+                evict(entries.get(i));
+            }
+        }
+    }
+
+    /**
+     * Remove a class loader from the cache and stop it.
+     * 
+     * @param weakRef the reference to the class loader in the cache
+     */
+    private void evict(LoaderReference weakRef)
+    {
+        if (cache.remove(weakRef.key, weakRef)) {
+            weakRef.retain(LoaderRetention.WEAK);
+            ComparableURLClassLoader classLoader = weakRef.get();
+            if (classLoader != null) {
+                stoppedClassLoader.add(weakRef);
+                statEvictedLoader.increment();
+                statStoppedLoader.increment();
+                classLoader.stop();
+            }
+        }
+    }
+
+    /**
+     * @return the scheduler shared by all factories to maintain their cache, created on first use
+     */
+    private static ScheduledThreadPoolExecutor getScheduler()
+    {
+        executorLock.lock();
+        try {
+            if (scheduler == null) {
+                scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
+                {
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread thread = new Thread(r, "CachedURLClassLoaderFactory-maintenance");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                scheduler.setRemoveOnCancelPolicy(true);
+            }
+            return scheduler;
+        } finally {
+            executorLock.unlock();
+        }
+    }
+
+    /**
+     * @return the executor shared by all factories to replace outdated class loaders, created on first use
+     */
+    private static ThreadPoolExecutor getRevalidator()
+    {
+        executorLock.lock();
+        try {
+            if (revalidator == null) {
+                final AtomicInteger threadCount = new AtomicInteger();
+                revalidator = new ThreadPoolExecutor(4, 4, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+                    {
+                        public Thread newThread(Runnable r)
+                        {
+                            Thread thread = new Thread(r, "CachedURLClassLoaderFactory-revalidate-"
+                                + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                revalidator.allowCoreThreadTimeOut(true);
+            }
+            return revalidator;
+        } finally {
+            executorLock.unlock();
+        }
+    }
+
+    /**
+     * @return the sweeper used by <code>refreshCache()</code>, created on first use
+     */
+    private StalenessSweeper getSweeper()
+    {
+        lock.lock();
+        try {
+            if (sweeper == null)
+                sweeper = new StalenessSweeper(sweepParallelism);
+            return sweeper;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Single-flight creation of a missing class loader, run by the first thread requesting it. Concurrent requests
+     * for the same key wait for its task, while a request made by the creating thread itself is rejected, since it
+     * would wait for its own task.
+     */
+    private final class Creation implements Callable<ComparableURLClassLoader>
+    {
+        final ClassPathKey key;
+
+        final Thread owner = Thread.currentThread();
+
+        final FutureTask<ComparableURLClassLoader> task = new FutureTask<ComparableURLClassLoader>(this);
+
+        /**
+         * Time spent creating the class loader, or -1 if it was found cached. Only used by the owner.
+         */
+        long duration = -1;
+
+        Creation(ClassPathKey key)
+        {
+            this.key = key;
+        }
+
+        public ComparableURLClassLoader call()
+        {
+            ComparableURLClassLoader classLoader = getCachedURLClassLoader(key);
+            if( classLoader == null ) {
+                long start = System.nanoTime();
+                classLoader = newClassLoader(key);
+                addURLClassLoader(key, classLoader);
+                duration = System.nanoTime() - start;
+            } else {
+                statReusedLoader.increment();
+            }
+            return classLoader;
+        }
+    }
+
+    /**
+     * Removal of the reference to a garbage collected class loader from the cache. It does not refer to the factory,
+     * so a factory could be garbage collected before its class loaders.
+     */
+    private static class CacheCleanup implements Runnable
+    {
+        private final ConcurrentMap<ClassPathKey, LoaderReference> cache;
+        private final Set<LoaderReference> stoppedClassLoader;
+        private final LongAdder statDroppedLoader;
+        private final LoaderReference weakRef;
+
+        CacheCleanup(ConcurrentMap<ClassPathKey, LoaderReference> cache, Set<LoaderReference> stoppedClassLoader,
+            LongAdder statDroppedLoader, LoaderReference weakRef)
+        {
+            this.cache = cache;
+            this.stoppedClassLoader = stoppedClassLoader;
+            this.statDroppedLoader = statDroppedLoader;
+            this.weakRef = weakRef;
+        }
+
+        public void run()
+        {
             if (!stoppedClassLoader.remove(weakRef))
-                cache.remove(weakRef);
-            statDroppedLoader++;
+                cache.remove(weakRef.key, weakRef);
+            statDroppedLoader.increment();
+        }
+    }
+
+    /**
+     * Maintenance of the cache of a factory, run by the shared scheduler. It only weakly refers to the factory, and
+     * cancels itself once the factory has been garbage collected.
+     */
+    private static class Maintenance implements Runnable
+    {
+        private final WeakReference<CachedURLClassLoaderFactory> factoryRef;
+
+        Maintenance(CachedURLClassLoaderFactory factory)
+        {
+            this.factoryRef = new WeakReference<CachedURLClassLoaderFactory>(factory);
+        }
+
+        public void run()
+        {
+            CachedURLClassLoaderFactory factory = factoryRef.get();
+            if (factory == null)
+                throw new CancellationException("Factory garbage collected");
+            factory.maintainCache();
+        }
+    }
+
+    /**
+     * Weak reference to a cached class loader that remember the key it has been stored with, so it could be removed
+     * from the cache once the class loader has been garbage collected. Depending on the retention of the eviction
+     * policy, the class loader may also be softly or strongly held, and its last access is recorded.
+     */
+    private static class LoaderReference extends WeakReference<ComparableURLClassLoader>
+    {
+        private final ClassPathKey key;
+        private volatile Object hold;
+        private volatile long lastAccess = System.nanoTime();
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+        private volatile long staleSince;
+
+        LoaderReference(ClassPathKey key, ComparableURLClassLoader classLoader)
+        {
+            super(classLoader);
+            this.key = key;
+        }
+
+        /**
+         * Record an access to the class loader.
+         */
+        void access()
+        {
+            lastAccess = System.nanoTime();
+            Object hold = this.hold;
+            if (hold instanceof SoftReference)
+                ((SoftReference< ? >) hold).get(); // Let the garbage collector know it is recently used
+        }
+
+        /**
+         * @param retention how the class loader should be held
+         */
+        void retain(LoaderRetention retention)
+        {
+            ComparableURLClassLoader classLoader = get();
+            if (retention == LoaderRetention.STRONG && classLoader != null) {
+                hold = classLoader;
+            } else if (retention == LoaderRetention.SOFT && classLoader != null) {
+                hold = new SoftReference<ComparableURLClassLoader>(classLoader);
+            } else {
+                hold = null;
+            }
         }
     }
 }
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.util.List;
+
+/**
+ * Management interface of a CachedURLClassLoaderFactory.
+ * 
+ * @see lu.softec.net.Management#register(CachedURLClassLoaderFactory, String)
+ */
+public interface CachedURLClassLoaderFactoryMXBean
+{
+    /**
+     * @return the number of class loaders created, which are the cache misses
+     */
+    int getStatNewLoader();
+
+    /**
+     * @return the number of class loaders reused, which are the cache hits
+     */
+    int getStatReusedLoader();
+
+    /**
+     * @return the number of class loaders garbage collected
+     */
+    int getStatDroppedLoader();
+
+    /**
+     * @return the number of class loaders removed from the cache because they were outdated or evicted by the eviction
+     *         policy
+     */
+    long getStatEvictedLoader();
+
+    /**
+     * @return the number of class loaders stopped by the factory
+     */
+    long getStatStoppedLoader();
+
+    /**
+     * @return the number of lookups that returned an outdated class loader while its replacement was prepared
+     */
+    long getStatStaleServed();
+
+    /**
+     * @return the number of outdated class loaders replaced in the background
+     */
+    long getStatSwappedLoader();
+
+    /**
+     * @return the number of replacements of outdated class loaders that failed to be built, and are retried by the next
+     *         lookup
+     */
+    long getStatFailedSwap();
+
+    /**
+     * @return the total time in milliseconds during which outdated class loaders were served before being replaced
+     */
+    long getStaleServedTime();
+
+    /**
+     * @return the longest time in milliseconds during which an outdated class loader was served before being replaced
+     */
+    long getMaxStaleServedTime();
+
+    /**
+     * @return the number of class loaders currently in the cache
+     */
+    int getCachedLoaderCount();
+
+    /**
+     * @return the metrics of the class loaders currently in the cache
+     */
+    List<ClassLoaderMetrics> getClassLoaderMetrics();
+
+    /**
+     * Remove outdated class loaders from the cache.
+     * 
+     * @return true if any class loader has been removed
+     */
+    boolean refreshCache();
+}
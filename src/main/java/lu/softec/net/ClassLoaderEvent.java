@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An event of the lifecycle of a class loader, carrying a duration and a number of jar files whose meaning depends on
+ * the type of the event. The time of the event is taken from <code>System.nanoTime()</code>, so the latency of a
+ * reload could be measured end to end, from the detection of the staleness of a class loader to the swap of its
+ * replacement.
+ * 
+ * @see lu.softec.net.ClassLoaderListener
+ */
+public final class ClassLoaderEvent
+{
+    /**
+     * The types of the events of the lifecycle of a class loader.
+     */
+    public enum Type
+    {
+        /**
+         * A class loader has been found or marked outdated. The duration is the age of the class loader, and the jar
+         * count the number of jar files it has opened.
+         */
+        STALENESS_DETECTED,
+
+        /**
+         * A class loader has been created and configured. The duration is the time spent creating it, and the jar
+         * count the number of URLs of its class path.
+         */
+        CREATED,
+
+        /**
+         * The replacement of an outdated class loader, pre-warmed in the background, has been swapped into the cache.
+         * The class loader of the event is the replacement. The duration is the time during which the outdated class
+         * loader has been served since it was found outdated, and the jar count the number of jar files opened by the
+         * replacement.
+         */
+        SWAPPED,
+
+        /**
+         * A class loader has been stopped, but some of its jar files could not be closed yet. The duration is the
+         * time spent stopping it, and the jar count the number of jar files left opened.
+         */
+        STOP_ATTEMPTED,
+
+        /**
+         * All the jar files of a stopped class loader have been closed. The duration is the time elapsed since the
+         * first attempt to stop it, and the jar count the number of jar files closed.
+         */
+        STOP_COMPLETED,
+
+        /**
+         * A class loader has been garbage collected, and its remaining jar files closed. The class loader of the
+         * event is null. The duration is the lifetime of the class loader, and the jar count the number of jar files
+         * closed on its reclamation.
+         */
+        COLLECTED
+    }
+
+    private final Type type;
+
+    private final DynamicURLClassLoader classLoader;
+
+    private final DynamicURLClassLoader previous;
+
+    private final String[] classPath;
+
+    private final long duration;
+
+    private final int jarCount;
+
+    private final long time;
+
+    ClassLoaderEvent(Type type, DynamicURLClassLoader classLoader, DynamicURLClassLoader previous,
+        String[] classPath, long duration, int jarCount)
+    {
+        this.type = type;
+        this.classLoader = classLoader;
+        this.previous = previous;
+        this.classPath = classPath;
+        this.duration = duration;
+        this.jarCount = jarCount;
+        this.time = System.nanoTime();
+    }
+
+    /**
+     * Notify an event to the given listeners, ignoring the runtime exceptions they throw.
+     * 
+     * @param listeners the listeners to be notified
+     * @param event the event
+     */
+    static void fire(List<ClassLoaderListener> listeners, ClassLoaderEvent event)
+    {
+        for (ClassLoaderListener listener : listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (RuntimeException e) {
+                // A failing listener should not prevent the others to be notified
+            }
+        }
+    }
+
+    /**
+     * @return the type of this event
+     */
+    public Type getType()
+    {
+        return type;
+    }
+
+    /**
+     * @return the class loader concerned by this event, or null if it has been garbage collected
+     */
+    public DynamicURLClassLoader getClassLoader()
+    {
+        return classLoader;
+    }
+
+    /**
+     * @return the outdated class loader replaced by a swap, or null for other events
+     */
+    public DynamicURLClassLoader getPreviousClassLoader()
+    {
+        return previous;
+    }
+
+    /**
+     * @return the class path of the class loader concerned by this event
+     */
+    public String[] getClassPath()
+    {
+        return classPath.clone();
+    }
+
+    /**
+     * @return the duration in nanoseconds related to this event
+     * @see lu.softec.net.ClassLoaderEvent.Type
+     */
+    public long getDuration()
+    {
+        return duration;
+    }
+
+    /**
+     * @return the number of jar files related to this event
+     * @see lu.softec.net.ClassLoaderEvent.Type
+     */
+    public int getJarCount()
+    {
+        return jarCount;
+    }
+
+    /**
+     * @return the time of this event in nanoseconds, as returned by <code>System.nanoTime()</code>
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    @Override
+    public String toString()
+    {
+        return type + " " + Arrays.toString(classPath) + " duration=" + duration + "ns jars=" + jarCount;
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+/**
+ * A listener of the lifecycle of the class loaders created by a CachedURLClassLoaderFactory, notified when they are
+ * found outdated, created, swapped, stopped and garbage collected. Listeners are called synchronously by the thread
+ * where the event occurs, which may be a lookup thread, a background thread of the factory or the thread of the
+ * ReclamationService, and should therefore return quickly. A runtime exception thrown by a listener is ignored.
+ * 
+ * @see lu.softec.net.CachedURLClassLoaderFactory#addClassLoaderListener(ClassLoaderListener)
+ */
+public interface ClassLoaderListener
+{
+    /**
+     * @param event an event of the lifecycle of a class loader
+     */
+    void onEvent(ClassLoaderEvent event);
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.net.URL;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class holds the counters of a DynamicURLClassLoader. Counters are updated without contention by concurrent
+ * class loading threads. It is exposed through JMX as part of the statistics of a CachedURLClassLoaderFactory.
+ * 
+ * @see lu.softec.net.DynamicURLClassLoader#getMetrics()
+ */
+public class ClassLoaderMetrics
+{
+    private final LongAdder classesDefined = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LongAdder findClassCount = new LongAdder();
+
+    private final LongAdder findClassNanos = new LongAdder();
+
+    private final LongAdder lookupCacheHits = new LongAdder();
+
+    private final LongAdder lookupCacheMisses = new LongAdder();
+
+    private volatile String[] classPath;
+
+    ClassLoaderMetrics(URL[] urls)
+    {
+        setClassPath(urls);
+    }
+
+    /**
+     * @return the class path of the class loader
+     */
+    public String[] getClassPath()
+    {
+        return classPath.clone();
+    }
+
+    /**
+     * @return the number of classes defined by the class loader
+     */
+    public long getClassesDefined()
+    {
+        return classesDefined.sum();
+    }
+
+    /**
+     * @return the number of bytes of class files read by the class loader itself, when using its package index or its
+     *         transformer chain, before any transformation and including those served by the EntryContentCache
+     */
+    public long getBytesRead()
+    {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return the number of calls to <code>findClass()</code>, including those that did not find the class
+     */
+    public long getFindClassCount()
+    {
+        return findClassCount.sum();
+    }
+
+    /**
+     * @return the total time spent in <code>findClass()</code>, in microseconds
+     */
+    public long getFindClassTime()
+    {
+        return findClassNanos.sum() / 1000L;
+    }
+
+    /**
+     * @return the number of class and resource lookups answered by the lookup cache
+     */
+    public long getLookupCacheHits()
+    {
+        return lookupCacheHits.sum();
+    }
+
+    /**
+     * @return the number of class and resource lookups not found in the lookup cache
+     */
+    public long getLookupCacheMisses()
+    {
+        return lookupCacheMisses.sum();
+    }
+
+    void setClassPath(URL[] urls)
+    {
+        String[] result = new String[urls.length];
+        for (int i = 0; i < urls.length; i++) {
+            result[i] = urls[i].toExternalForm();
+        }
+        classPath = result;
+    }
+
+    void classDefined(int bytes)
+    {
+        classesDefined.increment();
+        if (bytes > 0)
+            bytesRead.add(bytes);
+    }
+
+    void findClass(long nanos)
+    {
+        findClassCount.increment();
+        findClassNanos.add(nanos);
+    }
+
+    void lookupCacheHit()
+    {
+        lookupCacheHits.increment();
+    }
+
+    void lookupCacheMiss()
+    {
+        lookupCacheMisses.increment();
+    }
+}
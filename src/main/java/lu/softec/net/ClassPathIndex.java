@@ -0,0 +1,335 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+/**
+ * This class is an index of the packages found in the jar files of a class path, similar to the
+ * <code>META-INF/INDEX.LIST</code> of the jar specification, but built from the central directories of the jar
+ * files. It allows a DynamicURLClassLoader to look for a class or a resource only in the jar files containing its
+ * package, in the order of the class path. Jar files are only acquired while being read, so idle pooled jar files may
+ * be closed between lookups.
+ * 
+ * @see lu.softec.net.DynamicURLClassLoader#setIndexed(boolean)
+ */
+final class ClassPathIndex
+{
+    /**
+     * Index of a class path that could not be indexed
+     */
+    static final ClassPathIndex UNAVAILABLE = new ClassPathIndex(new URL[0], null);
+
+    private static final int[] NO_CANDIDATES = new int[0];
+
+    private static final String HEX = "0123456789ABCDEF";
+
+    private final URL[] urls;
+
+    private final URLStreamHandler jarHandler;
+
+    private final DynamicJarURLConnection[] connections;
+
+    private final boolean[] signed;
+
+    private final Map<String, int[]> packages = new HashMap<String, int[]>();
+
+    private ClassPathIndex(URL[] urls, URLStreamHandler jarHandler)
+    {
+        this.urls = urls;
+        this.jarHandler = jarHandler;
+        this.connections = new DynamicJarURLConnection[urls.length];
+        this.signed = new boolean[urls.length];
+    }
+
+    /**
+     * Build the index of the given class path. Jar files are opened through the given jar handler, so they are
+     * registered with the class loader owning the handler. Jar files already opened by a previous index of the same
+     * class loader are reused.
+     * 
+     * @param urls the class path to be indexed
+     * @param jarHandler the jar protocol handler of the class loader
+     * @param previous a previous index of the same class loader, or null
+     * @return the index of the class path, or UNAVAILABLE if the class path contains a directory, a jar file whose
+     *         manifest declares a Class-Path, or could not be indexed.
+     */
+    static ClassPathIndex build(URL[] urls, URLStreamHandler jarHandler, ClassPathIndex previous)
+    {
+        if (jarHandler == null)
+            return UNAVAILABLE;
+        for (URL url : urls) {
+            if (url.getFile().endsWith("/"))
+                return UNAVAILABLE;
+        }
+
+        ClassPathIndex index = new ClassPathIndex(urls, jarHandler);
+        Map<String, IntList> packages = new HashMap<String, IntList>();
+        for (int i = 0; i < urls.length; i++) {
+            JarFile jarFile = index.open(i, previous);
+            if (jarFile == null)
+                continue;
+            try {
+                // Jar files of a Class-Path are searched by URLClassLoader but not indexed
+                if (hasClassPath(jarFile))
+                    return UNAVAILABLE;
+                Enumeration<? extends ZipEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (MappedJarFile.isSignature(name))
+                        index.signed[i] = true;
+                    String pkg = getPackagePath(name);
+                    IntList jars = packages.get(pkg);
+                    if (jars == null) {
+                        jars = new IntList();
+                        packages.put(pkg, jars);
+                    }
+                    jars.add(i);
+                }
+            } finally {
+                index.releaseJarFile(i);
+            }
+        }
+        for (Map.Entry<String, IntList> entry : packages.entrySet()) {
+            index.packages.put(entry.getKey(), entry.getValue().toArray());
+        }
+        return index;
+    }
+
+    /**
+     * @param name the name of a resource
+     * @return the indexes of the jar files containing the package of this resource, in class path order
+     */
+    int[] getCandidates(String name)
+    {
+        int[] candidates = packages.get(getPackagePath(name));
+        return (candidates != null) ? candidates : NO_CANDIDATES;
+    }
+
+    /**
+     * @param i the index of a jar file
+     * @return the class path URL of this jar file
+     */
+    URL getURL(int i)
+    {
+        return urls[i];
+    }
+
+    /**
+     * Acquire a jar file of the class path for reading. Each successful call should be followed by a call to
+     * <code>releaseJarFile()</code>, and the jar file should not be used after it.
+     * 
+     * @param i the index of a jar file
+     * @return the opened jar file
+     * @throws IOException if the jar file could not be opened again
+     */
+    JarFile acquireJarFile(int i) throws IOException
+    {
+        return connections[i].acquireJarFile();
+    }
+
+    /**
+     * @param i the index of a jar file acquired by <code>acquireJarFile()</code>
+     */
+    void releaseJarFile(int i)
+    {
+        connections[i].releaseJarFile();
+    }
+
+    /**
+     * @param i the index of a jar file
+     * @param name the name of a resource
+     * @return true if the jar file contains this resource
+     */
+    boolean contains(int i, String name)
+    {
+        MappedJarFile mapped = getMappedJarFile(i);
+        if (mapped != null)
+            return (mapped.getEntry(name) >= 0);
+        try {
+            JarFile jarFile = acquireJarFile(i);
+            try {
+                return (jarFile.getEntry(name) != null);
+            } finally {
+                releaseJarFile(i);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param i the index of a jar file
+     * @return true if the jar file is signed
+     */
+    boolean isSigned(int i)
+    {
+        return signed[i];
+    }
+
+    /**
+     * @param i the index of a jar file
+     * @return the memory-mapped reader of the jar file, or null if not available
+     */
+    MappedJarFile getMappedJarFile(int i)
+    {
+        return (connections[i] != null) ? connections[i].getMappedJarFile() : null;
+    }
+
+    /**
+     * @param i the index of a jar file
+     * @param name the name of a resource in this jar file
+     * @return a jar URL to this resource, handled by the jar handler of the class loader
+     * @throws MalformedURLException if the URL could not be built
+     */
+    URL getResourceURL(int i, String name) throws MalformedURLException
+    {
+        return new URL("jar", "", -1, urls[i].toExternalForm() + "!/" + encodePath(name), jarHandler);
+    }
+
+    /**
+     * Open a jar file of the class path, or reuse its connection from a previous index, and acquire it.
+     * 
+     * @param i the index of the jar file
+     * @param previous a previous index of the same class loader, or null
+     * @return the acquired jar file, or null if it could not be opened
+     */
+    private JarFile open(int i, ClassPathIndex previous)
+    {
+        String url = urls[i].toExternalForm();
+        DynamicJarURLConnection connection = null;
+        if (previous != null) {
+            for (int j = 0; j < previous.urls.length; j++) {
+                if (previous.connections[j] != null && previous.urls[j].toExternalForm().equals(url)) {
+                    connection = previous.connections[j];
+                    break;
+                }
+            }
+        }
+
+        try {
+            boolean reused = (connection != null);
+            if (!reused) {
+                URLConnection uc = new URL("jar", "", -1, url + "!/", jarHandler).openConnection();
+                if (!(uc instanceof DynamicJarURLConnection))
+                    return null;
+                connection = (DynamicJarURLConnection) uc;
+            }
+            JarFile jarFile = connection.acquireJarFile();
+            if (!reused)
+                connection.register();
+            connections[i] = connection;
+            return jarFile;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param jarFile an opened jar file
+     * @return true if the manifest of the jar file declares a Class-Path, or could not be read
+     */
+    private static boolean hasClassPath(JarFile jarFile)
+    {
+        try {
+            Manifest manifest = jarFile.getManifest();
+            return (manifest != null && manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) != null);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @param name the name of a resource
+     * @return the directory part of the resource name, including the trailing slash
+     */
+    private static String getPackagePath(String name)
+    {
+        return name.substring(0, name.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @param name the name of a resource
+     * @return the name encoded to be used as the path of an URL
+     */
+    private static String encodePath(String name)
+    {
+        StringBuilder sb = null;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || "/.-_$~!*'()+,;=@&".indexOf(c) >= 0) {
+                if (sb != null)
+                    sb.append(c);
+                continue;
+            }
+            if (sb == null)
+                sb = new StringBuilder(name.substring(0, i));
+            int end = Character.isHighSurrogate(c) && i + 1 < name.length() ? i + 2 : i + 1;
+            try {
+                for (byte b : name.substring(i, end).getBytes("UTF-8")) {
+                    sb.append('%').append(HEX.charAt((b >> 4) & 0xF)).append(HEX.charAt(b & 0xF));
+                }
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            i = end - 1;
+        }
+        return (sb != null) ? sb.toString() : name;
+    }
+
+    /**
+     * Minimal growable list of jar indexes.
+     */
+    private static class IntList
+    {
+        private int[] values = new int[2];
+
+        private int size;
+
+        void add(int value)
+        {
+            if (size > 0 && values[size - 1] == value)
+                return;
+            if (size == values.length) {
+                int[] newValues = new int[size * 2];
+                System.arraycopy(values, 0, newValues, 0, size);
+                values = newValues;
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray()
+        {
+            int[] result = new int[size];
+            System.arraycopy(values, 0, result, 0, size);
+            return result;
+        }
+    }
+}
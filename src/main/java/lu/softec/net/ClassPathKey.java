@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.lang.ref.WeakReference;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLStreamHandlerFactory;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class is the immutable identity of a ComparableURLClassLoader: the ordered list of its URLs, its parent class
+ * loader and its URLStreamHandlerFactory. URLs are normalized by removing their dot segments, and compared using
+ * their external form to avoid any name resolution, parent and factory are compared by identity. A 64-bit hash is
+ * computed once on construction, and keys are compared for equality beyond their hash, so different class paths
+ * never share a class loader.
+ * <p>
+ * Keys obtained through the <code>of()</code> methods are interned while in use, so holding such a key and passing
+ * it to <code>CachedURLClassLoaderFactory.getURLClassLoader(ClassPathKey)</code> retrieves a cached class loader
+ * without any allocation.
+ * 
+ * @see lu.softec.net.CachedURLClassLoaderFactory#getURLClassLoader(ClassPathKey)
+ */
+public final class ClassPathKey
+{
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final ConcurrentMap<Long, WeakReference<ClassPathKey>> interned =
+        new ConcurrentHashMap<Long, WeakReference<ClassPathKey>>();
+
+    private final URL[] urls;
+
+    private final String[] urlForms;
+
+    private final ClassLoader parent;
+
+    private final URLStreamHandlerFactory factory;
+
+    private final long hash;
+
+    /**
+     * @param urls the URLs from which to load classes and resources
+     * @param parent the parent class loader for delegation
+     * @param factory the URLStreamHandlerFactory to use when creating URLs, null for the default one
+     */
+    ClassPathKey(URL[] urls, ClassLoader parent, URLStreamHandlerFactory factory)
+    {
+        this.urls = urls.clone();
+        this.urlForms = new String[urls.length];
+        this.parent = parent;
+        this.factory = factory;
+
+        long h = FNV_OFFSET;
+        for (int i = 0; i < urls.length; i++) {
+            String form = null;
+            if (urls[i] != null) {
+                form = urls[i].toExternalForm();
+                String normalized = normalize(form);
+                if (normalized != form) {
+                    try {
+                        this.urls[i] = new URL(urls[i], normalized);
+                        form = normalized;
+                    } catch (MalformedURLException e) {
+                    }
+                }
+            }
+            urlForms[i] = form;
+            if (form != null) {
+                for (int j = 0; j < form.length(); j++) {
+                    h = (h ^ form.charAt(j)) * FNV_PRIME;
+                }
+            }
+            h = (h ^ 0x10000) * FNV_PRIME;
+        }
+        h = (h ^ System.identityHashCode(parent)) * FNV_PRIME;
+        h = (h ^ System.identityHashCode(factory)) * FNV_PRIME;
+        this.hash = mix(h);
+    }
+
+    /**
+     * @param urls the URLs from which to load classes and resources
+     * @return the key of a ComparableURLClassLoader using the system class loader as parent
+     */
+    public static ClassPathKey of(URL[] urls)
+    {
+        return of(urls, ClassLoader.getSystemClassLoader(), null);
+    }
+
+    /**
+     * @param urls the URLs from which to load classes and resources
+     * @param parent the parent class loader for delegation
+     * @return the key of a ComparableURLClassLoader
+     */
+    public static ClassPathKey of(URL[] urls, ClassLoader parent)
+    {
+        return of(urls, parent, null);
+    }
+
+    /**
+     * @param urls the URLs from which to load classes and resources
+     * @param parent the parent class loader for delegation
+     * @param factory the URLStreamHandlerFactory to use when creating URLs, null for the default one
+     * @return the key of a ComparableURLClassLoader, the same instance as long as an equal key is in use
+     */
+    public static ClassPathKey of(URL[] urls, ClassLoader parent, URLStreamHandlerFactory factory)
+    {
+        if (urls == null)
+            throw new IllegalArgumentException("URLs should not be null");
+        return new ClassPathKey(urls, parent, factory).intern();
+    }
+
+    /**
+     * @return the URLs from which to load classes and resources
+     */
+    public URL[] getURLs()
+    {
+        return urls.clone();
+    }
+
+    /**
+     * @return the parent class loader for delegation
+     */
+    public ClassLoader getParent()
+    {
+        return parent;
+    }
+
+    /**
+     * @return the URLStreamHandlerFactory to use when creating URLs, null for the default one
+     */
+    public URLStreamHandlerFactory getFactory()
+    {
+        return factory;
+    }
+
+    /**
+     * @return the 64-bit hash of this key
+     */
+    public long longHashCode()
+    {
+        return hash;
+    }
+
+    /**
+     * @return a new class loader matching this key
+     */
+    ComparableURLClassLoader newClassLoader()
+    {
+        ComparableURLClassLoader classLoader = (factory != null)
+            ? new ComparableURLClassLoader(urls, parent, factory)
+            : new ComparableURLClassLoader(urls, parent);
+        classLoader.setClassPathKey(this);
+        return classLoader;
+    }
+
+    /**
+     * Return the interned instance equal to this key. Interned keys are only weakly held, and forgotten by the
+     * ReclamationService once unused. On a collision of 64-bit hashes, the key is not interned.
+     * 
+     * @return the interned key equal to this key, or this key
+     */
+    private ClassPathKey intern()
+    {
+        Long h = Long.valueOf(hash);
+        WeakReference<ClassPathKey> ref = interned.get(h);
+        while (true) {
+            if (ref != null) {
+                ClassPathKey key = ref.get();
+                if (key != null)
+                    return equals(key) ? key : this;
+                interned.remove(h, ref);
+            }
+            WeakReference<ClassPathKey> newRef = new WeakReference<ClassPathKey>(this);
+            ref = interned.putIfAbsent(h, newRef);
+            if (ref == null) {
+                ReclamationService.getDefault().register(this, new Unintern(h, newRef));
+                return this;
+            }
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof ClassPathKey))
+            return false;
+        ClassPathKey other = (ClassPathKey) obj;
+        return hash == other.hash && parent == other.parent && factory == other.factory
+            && Arrays.equals(urlForms, other.urlForms);
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(urlForms);
+    }
+
+    /**
+     * @param form the external form of an URL
+     * @return the form with its dot segments removed, or the same instance if it is already normalized
+     */
+    private static String normalize(String form)
+    {
+        if (form.indexOf("/.") < 0)
+            return form;
+        try {
+            String normalized = new URI(form).normalize().toString();
+            return normalized.equals(form) ? form : normalized;
+        } catch (URISyntaxException e) {
+            return form;
+        }
+    }
+
+    /**
+     * Final mixing step of MurmurHash3, spreading all bits of the hash.
+     */
+    private static long mix(long h)
+    {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Removal of a garbage collected key from the table of interned keys.
+     */
+    private static final class Unintern implements Runnable
+    {
+        private final Long hash;
+
+        private final WeakReference<ClassPathKey> ref;
+
+        Unintern(Long hash, WeakReference<ClassPathKey> ref)
+        {
+            this.hash = hash;
+            this.ref = ref;
+        }
+
+        public void run()
+        {
+            interned.remove(hash, ref);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * This class loads a set of classes of a DynamicURLClassLoader in parallel, using a fork-join pool.
+ * 
+ * @see lu.softec.net.DynamicURLClassLoader#preload(Collection, ForkJoinPool)
+ */
+class ClassPreloader extends RecursiveTask<PreloadResult>
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final int THRESHOLD = 16;
+
+    private static final int MAX_FAILURES = 100;
+
+    private final DynamicURLClassLoader classLoader;
+
+    private final Collection<String> classNames;
+
+    private final String[] packages;
+
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private final Map<String, Throwable> failures = new ConcurrentHashMap<String, Throwable>();
+
+    /**
+     * @param classLoader the class loader loading the classes
+     * @param classNames the binary names of the classes to load, or null to load the classes found in the class path
+     * @param packages the packages of the classes to load from the class path, including their sub-packages, or
+     *            null for all packages
+     */
+    ClassPreloader(DynamicURLClassLoader classLoader, Collection<String> classNames, String[] packages)
+    {
+        this.classLoader = classLoader;
+        this.classNames = classNames;
+        this.packages = packages;
+    }
+
+    /**
+     * @return the pool used when none is provided, created on first use
+     */
+    static ForkJoinPool getDefaultPool()
+    {
+        return DefaultPool.POOL;
+    }
+
+    /**
+     * Holder of the pool used when none is provided, so it is only created when first used.
+     */
+    private static final class DefaultPool
+    {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    @Override
+    protected PreloadResult compute()
+    {
+        long start = System.nanoTime();
+        List<String> names = new ArrayList<String>((classNames != null) ? classNames : listClassNames());
+        new Loader(names, 0, names.size()).invoke();
+        return new PreloadResult(names.size(), loaded.get(), failed.get(), System.nanoTime() - start, failures);
+    }
+
+    /**
+     * @return the binary names of the classes found in the jar files and local directories of the class path,
+     *         filtered by package
+     */
+    private Collection<String> listClassNames()
+    {
+        Collection<String> names = new LinkedHashSet<String>();
+        URLStreamHandler jarHandler = classLoader.factory.createURLStreamHandler("jar");
+        for (URL url : classLoader.getURLs()) {
+            if (url.getFile().endsWith("/")) {
+                if ("file".equals(url.getProtocol())) {
+                    try {
+                        listClassNames(new File(url.toURI()), "", names);
+                    } catch (URISyntaxException e) {
+                    } catch (IllegalArgumentException e) {
+                    }
+                }
+                continue;
+            }
+            try {
+                URLConnection uc = new URL("jar", "", -1, url.toExternalForm() + "!/", jarHandler).openConnection();
+                if (!(uc instanceof DynamicJarURLConnection))
+                    continue;
+                JarFile jarFile = ((DynamicJarURLConnection) uc).getJarFile();
+                Enumeration< ? extends ZipEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    addClassName(entries.nextElement().getName(), names);
+                }
+            } catch (IOException e) {
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param dir a directory of the class path
+     * @param prefix the resource name prefix of this directory
+     * @param names the collection receiving the class names
+     */
+    private void listClassNames(File dir, String prefix, Collection<String> names)
+    {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                listClassNames(file, prefix + file.getName() + '/', names);
+            } else {
+                addClassName(prefix + file.getName(), names);
+            }
+        }
+    }
+
+    /**
+     * @param path the name of a resource
+     * @param names the collection receiving the class name, if the resource is a class of the requested packages
+     */
+    private void addClassName(String path, Collection<String> names)
+    {
+        if (!path.endsWith(".class") || path.startsWith("META-INF/") || path.endsWith("module-info.class")
+            || path.endsWith("package-info.class"))
+            return;
+        String name = path.substring(0, path.length() - 6).replace('/', '.');
+        if (packages != null && packages.length > 0) {
+            boolean found = false;
+            for (String pkg : packages) {
+                if (name.startsWith(pkg) && name.length() > pkg.length() && name.charAt(pkg.length()) == '.') {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found)
+                return;
+        }
+        names.add(name);
+    }
+
+    /**
+     * Fork-join task loading a range of the classes.
+     */
+    private class Loader extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> names;
+
+        private final int from;
+
+        private final int to;
+
+        Loader(List<String> names, int from, int to)
+        {
+            this.names = names;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Loader(names, from, middle), new Loader(names, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                String name = names.get(i);
+                try {
+                    Class.forName(name, false, classLoader);
+                    loaded.incrementAndGet();
+                } catch (Exception e) {
+                    failed(name, e);
+                } catch (LinkageError e) {
+                    failed(name, e);
+                }
+            }
+        }
+
+        /**
+         * Record a class that could not be loaded. Other errors, like an OutOfMemoryError, abort the preloading.
+         * 
+         * @param name the binary name of the class
+         * @param t the cause of the failure
+         */
+        private void failed(String name, Throwable t)
+        {
+            if (failed.incrementAndGet() <= MAX_FAILURES)
+                failures.put(name, t);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+/**
+ * A transformation of the bytecode of the classes defined by a DynamicURLClassLoader, like an instrumentation adding
+ * metrics or tracing. Transformers are registered in a ClassTransformerChain, which may cache their output on disk.
+ * The output of a transformer should only depend on its version, the name and the bytecode of the class, since it
+ * is reused for the same input by later class loaders and after restarts.
+ * 
+ * @see lu.softec.net.ClassTransformerChain
+ * @see lu.softec.net.DynamicURLClassLoader#setTransformerChain(ClassTransformerChain)
+ */
+public interface ClassTransformer
+{
+    /**
+     * @return the version of this transformer, which should change whenever its output changes for the same input
+     */
+    String getVersion();
+
+    /**
+     * Transform the bytecode of a class. An exception thrown by a transformer fails the loading of the class.
+     * 
+     * @param className the binary name of the class
+     * @param classfile the bytecode of the class, which should not be modified
+     * @return the transformed bytecode, or null if the class is left unchanged
+     */
+    byte[] transform(String className, byte[] classfile);
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is an ordered chain of ClassTransformers applied to the bytecode of the classes defined by the class
+ * loaders using it. When a TransformedClassCache is defined, the output of the chain is stored on disk, keyed by the
+ * digest of the input bytecode and the versions of the transformers, so unchanged classes are not transformed again
+ * by a new class loader or after a restart. A chain is usually shared by all the class loaders of a factory.
+ * 
+ * @see lu.softec.net.CachedURLClassLoaderFactory#setTransformerChain(ClassTransformerChain)
+ * @see lu.softec.net.DynamicURLClassLoader#setTransformerChain(ClassTransformerChain)
+ */
+public class ClassTransformerChain
+{
+    private final List<ClassTransformer> transformers = new CopyOnWriteArrayList<ClassTransformer>();
+
+    private volatile TransformedClassCache cache;
+
+    private final LongAdder transformed = new LongAdder();
+
+    private final LongAdder transformTime = new LongAdder();
+
+    /**
+     * Constructs a chain of the given transformers, applied in order.
+     * 
+     * @param transformers the transformers of the chain
+     */
+    public ClassTransformerChain(ClassTransformer... transformers)
+    {
+        for (ClassTransformer transformer : transformers) {
+            add(transformer);
+        }
+    }
+
+    /**
+     * Append a transformer to this chain. It only affects classes defined after the change.
+     * 
+     * @param transformer the transformer to append
+     */
+    public void add(ClassTransformer transformer)
+    {
+        if (transformer == null)
+            throw new IllegalArgumentException("Transformer should not be null");
+        transformers.add(transformer);
+    }
+
+    /**
+     * @param transformer the transformer to remove from this chain
+     * @return true if the transformer was part of this chain
+     */
+    public boolean remove(ClassTransformer transformer)
+    {
+        return transformers.remove(transformer);
+    }
+
+    /**
+     * @return the transformers of this chain, in order
+     */
+    public List<ClassTransformer> getTransformers()
+    {
+        return new ArrayList<ClassTransformer>(transformers);
+    }
+
+    /**
+     * @return the cache of the output of this chain, or null if none
+     */
+    public TransformedClassCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * @param cache the cache of the output of this chain, or null to always transform classes
+     */
+    public void setCache(TransformedClassCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * @return the number of classes passed through the transformers, excluding those served from the cache
+     */
+    public long getTransformedCount()
+    {
+        return transformed.sum();
+    }
+
+    /**
+     * @return the total time in nanoseconds spent in the transformers
+     */
+    public long getTransformTime()
+    {
+        return transformTime.sum();
+    }
+
+    /**
+     * Pass the bytecode of a class through the transformers of this chain, or retrieve the output from the cache.
+     * 
+     * @param className the binary name of the class
+     * @param classfile the bytecode of the class
+     * @return the transformed bytecode, or the given bytecode if unchanged
+     */
+    byte[] transform(String className, byte[] classfile)
+    {
+        ClassTransformer[] chain = transformers.toArray(new ClassTransformer[0]);
+        if (chain.length == 0)
+            return classfile;
+
+        TransformedClassCache cache = this.cache;
+        String key = null;
+        if (cache != null) {
+            key = TransformedClassCache.getKey(className, classfile, chain);
+            byte[] cached = cache.get(key);
+            if (cached != null)
+                return (cached.length > 0) ? cached : classfile;
+        }
+
+        long start = System.nanoTime();
+        byte[] result = classfile;
+        for (ClassTransformer transformer : chain) {
+            byte[] output = transformer.transform(className, result);
+            if (output != null)
+                result = output;
+        }
+        transformTime.add(System.nanoTime() - start);
+        transformed.increment();
+
+        if (cache != null)
+            cache.put(key, (result != classfile) ? result : null);
+        return result;
+    }
+}
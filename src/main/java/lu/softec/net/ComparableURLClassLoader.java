@@ -23,15 +23,20 @@ import java.net.URLStreamHandlerFactory;
 /**
  * This class loader extends URLClassLoader to allow easy identification. It
  * overwrite hashCode to provide a meaning full hash value that represent the
- * current class loader in regards to its arguments Urls, parent and Stream factory.
+ * current class loader in regards to its arguments Urls, parent and Stream factory. Like its parent class, it is
+ * parallel capable.
  */
 public class ComparableURLClassLoader extends DynamicURLClassLoader
 {
-    private long URLHashCode = 0;
+    static {
+        registerAsParallelCapable();
+    }
+
+    private volatile ClassPathKey classPathKey = null;
 
-    private int FactoryHashCode = 0;
+    private URLStreamHandlerFactory customFactory = null;
 
-    private boolean isVolatile = true;
+    private volatile boolean isVolatile = true;
 
     /**
      * Constructs a new ComparableURLClassLoader for the specified URLs using the default delegation parent
@@ -79,18 +84,39 @@ public class ComparableURLClassLoader extends DynamicURLClassLoader
     public ComparableURLClassLoader(URL[] urls, ClassLoader parent, URLStreamHandlerFactory factory)
     {
         super(urls, parent, factory);
-        FactoryHashCode = factory.hashCode();
+        customFactory = factory;
     }
     
     /**
-     * Ensure comparability by recomputing URL Hash
+     * Ensure comparability by recomputing the class path key
      * @see java.net.URLClassLoader#addURL(java.net.URL)
      */
     @Override
     protected void addURL(URL url)
     {
         super.addURL(url);
-        URLHashCode = 0;
+        classPathKey = null;
+    }
+
+    /**
+     * @return the identity of this class loader, based on its current URLs, parent and Stream factory
+     */
+    public ClassPathKey getClassPathKey()
+    {
+        ClassPathKey key = classPathKey;
+        if (key == null) {
+            key = new ClassPathKey(super.getURLs(), getParent(), customFactory);
+            classPathKey = key;
+        }
+        return key;
+    }
+
+    /**
+     * @param key the key this class loader has been created from
+     */
+    void setClassPathKey(ClassPathKey key)
+    {
+        classPathKey = key;
     }
 
     /**
@@ -119,7 +145,7 @@ public class ComparableURLClassLoader extends DynamicURLClassLoader
             return true;
         if( obj == null || (obj.getClass() != this.getClass()))
             return false;
-        return( this.hashCode() == obj.hashCode() );
+        return getClassPathKey().equals(((ComparableURLClassLoader) obj).getClassPathKey());
     }
 
     /* (non-Javadoc)
@@ -128,10 +154,7 @@ public class ComparableURLClassLoader extends DynamicURLClassLoader
     @Override
     public int hashCode()
     {
-        if( URLHashCode == 0 )
-            URLHashCode = getURLHashCode(super.getURLs());
-        
-        return getHashCode(URLHashCode, ((getParent() != null) ? getParent().hashCode() : 0), FactoryHashCode);
+        return getClassPathKey().hashCode();
     }
 
     /**
@@ -165,64 +188,9 @@ public class ComparableURLClassLoader extends DynamicURLClassLoader
      * @param factory the URLStreamHandlerFactory to use when creating URLs
      * @return hash code that would be return by such a ComparableURLClassLoader
      * @see java.net.URLClassLoader
+     * @see lu.softec.net.ClassPathKey
      */
     public static int getHashCode(URL[] urls, ClassLoader parent, URLStreamHandlerFactory factory) {
-        return getHashCode(getURLHashCode(urls), ((parent != null) ? parent.hashCode() : 0), ((factory != null) ? factory.hashCode() : 0));
-    }
-    
-    /**
-     * Compute hashcode representing a ComparableURLClassLoader based on hashcode of their respective arguments
-     * @param urlHashCode hash value representing the URL list
-     * @param parentHashCode hash value representing the parent class loader
-     * @param factoryHashCode hash value representing the custom URL factory
-     * @return a hashcode representing a ComparableURLClassLoader with same URLs
-     */
-    private static int getHashCode( long urlHashCode, int parentHashCode, int factoryHashCode) {
-        return ((int)(urlHashCode & 0xFFFFFFFF)) ^ ((int)(urlHashCode >> 32)) ^ parentHashCode ^ factoryHashCode;
-    }
-
-    /**
-     * Compute hashcode representing the ordered list of URL used by the URLClassLoader.
-     * 
-     * @param urls the array of url to be added
-     * @return a hashcode corresponding to the provided list of URL
-     * @see AddURLtoHash(URL)
-     */
-    private static long getURLHashCode(URL[] urls)
-    {
-        long hash = 0;
-        for( URL url : urls ) {
-            hash = AddURLtoHash( hash, url );
-        }
-        return hash;
-    }
-
-    /**
-     * Compute hashcode representing the provided URL. hashing is done using the PJW
-     * hash function described in The book Compilers (Principles, Techniques and Tools) by Aho, Sethi and Ulman,
-     * optimized for the size of a Java Long.
-     * 
-     * @param url the url to be added
-     * @return a hashcode representing the provided URL.
-     */
-    private static long AddURLtoHash(long hash, URL url)
-    {
-        if( url == null )
-            return hash;
-        
-        long overflow = 0;
-        String urlstr = url.toString();
-        
-        for (int i = 0; i < urlstr.length(); i++) {
-            hash <<= 8;
-            hash += urlstr.charAt(i);
-
-            if ((overflow = hash >> 56) != 0) {
-                hash ^= (overflow << 8);
-                hash &= 0xFFFFFFFFFFFFFFL;
-            }
-        }
-        
-        return hash;
+        return new ClassPathKey(urls, parent, factory).hashCode();
     }
 }
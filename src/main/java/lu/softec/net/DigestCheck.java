@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+/**
+ * Verification made when the last modification date of a jar file has moved, before considering it outdated. This
+ * avoids reloading classes from jar files that have been rewritten with the same content.
+ * 
+ * @see lu.softec.net.DynamicJarURLConnection#setDigestCheck(DigestCheck)
+ */
+public enum DigestCheck
+{
+    /**
+     * No verification, a jar file is outdated as soon as its last modification date moves.
+     */
+    NONE,
+
+    /**
+     * Compare the names, CRC-32 and sizes of the entries recorded in the central directory of the jar file.
+     */
+    CENTRAL_DIRECTORY,
+
+    /**
+     * Compare a SHA-256 digest of the whole jar file.
+     */
+    FULL_DIGEST
+}
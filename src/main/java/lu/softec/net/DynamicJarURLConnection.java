@@ -17,25 +17,26 @@
  */
 package lu.softec.net;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
-import java.net.HttpURLConnection;
 import java.net.JarURLConnection;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.security.Permission;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
  * This a wrapper class of <code>JarURLConnection</code> to properly handle JAR file caching.
@@ -46,25 +47,55 @@ import java.util.jar.JarFile;
  */
 public class DynamicJarURLConnection extends JarURLConnection
 {
-    private static ReadWriteLock jarFilesLock = new ReentrantReadWriteLock();
+    private static volatile boolean mappedReader = false;
 
-    private static Lock jarFilesReadLock = jarFilesLock.readLock();
+    private static volatile DigestCheck digestCheck = DigestCheck.NONE;
 
-    private static Lock jarFilesWriteLock = jarFilesLock.writeLock();
-
-    private static ConcurrentMap<URL, AtomicInteger> jarFileConnections = new ConcurrentHashMap<URL, AtomicInteger>();
+    private static volatile HttpJarStore jarStore = null;
 
     private JarURLConnection delegate;
 
     private URL jarFileURL;
 
-    private boolean connected;
+    private String jarKey;
+
+    private JarReference reference;
+
+    private volatile boolean connected;
+
+    private volatile boolean disconnected;
+
+    private JarRelease release;
 
-    private boolean disconnected;
+    private ReclamationService.Registration registration;
 
     private WeakReference<DynamicURLClassLoader> classLoaderRef = null;
 
-    private long lastmodified;
+    private volatile long lastmodified;
+
+    private String etag;
+
+    private File localFile;
+
+    private JarDigest digest;
+
+    private HttpJarStore.StoredJar storedJar;
+
+    private volatile boolean pooled;
+
+    private volatile boolean watched;
+
+    private JarHandlePool.JarHandle handle;
+
+    private volatile IOException failure;
+
+    private String nestedJarName;
+
+    private String nestedEntryName;
+
+    private MappedJarFile nestedJarFile;
+
+    private long nestedJarLength = -1;
 
     /*
      * @param delegate the JarURLConnection use to delegate requests
@@ -76,11 +107,43 @@ public class DynamicJarURLConnection extends JarURLConnection
     {
         super(delegate.getURL());
         jarFileURL = getJarFileURL();
+        jarKey = jarFileURL.toExternalForm();
         this.delegate = delegate;
         if (classLoader != null)
             this.classLoaderRef = new WeakReference<DynamicURLClassLoader>(classLoader);
     }
 
+    /**
+     * Constructs a connection to a remote jar file served from a local copy kept by an HttpJarStore, or to a jar file
+     * nested in a jar file. The connection keeps the remote URL, and checks its outdated status against the
+     * validators of the stored version. The delegate of a nested jar file is connected to its entry in the outer jar
+     * file, and the connection is counted, checked for staleness and closed with the outer jar file.
+     * 
+     * @param url the URL of the remote or nested jar file entry
+     * @param delegate the JarURLConnection to the local copy or to the outer jar file, use to delegate requests
+     * @param classLoader the classLoader using this connection
+     * @param storedJar the stored version of the remote jar file, or null
+     * @throws MalformedURLException if the URL is not properly formed
+     */
+    DynamicJarURLConnection(URL url, JarURLConnection delegate, DynamicURLClassLoader classLoader,
+        HttpJarStore.StoredJar storedJar) throws MalformedURLException
+    {
+        super(url);
+        jarFileURL = getJarFileURL();
+        // Each stored version is a distinct jar file
+        jarKey = delegate.getJarFileURL().toExternalForm();
+        this.delegate = delegate;
+        this.storedJar = storedJar;
+        String entryName = super.getEntryName();
+        int sep = (entryName != null) ? entryName.indexOf("!/") : -1;
+        if (sep > 0) {
+            nestedJarName = entryName.substring(0, sep);
+            nestedEntryName = (sep + 2 < entryName.length()) ? entryName.substring(sep + 2) : null;
+        }
+        if (classLoader != null)
+            this.classLoaderRef = new WeakReference<DynamicURLClassLoader>(classLoader);
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -89,31 +152,50 @@ public class DynamicJarURLConnection extends JarURLConnection
     @Override
     public void connect() throws IOException
     {
-        if(!connected) {            
-            jarFilesReadLock.lock();
-            AtomicInteger counter = new AtomicInteger(0);
-            AtomicInteger counter2 = jarFileConnections.putIfAbsent(jarFileURL, counter);
-            if (counter2 != null)
-                counter = counter2;
-            counter.incrementAndGet();
+        if(!connected) {
+            JarReference ref = JarReference.acquire(jarKey);
+            File file = ref.isPooled() ? getLocalJarFile() : null;
             try {
-                delegate.connect();
+                if (file != null) {
+                    pooled = true;
+                    connectPooled(file);
+                } else {
+                    delegate.connect();
+                }
+                if (mappedReader || nestedJarName != null)
+                    mapJarFile(ref);
+                if (nestedJarName != null)
+                    connectNested(ref);
             } catch(IOException e) {
-                if (counter.decrementAndGet() == 0) {
-                    jarFilesReadLock.unlock();
-                    jarFilesWriteLock.lock();
-                    if (counter.get() == 0) {
-                        jarFileConnections.remove(jarFileURL);
-                    }
-                    jarFilesReadLock.lock();
-                    jarFilesWriteLock.unlock();
+                failure = e;
+                if (handle != null) {
+                    handle.dispose();
+                    handle = null;
                 }
+                if (ref.release())
+                    ref.closed();
                 return;
-            } finally {
-                jarFilesReadLock.unlock();
-            }            
+            }
+            failure = null;
+            reference = ref;
+            release = new JarRelease(jarKey, ref, delegate, handle);
+            registration = ReclamationService.getDefault().register(this, release);
             connected = true;
-            lastmodified = delegate.getLastModified();
+            if (storedJar != null) {
+                lastmodified = storedJar.getLastModified();
+                etag = storedJar.getETag();
+            } else if (isHttp()) {
+                lastmodified = delegate.getLastModified();
+                etag = delegate.getHeaderField("ETag");
+            } else if (pooled) {
+                lastmodified = handle.getLastModified();
+            } else {
+                lastmodified = delegate.getLastModified();
+            }
+            if (!isHttp() && digestCheck != DigestCheck.NONE) {
+                localFile = getLocalFile();
+                digest = JarDigest.get(jarFileURL, localFile, lastmodified, digestCheck);
+            }
         } else if( disconnected ) {
             throw new IllegalStateException("Already disconnected");
         }
@@ -121,31 +203,283 @@ public class DynamicJarURLConnection extends JarURLConnection
 
     /**
      * Close connection and allow file resource to be released and therefore remove from the jar cache. The temporary
-     * file will be deleted and the next time this jar is requested, it will be fetched again from the server.
+     * file will be deleted and the next time this jar is requested, it will be fetched again from the server. A
+     * connection that becomes unreachable without being closed is closed by the ReclamationService.
      * @return true if the file has been really closed.
      * @throws java.io.IOException when an I/O error occurs during operation
      */
     public boolean close() throws IOException
     {
         if (!isConnected()) {
-            return (jarFileConnections.get(jarFileURL) == null);
+            return (JarReference.get(jarKey) == null);
         }
 
         disconnected = true;
-        AtomicInteger counter = jarFileConnections.get(jarFileURL);
-        if (counter != null && counter.decrementAndGet() == 0) {
-            jarFilesWriteLock.lock();
-            try {
-                if (counter.get() == 0) {
-                    delegate.getJarFile().close();
-                    jarFileConnections.remove(jarFileURL);
-                    return true;
-                }
-            } finally {
-                jarFilesWriteLock.unlock();
+        registration.unregister();
+        return release.release();
+    }
+
+    /**
+     * @return true if jar files are memory-mapped when connecting
+     */
+    public static boolean isMappedReader()
+    {
+        return mappedReader;
+    }
+
+    /**
+     * Enable or disable the memory-mapped reader. When enabled, unsigned jar files are also memory-mapped when
+     * connecting, and entries are read from the mapping instead of the <code>JarFile</code>. The mapping is shared by
+     * all connections to the same jar file, and released when the last of them is closed. It only affects
+     * connections made after the change.
+     * 
+     * @param enabled true to memory-map jar files
+     */
+    public static void setMappedReader(boolean enabled)
+    {
+        mappedReader = enabled;
+    }
+
+    /**
+     * @return the verification made when the last modification date of a local jar file has moved
+     */
+    public static DigestCheck getDigestCheck()
+    {
+        return digestCheck;
+    }
+
+    /**
+     * Define the verification made when the last modification date of a local jar file has moved. Unless NONE, a
+     * digest of each local jar file is taken when connecting, and compared to a new digest when its last modification
+     * date moves, so a jar file rewritten with the same content is not considered outdated. It only affects
+     * connections made after the change. Jar files retrieved through http are revalidated using their ETag instead.
+     * 
+     * @param check the verification to be made
+     * @see lu.softec.net.DigestCheck
+     */
+    public static void setDigestCheck(DigestCheck check)
+    {
+        if (check == null)
+            throw new IllegalArgumentException("Check should not be null");
+        digestCheck = check;
+    }
+
+    /**
+     * @return the store keeping local copies of remote jar files, or null if none
+     */
+    public static HttpJarStore getJarStore()
+    {
+        return jarStore;
+    }
+
+    /**
+     * Define a store that keeps local copies of remote jar files retrieved through http. Remote jar files are then
+     * downloaded once per version, and connections are served from the local copy. It only affects connections made
+     * after the change.
+     * 
+     * @param store the store to use, or null to always retrieve remote jar files from their server
+     */
+    public static void setJarStore(HttpJarStore store)
+    {
+        jarStore = store;
+    }
+
+    /**
+     * Memory-map the jar file of this connection, unless already done by another connection. The mapping of a pooled
+     * jar file is shared by the connections to the same version of the jar file. On failure, entries are simply read
+     * from the <code>JarFile</code>.
+     * 
+     * @param ref the reference of the jar file held by this connection
+     */
+    private void mapJarFile(JarReference ref)
+    {
+        if ((handle != null) ? handle.getMappedJarFile() != null : ref.getMappedJarFile() != null)
+            return;
+        try {
+            MappedJarFile mapped = MappedJarFile.open(getLocalFile());
+            if (!((handle != null) ? handle.setMappedJarFile(mapped) : ref.setMappedJarFile(mapped))) {
+                mapped.close();
+            } else if (mapped.isSigned()) {
+                // Kept as a marker to avoid mapping it again
+                mapped.close();
             }
+        } catch (IOException e) {
         }
-        return false;
+    }
+
+    /**
+     * Open the reader of the nested jar file of this connection, from the mapping of the outer jar file, and check
+     * that the entry of this connection exists. Nested jar files of signed jar files are not supported.
+     * 
+     * @param ref the reference of the outer jar file held by this connection
+     * @throws IOException if the nested jar file could not be read or does not contain the entry
+     */
+    private void connectNested(JarReference ref) throws IOException
+    {
+        MappedJarFile outer = (handle != null) ? handle.getMappedJarFile() : ref.getMappedJarFile();
+        if (outer == null || outer.isSigned())
+            throw new IOException("Nested jar file not readable: " + getURL());
+        int i = outer.getEntry(nestedJarName);
+        if (i < 0)
+            throw new FileNotFoundException("JAR entry " + nestedJarName + " not found in " + jarFileURL);
+        nestedJarFile = outer.getNestedJarFile(i);
+        nestedJarLength = outer.getSize(i);
+        if (nestedEntryName != null && nestedJarFile.getEntry(nestedEntryName) < 0)
+            throw new FileNotFoundException("JAR entry " + nestedEntryName + " not found in " + nestedJarName);
+    }
+
+    /**
+     * Connect through the default JarHandlePool, sharing the handle of the jar file with the other connections to
+     * the same version of the jar file. Like the delegate, check that the entry of this connection exists.
+     * 
+     * @param file the local jar file
+     * @throws IOException if the jar file could not be opened or does not contain the entry
+     */
+    private void connectPooled(File file) throws IOException
+    {
+        handle = JarHandlePool.getDefault().retain(file);
+        String entryName = delegate.getEntryName();
+        JarFile jarFile = handle.acquire();
+        try {
+            if (entryName != null && jarFile.getEntry(entryName) == null)
+                throw new FileNotFoundException("JAR entry " + entryName + " not found in " + jarFile.getName());
+        } finally {
+            handle.release();
+        }
+    }
+
+    /**
+     * @return the local jar file of the delegate, or null if the jar file is not a local file
+     */
+    private File getLocalJarFile()
+    {
+        URL url = delegate.getJarFileURL();
+        if (!"file".equals(url.getProtocol()))
+            return null;
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the opened local jar file
+     * @throws IOException if the jar file could not be opened
+     */
+    private File getLocalFile() throws IOException
+    {
+        if (handle != null)
+            return handle.getFile();
+        return new File(delegate.getJarFile().getName());
+    }
+
+    /**
+     * @return the pooled handle of the jar file of this connection
+     * @throws IOException if this connection is not connected
+     */
+    private JarHandlePool.JarHandle getJarHandle() throws IOException
+    {
+        if (!isConnected()) {
+            IOException e = failure;
+            throw (e != null) ? e : new IOException("Not connected: " + getURL());
+        }
+        return handle;
+    }
+
+    /**
+     * Acquire the jar file of this connection for a short use, without registering this connection with its class
+     * loader. Each call should be followed by a call to <code>releaseJarFile()</code>, and the jar file should not be
+     * used after it, since an idle pooled jar file may be closed and opened again later.
+     * 
+     * @return the opened jar file
+     * @throws IOException if the jar file could not be opened
+     * @see lu.softec.net.JarHandlePool
+     */
+    JarFile acquireJarFile() throws IOException
+    {
+        connect();
+        if (pooled)
+            return getJarHandle().acquire();
+        return delegate.getJarFile();
+    }
+
+    /**
+     * Release the jar file acquired by <code>acquireJarFile()</code>.
+     */
+    void releaseJarFile()
+    {
+        if (pooled && isConnected())
+            handle.release();
+    }
+
+    /**
+     * Register this connection with its class loader, so its jar file is checked for staleness and closed when the
+     * class loader is stopped.
+     */
+    void register()
+    {
+        if (classLoaderRef != null) {
+            DynamicURLClassLoader classLoader = classLoaderRef.get();
+            if (classLoader != null)
+                classLoader.register(this);
+        }
+    }
+
+    /**
+     * @return true if the jar file of this connection is followed by the JarWatcher of its class loader, so it does not
+     *         need to be checked for staleness
+     */
+    boolean isWatched()
+    {
+        return watched;
+    }
+
+    /**
+     * Record whether the jar file of this connection is followed by the JarWatcher of its class loader. It is set once
+     * when the connection is registered, or when the class loader gets its watcher.
+     * 
+     * @param watched true if the jar file is watched
+     */
+    void setWatched(boolean watched)
+    {
+        this.watched = watched;
+    }
+
+    /**
+     * @return the memory-mapped reader of the jar file of this connection, or null if not available. For a nested jar
+     *         file, it is the reader of the nested jar file, whose signatures are never verified.
+     */
+    MappedJarFile getMappedJarFile()
+    {
+        if (!isConnected())
+            return null;
+        if (nestedJarFile != null)
+            return nestedJarFile;
+        MappedJarFile mapped = (handle != null) ? handle.getMappedJarFile() : reference.getMappedJarFile();
+        return (mapped != null && !mapped.isSigned()) ? mapped : null;
+    }
+
+    /**
+     * {@inheritDoc} For a nested jar file, it is the name of the entry in the nested jar file.
+     * 
+     * @see java.net.JarURLConnection#getEntryName()
+     */
+    @Override
+    public String getEntryName()
+    {
+        return (nestedJarName != null) ? nestedEntryName : super.getEntryName();
+    }
+
+    /**
+     * @return the name of the entry of the outer jar file containing the nested jar file of this connection, or null
+     *         if the jar file of this connection is not nested
+     */
+    public String getNestedJarName()
+    {
+        return nestedJarName;
     }
 
     /**
@@ -161,7 +495,7 @@ public class DynamicJarURLConnection extends JarURLConnection
      */
     public boolean isClosed()
     {
-        return jarFileConnections.containsKey(jarFileURL);
+        return (JarReference.get(jarKey) == null);
     }
 
     /**
@@ -169,57 +503,178 @@ public class DynamicJarURLConnection extends JarURLConnection
      */
     public int connectionsCount()
     {
-        AtomicInteger counter = jarFileConnections.get(jarFileURL);
-        if (counter != null)
-            return counter.intValue();
+        JarReference ref = JarReference.get(jarKey);
+        if (ref != null)
+            return ref.getCount();
         return 0;
     }
 
+    /**
+     * @return the number of connections that has currently open each Jar File, by Jar File URL
+     */
+    static Map<String, Integer> getConnectionCounts()
+    {
+        return JarReference.getCounts();
+    }
+
     /**
      * Check if the last modification date of the jar file associated to this connection is newer than the cached jar
-     * file currently in use. For file retrieve through http connection, only a head connection is made, and the server
-     * is expected to provide an appropriate last-modified header.
+     * file currently in use. For file retrieve through http connection, a conditional head connection is made using
+     * the ETag and last-modified headers through the default HttpJarRevalidator, which also limits the frequency of
+     * these requests. For local files, when a digest check is enabled, the content of the jar file is also compared to
+     * the digest taken when connecting, and the new last modification date is adopted when the content is the same.
      * 
      * @return true if the last modification date of the remote jar file is newer that the cached jar file used. For a
-     *         not connected connection, return false. If any error occurs during date retrieval, return true.
+     *         not connected connection, return false. If any error occurs during date retrieval, return true, except
+     *         for http connections which are then considered up to date.
+     * @see lu.softec.net.HttpJarRevalidator
+     * @see lu.softec.net.JarConnectionStatistics
+     * @see #setDigestCheck(DigestCheck)
      */
     public boolean isOutdated()
     {
         if (!connected)
             return false;
 
-        long lastmodified;
+        long start = System.nanoTime();
         try {
-            URLConnection uc = jarFileURL.openConnection();
-            if (uc instanceof HttpURLConnection) {
-                HttpURLConnection httpuc = (HttpURLConnection) uc;
-                httpuc.setRequestMethod("HEAD");
-                lastmodified = httpuc.getLastModified();
-            } else {
-                lastmodified = uc.getLastModified();
+            return checkOutdated();
+        } finally {
+            JarConnectionStatistics.getInstance().stalenessChecked(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return true if the last modification date of the remote jar file is newer that the cached jar file used
+     */
+    private boolean checkOutdated()
+    {
+        if (isHttp())
+            return HttpJarRevalidator.getDefault().isOutdated(jarFileURL, this.lastmodified, etag);
+
+        long lastmodified;
+        if (pooled) {
+            if (handle.isChanged())
+                return true;
+            lastmodified = handle.getFile().lastModified();
+        } else {
+            try {
+                URLConnection uc = jarFileURL.openConnection();
+                // Use the header like the delegate does, some connections report a more precise date otherwise
+                lastmodified = uc.getHeaderFieldDate("last-modified", 0);
+            } catch (IOException e) {
+                return true;
             }
-        } catch (IOException e) {
-            lastmodified = Long.MAX_VALUE;
         }
-        return (lastmodified > this.lastmodified);
+        if (lastmodified <= this.lastmodified)
+            return false;
+        if (digest == null)
+            return true;
+
+        // Only the last modification date moved when the content is the same
+        if (!digest.isSameContent(JarDigest.get(jarFileURL, localFile, lastmodified, digest.getMode())))
+            return true;
+        this.lastmodified = lastmodified;
+        JarConnectionStatistics.getInstance().reloadSuppressed();
+        return false;
     }
 
     /**
-     * {@inheritDoc}
-     * 
-     * @see java.lang.Object#finalize()
+     * @return a key identifying the version of the jar file used by this connection. Connections sharing the same key
+     *         are always outdated together.
      */
-    @Override
-    protected void finalize() throws Throwable
+    String getVersionKey()
+    {
+        return jarFileURL.toExternalForm() + '#' + lastmodified + '#' + etag;
+    }
+
+    /**
+     * @return true if the jar file of this connection is retrieved through http
+     */
+    private boolean isHttp()
+    {
+        String protocol = jarFileURL.getProtocol();
+        return ("http".equals(protocol) || "https".equals(protocol));
+    }
+
+    /**
+     * Release of the jar file held by a connection, run when the connection is closed or becomes unreachable. It does
+     * not refer to the connection itself.
+     */
+    private static final class JarRelease implements Runnable
     {
-        close();
-        super.finalize();
+        private final String jarKey;
+
+        private final JarReference reference;
+
+        private final JarURLConnection delegate;
+
+        private final JarHandlePool.JarHandle handle;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private final AtomicInteger pins = new AtomicInteger();
+
+        JarRelease(String jarKey, JarReference reference, JarURLConnection delegate, JarHandlePool.JarHandle handle)
+        {
+            this.jarKey = jarKey;
+            this.reference = reference;
+            this.delegate = delegate;
+            this.handle = handle;
+        }
+
+        /**
+         * Release the jar file, once, closing it if this was its last holder.
+         * 
+         * @return true if the jar file is closed
+         * @throws IOException when an I/O error occurs during closing
+         */
+        boolean release() throws IOException
+        {
+            if (!released.compareAndSet(false, true))
+                return (JarReference.get(jarKey) == null);
+            if (handle != null) {
+                for (int i = pins.getAndSet(0); i > 0; i--) {
+                    handle.release();
+                }
+                handle.dispose();
+            }
+            if (reference.release()) {
+                try {
+                    if (handle == null)
+                        delegate.getJarFile().close();
+                } finally {
+                    reference.closed();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Record that a pooled jar file has been handed out by <code>getJarFile()</code>, and should be kept opened
+         * until the release.
+         */
+        void pinned()
+        {
+            pins.incrementAndGet();
+        }
+
+        public void run()
+        {
+            try {
+                if (release())
+                    ReclamationService.getDefault().handlesReclaimed(1);
+            } catch (IOException e) {
+            }
+        }
     }
 
     /*** Connecting required for these function ***/
 
     /**
-     * {@inheritDoc}
+     * {@inheritDoc} For a nested jar file, which is not available as a <code>JarFile</code>, the outer jar file is
+     * returned.
      * 
      * @see java.net.JarURLConnection#getJarFile()
      */
@@ -227,14 +682,34 @@ public class DynamicJarURLConnection extends JarURLConnection
     public JarFile getJarFile() throws IOException
     {
         connect();
-        if (classLoaderRef != null) {
-            DynamicURLClassLoader classLoader = classLoaderRef.get();
-            if (classLoader != null)
-                classLoader.register(this);
+        register();
+        if (pooled) {
+            JarFile jarFile = getJarHandle().acquire();
+            // Handed out, so kept opened until this connection is closed
+            release.pinned();
+            return jarFile;
         }
         return delegate.getJarFile();
     }
 
+    /**
+     * {@inheritDoc} For a nested jar file, it is the manifest of the nested jar file.
+     * 
+     * @see java.net.JarURLConnection#getManifest()
+     */
+    @Override
+    public Manifest getManifest() throws IOException
+    {
+        connect();
+        if (nestedJarFile != null) {
+            int i = nestedJarFile.getEntry(JarFile.MANIFEST_NAME);
+            if (i < 0)
+                return null;
+            return new Manifest(new ByteArrayInputStream(getBytes(nestedJarFile, i)));
+        }
+        return super.getManifest();
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -244,6 +719,29 @@ public class DynamicJarURLConnection extends JarURLConnection
     public JarEntry getJarEntry() throws IOException
     {
         connect();
+        if (nestedJarFile != null) {
+            String entryName = getEntryName();
+            int i = (entryName != null) ? nestedJarFile.getEntry(entryName) : -1;
+            if (i < 0)
+                return null;
+            JarEntry entry = new JarEntry(entryName);
+            entry.setMethod(nestedJarFile.getMethod(i));
+            entry.setSize(nestedJarFile.getSize(i));
+            entry.setCrc(nestedJarFile.getCrc(i));
+            return entry;
+        }
+        if (pooled) {
+            String entryName = getEntryName();
+            if (entryName == null)
+                return null;
+            JarHandlePool.JarHandle handle = getJarHandle();
+            JarFile jarFile = handle.acquire();
+            try {
+                return jarFile.getJarEntry(entryName);
+            } finally {
+                handle.release();
+            }
+        }
         return delegate.getJarEntry();
     }
 
@@ -256,9 +754,76 @@ public class DynamicJarURLConnection extends JarURLConnection
     public InputStream getInputStream() throws IOException
     {
         connect();
+        MappedJarFile mapped = getMappedJarFile();
+        String entryName = getEntryName();
+        if (mapped != null && entryName != null) {
+            int i = mapped.getEntry(entryName);
+            if (i >= 0)
+                return new ByteArrayInputStream(getBytes(mapped, i));
+        }
+        if (nestedJarFile != null) {
+            if (entryName == null)
+                throw new IOException("no entry name specified");
+            throw new FileNotFoundException("JAR entry " + entryName + " not found in " + nestedJarName);
+        }
+        if (pooled)
+            return new ByteArrayInputStream(getBytes(getJarHandle(), entryName));
         return delegate.getInputStream();
     }
 
+    /**
+     * Read the content of an entry from a pooled jar file, which is only held while reading.
+     * 
+     * @param handle the pooled handle of the jar file of this connection
+     * @param entryName the name of the entry
+     * @return the content of the entry
+     * @throws IOException if the entry could not be read
+     */
+    private byte[] getBytes(JarHandlePool.JarHandle handle, String entryName) throws IOException
+    {
+        if (entryName == null)
+            throw new IOException("no entry name specified");
+        JarFile jarFile = handle.acquire();
+        try {
+            JarEntry entry = jarFile.getJarEntry(entryName);
+            if (entry == null)
+                throw new FileNotFoundException("JAR entry " + entryName + " not found in " + jarFile.getName());
+            InputStream in = jarFile.getInputStream(entry);
+            try {
+                return DynamicURLClassLoader.readFully(in, (int) entry.getSize());
+            } finally {
+                in.close();
+            }
+        } finally {
+            handle.release();
+        }
+    }
+
+    /**
+     * Read the content of an entry of the jar file of this connection, through the default EntryContentCache when
+     * the entry is compressed.
+     * 
+     * @param mapped the memory-mapped reader of the jar file of this connection
+     * @param i the index of the entry
+     * @return the content of the entry
+     * @throws IOException if the entry could not be read
+     */
+    byte[] getBytes(MappedJarFile mapped, int i) throws IOException
+    {
+        if (mapped.getMethod(i) == 0)
+            return mapped.getBytes(i);
+        EntryContentCache cache = EntryContentCache.getDefault();
+        String name = mapped.getName(i);
+        // Entries of a nested jar file are cached under the URL of the nested jar file
+        URL url = (nestedJarName != null) ? delegate.getURL() : jarFileURL;
+        ByteBuffer content = cache.get(url, name, mapped.getCrc(i), mapped.getSize(i));
+        if (content != null)
+            return EntryContentCache.toBytes(content);
+        byte[] bytes = mapped.getBytes(i);
+        cache.put(url, name, mapped.getCrc(i), bytes);
+        return bytes;
+    }
+
     /**
      * {@inheritDoc}
      * 
@@ -268,6 +833,8 @@ public class DynamicJarURLConnection extends JarURLConnection
     public Object getContent() throws IOException
     {
         connect();
+        if (pooled || nestedJarFile != null)
+            return (getEntryName() == null) ? getJarFile() : getInputStream();
         return delegate.getContent();
     }
 
@@ -295,7 +862,21 @@ public class DynamicJarURLConnection extends JarURLConnection
     {
         try {
             connect();
+            if (nestedJarFile != null) {
+                if (getEntryName() == null)
+                    return nestedJarLength;
+                JarEntry entry = getJarEntry();
+                return (entry != null) ? entry.getSize() : -1;
+            }
+            if (pooled) {
+                if (getEntryName() == null)
+                    return getJarHandle().getFile().length();
+                JarEntry entry = getJarEntry();
+                return (entry != null) ? entry.getSize() : -1;
+            }
         } catch (IOException e) {
+            if (pooled || nestedJarName != null)
+                return -1;
         }
         return delegate.getContentLength();
     }
@@ -308,12 +889,19 @@ public class DynamicJarURLConnection extends JarURLConnection
     @Override
     public String getContentType()
     {
-        if (getEntryName() != null) {
+        String entryName = getEntryName();
+        if (entryName != null) {
             try {
                 connect();
             } catch (IOException e) {
                 // don't do anything
             }
+            if (pooled || nestedJarFile != null) {
+                String contentType = guessContentTypeFromName(entryName);
+                return (contentType != null) ? contentType : "content/unknown";
+            }
+        } else if (nestedJarName != null) {
+            return "x-java/jar";
         }
         return delegate.getContentType();
     }
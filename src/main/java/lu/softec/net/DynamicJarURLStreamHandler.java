@@ -22,13 +22,15 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.JarURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
 
 /**
  * This is wrapper class of <code>URLStreamHandler</code> for the jar protocol that allow fine grained control over
- * jar caching and closing.
+ * jar caching and closing. It also resolves URLs of jar files nested in a jar file, like
+ * <code>jar:file:/app.jar!/lib/x.jar!/p/A.class</code>, reading the nested jar file in place from the outer one.
  * 
  * @author Denis Gervalle (support@softec.lu)
  * @see lu.softec.net.DynamicURLStreamHandlerFactory
@@ -38,7 +40,6 @@ class DynamicJarURLStreamHandler extends URLStreamHandler
 {
     private URLStreamHandler handler;
     private Method openConnection = null;
-    private Method parseURL = null;
 
     private WeakReference<DynamicURLClassLoader> classLoaderRef = null;
 
@@ -57,21 +58,38 @@ class DynamicJarURLStreamHandler extends URLStreamHandler
         this.handler = handler;
         try {
             this.openConnection = handler.getClass().getDeclaredMethod("openConnection", new Class[] {URL.class});
-            this.parseURL =
-                handler.getClass().getDeclaredMethod("parseURL",
-                    new Class[] {URL.class, String.class, Integer.class, Integer.class});
         } catch (NoSuchMethodException e) {
         }
         if (this.openConnection != null)
             this.openConnection.setAccessible(true);
-        if (this.parseURL != null)
-            this.parseURL.setAccessible(true);
+    }
+
+    /**
+     * @param url an URL
+     * @return true if the URL refers to a jar file nested in a jar file, like
+     *         <code>jar:file:/app.jar!/lib/x.jar!/</code>
+     */
+    static boolean isNested(URL url)
+    {
+        return "jar".equals(url.getProtocol()) && getNestedSeparator(url.getFile()) > 0;
+    }
+
+    /**
+     * @param file the file part of a jar URL
+     * @return the position of the separator following the name of a nested jar file, or -1 if not nested
+     */
+    private static int getNestedSeparator(String file)
+    {
+        int sep = file.indexOf("!/");
+        return (sep > 0) ? file.indexOf("!/", sep + 2) : -1;
     }
 
     /**
      * Opens a connection to the object referenced by the <code>URL</code> argument using the wrapped jar handler and
      * set the UseCaches field of the created <code>URLConnection</code> to false to avoid reusage of JarFile. Also keep
-     * track of this URLConnection to be able to close the created Jar file on request.
+     * track of this URLConnection to be able to close the created Jar file on request. When an HttpJarStore is
+     * defined, remote jar files retrieved through http are opened from their local copy. The wrapped connection of a
+     * nested jar file is made to its entry in the outer jar file.
      * 
      * @param u the URL that this connects to.
      * @return a <code>URLConnection</code> object for the <code>URL</code>.
@@ -83,11 +101,34 @@ class DynamicJarURLStreamHandler extends URLStreamHandler
         JarURLConnection uc = null;
         try {
             if (this.openConnection != null) {
-                uc = (JarURLConnection) this.openConnection.invoke(handler, u);
                 DynamicURLClassLoader classLoader = null;
                 if (classLoaderRef != null)
                     classLoader = classLoaderRef.get();
 
+                String file = u.getFile();
+                int nested = getNestedSeparator(file);
+                if (nested > 0)
+                    file = file.substring(0, nested);
+
+                HttpJarStore store = DynamicJarURLConnection.getJarStore();
+                int sep = file.indexOf("!/");
+                if (store != null && sep > 0) {
+                    URL jarFileURL = new URL(file.substring(0, sep));
+                    String protocol = jarFileURL.getProtocol();
+                    if (protocol.equals("http") || protocol.equals("https")) {
+                        HttpJarStore.StoredJar storedJar = store.get(jarFileURL);
+                        URL local = new URL("jar", "", -1,
+                            storedJar.getFile().toURI().toURL().toExternalForm() + file.substring(sep), this);
+                        uc = (JarURLConnection) this.openConnection.invoke(handler, local);
+                        return new DynamicJarURLConnection(u, uc, classLoader, storedJar);
+                    }
+                }
+
+                if (nested > 0) {
+                    uc = (JarURLConnection) this.openConnection.invoke(handler, new URL("jar", "", -1, file, this));
+                    return new DynamicJarURLConnection(u, uc, classLoader, null);
+                }
+                uc = (JarURLConnection) this.openConnection.invoke(handler, u);
                 uc = new DynamicJarURLConnection(uc, classLoader);
             }
         } catch (IllegalArgumentException e) {
@@ -98,13 +139,13 @@ class DynamicJarURLStreamHandler extends URLStreamHandler
     }
 
     /**
-     * Parses the string representation of a <code>URL</code> into a <code>URL</code> object.
+     * Parses the string representation of a <code>URL</code> into a <code>URL</code> object, like the jar handler of
+     * the JRE does. The wrapped handler could not be used, since a handler is only allowed to set the fields of its own
+     * URLs.
      * <p>
-     * If there is any inherited context, then it has already been copied into the <code>URL</code> argument.
-     * <p>
-     * The <code>parseURL</code> method of <code>URLStreamHandler</code> parses the string representation as if it were
-     * an <code>http</code> specification. Most URL protocol families have a similar parsing. A stream protocol handler
-     * for a protocol that has a different syntax must override this routine.
+     * If there is any inherited context, then it has already been copied into the <code>URL</code> argument. A
+     * relative specification is resolved against the last jar file of the context, so resources of a nested jar file
+     * are resolved inside it.
      * 
      * @param u the <code>URL</code> to receive the result of parsing the spec.
      * @param spec the <code>String</code> representing the URL that must be parsed.
@@ -112,16 +153,84 @@ class DynamicJarURLStreamHandler extends URLStreamHandler
      *            one) that specifies the determination of the protocol name.
      * @param limit the character position to stop parsing at. This is the end of the string or the position of the "
      *            <code>#</code>" character, if present. All information after the sharp sign indicates an anchor.
+     * @throws IllegalArgumentException if the spec is not a valid jar URL
      */
     protected void parseURL(URL u, String spec, int start, int limit)
     {
-        try {
-            if (this.parseURL != null)
-                this.parseURL.invoke(handler, u, start, limit);
-        } catch (IllegalArgumentException e) {
-        } catch (IllegalAccessException e) {
-        } catch (InvocationTargetException e) {
+        String file = null;
+        String ref = null;
+        int refPos = spec.indexOf('#', limit);
+        boolean refOnly = (refPos == start);
+        if (refPos > -1) {
+            ref = spec.substring(refPos + 1);
+            if (refOnly)
+                file = u.getFile();
+        }
+
+        boolean absolute = spec.regionMatches(true, 0, "jar:", 0, 4);
+        spec = spec.substring(start, limit);
+        if (absolute) {
+            int bangSlash = indexOfBangSlash(spec);
+            if (bangSlash < 0)
+                throw new IllegalArgumentException("no !/ in spec");
+            try {
+                new URL(spec.substring(0, bangSlash - 1));
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("invalid url: " + spec + " (" + e + ")");
+            }
+            file = spec;
+        } else if (!refOnly) {
+            String context = u.getFile();
+            if (spec.startsWith("/")) {
+                int bangSlash = indexOfBangSlash(context);
+                if (bangSlash < 0)
+                    throw new IllegalArgumentException("malformed context url: " + u + ": no !/");
+                context = context.substring(0, bangSlash);
+            } else {
+                int lastSlash = context.lastIndexOf('/');
+                if (lastSlash < 0)
+                    throw new IllegalArgumentException("malformed context url: " + u);
+                context = context.substring(0, lastSlash + 1);
+            }
+            file = context + spec;
+            int bangSlash = indexOfBangSlash(file);
+            file = file.substring(0, bangSlash) + canonize(file.substring(bangSlash));
+        }
+        setURL(u, "jar", "", -1, null, null, file, null, ref);
+    }
+
+    /**
+     * @param spec the file part of a jar URL
+     * @return the position of the slash of the last "!/" separator, or -1 if none
+     */
+    private static int indexOfBangSlash(String spec)
+    {
+        int bang = spec.lastIndexOf("!/");
+        return (bang >= 0) ? bang + 1 : -1;
+    }
+
+    /**
+     * @param path the path of an entry, starting with a slash
+     * @return the path without its "." and ".." segments
+     */
+    private static String canonize(String path)
+    {
+        int i;
+        while ((i = path.indexOf("/../")) >= 0) {
+            int lim = path.lastIndexOf('/', i - 1);
+            path = (lim >= 0) ? path.substring(0, lim) + path.substring(i + 3) : path.substring(i + 3);
+        }
+        while ((i = path.indexOf("/./")) >= 0) {
+            path = path.substring(0, i) + path.substring(i + 2);
+        }
+        while (path.endsWith("/..")) {
+            i = path.length() - 3;
+            int lim = path.lastIndexOf('/', i - 1);
+            path = (lim >= 0) ? path.substring(0, lim + 1) : path.substring(0, i);
         }
+        if (path.endsWith("/."))
+            path = path.substring(0, path.length() - 1);
+        return path;
     }
 
     /**
@@ -17,37 +17,141 @@
  */
 package lu.softec.net;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
 import java.net.URLStreamHandlerFactory;
+import java.nio.ByteBuffer;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
  * This class loader is a wrapper around the classical <code>URLClassLoader</code> that permits to control the usage of
  * the cache settings of URLConnection during class loading. Called the same way as an URLCacheLoader, it defaults to
- * disabling cache usage when loading classes from URLs.
+ * disabling cache usage when loading classes from URLs. This class loader is parallel capable, classes are loaded
+ * concurrently while holding a lock per class name. Jar files nested in a jar file could be added to the class path
+ * using URLs like <code>jar:file:/app.jar!/lib/x.jar!/</code>, and are read in place from the outer jar file.
  * 
  * @author Denis Gervalle (support@softec.lu)
  * @see java.net.URLClassLoader
  */
 public class DynamicURLClassLoader extends URLClassLoader
 {
+    static {
+        registerAsParallelCapable();
+    }
+
     DynamicURLStreamHandlerFactory factory = null;
 
     private Collection<DynamicJarURLConnection> connections = new ConcurrentLinkedQueue<DynamicJarURLConnection>();
 
-    private boolean stopped = false;
+    private volatile boolean stopped = false;
+
+    private final AtomicBoolean outdated = new AtomicBoolean();
+
+    private volatile JarWatcher watcher = null;
+
+    private volatile boolean indexed = false;
+
+    private volatile ClassPathIndex index = null;
+
+    private ClassPathIndex previousIndex = null;
+
+    private final Lock indexLock = new ReentrantLock();
+
+    private final ClassLoaderMetrics metrics;
+
+    private volatile LookupCache lookupCache = null;
+
+    private volatile ClassTransformerChain transformerChain = null;
+
+    private final Set<String> definedClasses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final long created = System.nanoTime();
+
+    private volatile List<ClassLoaderListener> listeners = Collections.emptyList();
+
+    private final ConnectionsRelease release;
+
+    private volatile long stopSince = 0;
+
+    private final Set<String> stopClosed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicBoolean stopCompleted = new AtomicBoolean();
 
     DynamicURLClassLoader(URL[] urls, ClassLoader parent, DynamicURLStreamHandlerFactory factory)
     {
-        super(urls, parent, factory);
+        super(bind(urls, factory), parent, factory);
+        this.factory = factory;
+        this.metrics = new ClassLoaderMetrics(urls);
+        this.release = new ConnectionsRelease(connections, metrics, created);
+        ReclamationService.getDefault().register(this, release);
         factory.setClassLoader(this);
     }
 
+    /**
+     * Bind the URLs of nested jar files to the jar handler of the given factory, since the jar handler of the JRE does
+     * not resolve resources inside them.
+     * 
+     * @param urls the URLs of a class path
+     * @param factory the factory of the class loader
+     * @return the URLs of the class path, bound to the jar handler of the factory when nested
+     */
+    private static URL[] bind(URL[] urls, DynamicURLStreamHandlerFactory factory)
+    {
+        URL[] result = urls;
+        for (int i = 0; i < urls.length; i++) {
+            if (urls[i] != null && DynamicJarURLStreamHandler.isNested(urls[i])) {
+                if (result == urls)
+                    result = urls.clone();
+                result[i] = bind(urls[i], factory.createURLStreamHandler("jar"));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param url an URL of a class path
+     * @param jarHandler the jar handler of the class loader
+     * @return the URL bound to the jar handler when it refers to a nested jar file, else the URL itself
+     */
+    private static URL bind(URL url, URLStreamHandler jarHandler)
+    {
+        if (url == null || jarHandler == null || !DynamicJarURLStreamHandler.isNested(url))
+            return url;
+        try {
+            return new URL("jar", "", -1, url.getFile(), jarHandler);
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+
     /**
      * Constructs a new DynamicURLClassLoader for the specified URLs using the default delegation parent
      * <code>ClassLoader</code>. URLs will be handle using a DynamicJarURLStreamHandler that disable usage of caches by
@@ -104,12 +208,352 @@ public class DynamicURLClassLoader extends URLClassLoader
         this(urls, parent, new DynamicURLStreamHandlerFactory(factory));
     }
 
+    /**
+     * @return true if lookups of this class loader use a package index of its jar files
+     */
+    public boolean isIndexed()
+    {
+        return indexed;
+    }
+
+    /**
+     * Enable or disable the package index of this class loader. When enabled, the jar files of the class path are
+     * opened on the first lookup to build an index of their packages, and each class or resource is then only looked
+     * up in the jar files containing its package. Looking up a missing class or resource does not require any jar
+     * file access. The index is not used when the class path contains directories, or jar files whose manifest
+     * declares a Class-Path.
+     * 
+     * @param indexed true to use a package index for lookups
+     */
+    public void setIndexed(boolean indexed)
+    {
+        this.indexed = indexed;
+    }
+
+    /**
+     * @return the maximum number of lookup results cached by this class loader, 0 if lookups are not cached
+     */
+    public int getLookupCacheSize()
+    {
+        LookupCache cache = lookupCache;
+        return (cache != null) ? cache.getCapacity() : 0;
+    }
+
+    /**
+     * Enable or disable the caching of lookup results. When enabled, the classes and resources not found by this
+     * class loader, and the URLs of the resources found, are remembered, so repeated lookups do not scan the jar files
+     * again. Classes found are not cached since they are already remembered once defined. Note that classes and
+     * resources added later to a directory of the class path will not be found if they were looked up before.
+     * 
+     * @param size the maximum number of lookup results cached, the oldest results being evicted first, or 0 to
+     *            disable caching
+     */
+    public void setLookupCacheSize(int size)
+    {
+        if (size < 0)
+            throw new IllegalArgumentException("Size should not be negative");
+        lookupCache = (size > 0 && !stopped) ? new LookupCache(size) : null;
+    }
+
+    /**
+     * @return the chain of transformers applied to the classes defined by this class loader, or null if none
+     */
+    public ClassTransformerChain getTransformerChain()
+    {
+        return transformerChain;
+    }
+
+    /**
+     * Define a chain of transformers applied to the bytecode of the classes defined from now on by this class loader.
+     * Without a package index, the bytecode of the classes is then read by this class loader instead of the
+     * <code>URLClassLoader</code>.
+     * 
+     * @param chain the chain of transformers, or null to define classes unchanged
+     * @see lu.softec.net.ClassTransformerChain
+     */
+    public void setTransformerChain(ClassTransformerChain chain)
+    {
+        this.transformerChain = chain;
+    }
+
+    /**
+     * Add an URL to the class path, and invalidate the package index, which will be rebuilt on the next lookup. The
+     * cached lookup results are cleared.
+     * 
+     * @see java.net.URLClassLoader#addURL(java.net.URL)
+     */
+    @Override
+    protected void addURL(URL url)
+    {
+        super.addURL(bind(url, factory.createURLStreamHandler("jar")));
+        metrics.setClassPath(getURLs());
+        LookupCache cache = lookupCache;
+        if (cache != null)
+            cache.clear();
+        indexLock.lock();
+        try {
+            if (index != null && index != ClassPathIndex.UNAVAILABLE)
+                previousIndex = index;
+            index = null;
+        } finally {
+            indexLock.unlock();
+        }
+    }
+
+    /**
+     * @return the metrics of this class loader
+     */
+    public ClassLoaderMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    /**
+     * @return the package index of this class loader, building it when needed, or null if not available
+     */
+    private ClassPathIndex getIndex()
+    {
+        if (!indexed)
+            return null;
+        ClassPathIndex result = index;
+        if (result == null) {
+            indexLock.lock();
+            try {
+                result = index;
+                if (result == null) {
+                    result = ClassPathIndex.build(getURLs(), factory.createURLStreamHandler("jar"), previousIndex);
+                    previousIndex = null;
+                    index = result;
+                }
+            } finally {
+                indexLock.unlock();
+            }
+        }
+        return (result != ClassPathIndex.UNAVAILABLE) ? result : null;
+    }
+
+    /**
+     * Define a class from a jar file of the package index. The content of compressed classes of unsigned jar files is
+     * read through the default EntryContentCache.
+     * 
+     * @param name the binary name of the class
+     * @param path the resource name of the class
+     * @param index the package index
+     * @param i the index of the jar file in the package index
+     * @return the defined class, or null if the jar file does not contains the class
+     * @throws ClassNotFoundException if the class could not be read
+     */
+    private Class< ? > defineClass(String name, String path, ClassPathIndex index, int i)
+        throws ClassNotFoundException
+    {
+        JarFile jarFile;
+        try {
+            jarFile = index.acquireJarFile(i);
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+        try {
+            URL url = index.getURL(i);
+            EntryContentCache cache = EntryContentCache.getDefault();
+
+            MappedJarFile mapped = index.getMappedJarFile(i);
+            if (mapped != null) {
+                int entry = mapped.getEntry(path);
+                if (entry < 0)
+                    return null;
+                definePackage(name, jarFile, url);
+                CodeSource cs = new CodeSource(url, (CodeSigner[]) null);
+                if (mapped.acquire()) {
+                    try {
+                        ByteBuffer content = mapped.getStoredContent(entry);
+                        if (content != null) {
+                            metrics.classDefined(content.remaining());
+                            return defineTransformedClass(name, content, cs);
+                        }
+                    } finally {
+                        mapped.release();
+                    }
+                    ByteBuffer content = cache.get(url, path, mapped.getCrc(entry), mapped.getSize(entry));
+                    if (content != null) {
+                        metrics.classDefined(content.remaining());
+                        return defineTransformedClass(name, content, cs);
+                    }
+                    byte[] bytes = mapped.getBytes(entry);
+                    cache.put(url, path, mapped.getCrc(entry), bytes);
+                    metrics.classDefined(bytes.length);
+                    return defineTransformedClass(name, ByteBuffer.wrap(bytes), cs);
+                }
+            }
+
+            JarEntry entry = jarFile.getJarEntry(path);
+            if (entry == null)
+                return null;
+
+            boolean cacheable = !index.isSigned(i) && entry.getMethod() != JarEntry.STORED;
+            if (cacheable) {
+                ByteBuffer content = cache.get(url, path, entry.getCrc(), entry.getSize());
+                if (content != null) {
+                    definePackage(name, jarFile, url);
+                    metrics.classDefined(content.remaining());
+                    return defineTransformedClass(name, content, new CodeSource(url, (CodeSigner[]) null));
+                }
+            }
+
+            byte[] bytes;
+            InputStream in = jarFile.getInputStream(entry);
+            try {
+                bytes = readFully(in, (int) entry.getSize());
+            } finally {
+                in.close();
+            }
+            if (cacheable)
+                cache.put(url, path, entry.getCrc(), bytes);
+
+            definePackage(name, jarFile, url);
+            metrics.classDefined(bytes.length);
+            return defineTransformedClass(name, ByteBuffer.wrap(bytes), new CodeSource(url, entry.getCodeSigners()));
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        } finally {
+            index.releaseJarFile(i);
+        }
+    }
+
+    /**
+     * Define the package of a class loaded from a jar file, if not yet defined. Like <code>URLClassLoader</code>, it
+     * uses <code>getPackage()</code>, since <code>getDefinedPackage()</code> requires Java 9.
+     * 
+     * @param name the binary name of the class
+     * @param jarFile the jar file containing the class
+     * @param url the class path URL of the jar file
+     * @throws IOException if the manifest of the jar file could not be read
+     */
+    @SuppressWarnings("deprecation")
+    private void definePackage(String name, JarFile jarFile, URL url) throws IOException
+    {
+        int pos = name.lastIndexOf('.');
+        if (pos != -1) {
+            String pkgname = name.substring(0, pos);
+            if (getPackage(pkgname) == null)
+                definePackageOnce(pkgname, jarFile.getManifest(), url);
+        }
+    }
+
+    /**
+     * Define the package of a class read from an URL connection, if not yet defined.
+     * 
+     * @param name the binary name of the class
+     * @param uc the connection to the class, whose manifest is used when it is a jar connection
+     * @param url the class path URL containing the class
+     * @throws IOException if the manifest of the jar file could not be read
+     */
+    @SuppressWarnings("deprecation")
+    private void definePackage(String name, URLConnection uc, URL url) throws IOException
+    {
+        int pos = name.lastIndexOf('.');
+        if (pos != -1) {
+            String pkgname = name.substring(0, pos);
+            if (getPackage(pkgname) == null) {
+                Manifest man = (uc instanceof JarURLConnection) ? ((JarURLConnection) uc).getManifest() : null;
+                definePackageOnce(pkgname, man, url);
+            }
+        }
+    }
+
+    /**
+     * Define a package, unless defined concurrently.
+     * 
+     * @param pkgname the name of the package
+     * @param man the manifest of the jar file containing the package, or null
+     * @param url the class path URL containing the package
+     */
+    private void definePackageOnce(String pkgname, Manifest man, URL url)
+    {
+        try {
+            if (man != null) {
+                definePackage(pkgname, man, url);
+            } else {
+                definePackage(pkgname, null, null, null, null, null, null, null);
+            }
+        } catch (IllegalArgumentException e) {
+            // Package defined concurrently
+        }
+    }
+
+    /**
+     * @param in the stream to be read
+     * @param size the expected size, or -1 if unknown
+     * @return the content of the stream
+     * @throws IOException if an I/O error occurs
+     */
+    static byte[] readFully(InputStream in, int size) throws IOException
+    {
+        if (size < 0) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+
+        byte[] bytes = new byte[size];
+        int pos = 0;
+        while (pos < size) {
+            int n = in.read(bytes, pos, size - pos);
+            if (n == -1)
+                throw new EOFException("Unexpected end of stream");
+            pos += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Load in parallel, without initializing them, the classes found in the class path of this class loader and
+     * belonging to the given packages, using a shared fork-join pool. This allows warming up a new class loader
+     * before using it.
+     * 
+     * @param packages the packages of the classes to load, including their sub-packages. Load all classes when none
+     *            are given.
+     * @return a future reporting the outcome of the preloading
+     */
+    public Future<PreloadResult> preload(String... packages)
+    {
+        return ClassPreloader.getDefaultPool().submit(new ClassPreloader(this, null, packages));
+    }
+
+    /**
+     * Load in parallel, without initializing them, the given classes using the given fork-join pool.
+     * 
+     * @param classNames the binary names of the classes to load
+     * @param pool the fork-join pool used to load the classes, or null to use a shared pool
+     * @return a future reporting the outcome of the preloading
+     */
+    public Future<PreloadResult> preload(Collection<String> classNames, ForkJoinPool pool)
+    {
+        if (pool == null)
+            pool = ClassPreloader.getDefaultPool();
+        return pool.submit(new ClassPreloader(this, classNames, null));
+    }
+
+    /**
+     * @return the binary names of the classes defined so far by this class loader
+     */
+    public Collection<String> getDefinedClassNames()
+    {
+        return new ArrayList<String>(definedClasses);
+    }
+
     /**
      * @param uc an URL connection currently in-use by this class loader
      */
     public void register(DynamicJarURLConnection uc)
     {
         connections.add((DynamicJarURLConnection) uc);
+        JarWatcher watcher = this.watcher;
+        if (watcher != null)
+            uc.setWatched(watcher.isWatching(uc.getJarFileURL()));
     }
 
     /**
@@ -123,25 +567,122 @@ public class DynamicURLClassLoader extends URLClassLoader
     /**
      * Check the jar file currently cached by this class loader against their remote version and return true when the
      * cached version of any of them is older than the remote one. For file retrieve through http connection, only a
-     * head connection is made, and the server is expected to provide an appropriate last-modified header.
+     * head connection is made, and the server is expected to provide an appropriate last-modified header. Jar files
+     * followed by a JarWatcher are not checked, since the watcher marks this class loader outdated when they change.
+     * Checking stops at the first outdated jar file, and once outdated, this class loader remains outdated.
      * 
      * @return true if any jar file already opened (and cached) by this class loader is older than its remote version.
      */
     public boolean isOutdated()
     {
-        boolean result = false;
-        for (DynamicJarURLConnection uc : connections) {
-            if (uc != null) {
-                if (uc.isOutdated()) {
-                    result = true;
-                }
+        if (outdated.get())
+            return true;
+
+        for (DynamicJarURLConnection uc : getCheckedConnections()) {
+            if (uc.isOutdated()) {
+                setOutdated();
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * @return true if this class loader has already been found or marked outdated
+     */
+    boolean isMarkedOutdated()
+    {
+        return outdated.get();
+    }
+
+    /**
+     * @return the connections of this class loader that should be checked to know if it is outdated, excluding those
+     *         followed by a JarWatcher
+     */
+    Collection<DynamicJarURLConnection> getCheckedConnections()
+    {
+        Collection<DynamicJarURLConnection> result = new ArrayList<DynamicJarURLConnection>();
+        for (DynamicJarURLConnection uc : connections) {
+            if (uc != null && !uc.isWatched())
+                result.add(uc);
+        }
         return result;
     }
 
     /**
-     * Stop this class loader and try to close its related JarFiles
+     * @return the connections currently in-use by this class loader
+     */
+    Collection<DynamicJarURLConnection> getConnections()
+    {
+        return Collections.unmodifiableCollection(connections);
+    }
+
+    /**
+     * @return the number of jar files currently in-use by this class loader, each counted once whatever the number of
+     *         its connections
+     */
+    int getJarCount()
+    {
+        Set<String> jars = new HashSet<String>();
+        for (DynamicJarURLConnection uc : connections) {
+            if (uc != null)
+                jars.add(uc.getJarFileURL().toExternalForm());
+        }
+        return jars.size();
+    }
+
+    /**
+     * Mark this class loader as outdated, without checking its jar files. The listeners of this class loader are
+     * notified the first time it is marked.
+     */
+    void setOutdated()
+    {
+        if (outdated.compareAndSet(false, true))
+            fire(ClassLoaderEvent.Type.STALENESS_DETECTED, System.nanoTime() - created, getJarCount());
+    }
+
+    /**
+     * @param listeners the listeners notified of the lifecycle of this class loader, including its reclamation
+     */
+    void setListeners(List<ClassLoaderListener> listeners)
+    {
+        this.listeners = listeners;
+        release.listeners = listeners;
+    }
+
+    /**
+     * Notify an event concerning this class loader to its listeners, if any.
+     * 
+     * @param type the type of the event
+     * @param duration the duration related to the event in nanoseconds
+     * @param jarCount the number of jar files related to the event
+     */
+    private void fire(ClassLoaderEvent.Type type, long duration, int jarCount)
+    {
+        List<ClassLoaderListener> listeners = this.listeners;
+        if (!listeners.isEmpty()) {
+            ClassLoaderEvent.fire(listeners,
+                new ClassLoaderEvent(type, this, null, metrics.getClassPath(), duration, jarCount));
+        }
+    }
+
+    /**
+     * @param watcher the JarWatcher following the local jar files of this class loader
+     */
+    void setJarWatcher(JarWatcher watcher)
+    {
+        this.watcher = watcher;
+        for (DynamicJarURLConnection uc : connections) {
+            if (uc != null)
+                uc.setWatched(watcher != null && watcher.isWatching(uc.getJarFileURL()));
+        }
+    }
+
+    /**
+     * Stop this class loader, stop watching its jar files, and try to close its related JarFiles. A class loader that becomes unreachable without
+     * being stopped has its JarFiles closed by the ReclamationService. The listeners of a class loader created by a
+     * CachedURLClassLoaderFactory are notified of each attempt leaving JarFiles opened, and of the completion of the
+     * stop once all of them have been closed.
      * 
      * @return true if all JarFiles associated to the JarURLConnection of this class loader has been closed
      *         successfully. If the class loader was already stopped, this function does not had any effect on Jar File
@@ -149,7 +690,16 @@ public class DynamicURLClassLoader extends URLClassLoader
      */
     public boolean stop()
     {
+        long start = System.nanoTime();
+        if (stopSince == 0)
+            stopSince = start;
         stopped = true;
+        lookupCache = null;
+        JarWatcher watcher = this.watcher;
+        if (watcher != null) {
+            watcher.unwatch(this);
+            setJarWatcher(null);
+        }
         boolean result = true;
         Iterator<DynamicJarURLConnection> it = connections.iterator();
         while (it.hasNext()) {
@@ -158,6 +708,7 @@ public class DynamicURLClassLoader extends URLClassLoader
                 try {
                     if (uc.close()) {
                         it.remove();
+                        stopClosed.add(uc.getJarFileURL().toExternalForm());
                     } else {
                         result = false;
                     }
@@ -165,6 +716,11 @@ public class DynamicURLClassLoader extends URLClassLoader
                 }
             }
         }
+        if (!result) {
+            fire(ClassLoaderEvent.Type.STOP_ATTEMPTED, System.nanoTime() - start, getJarCount());
+        } else if (stopCompleted.compareAndSet(false, true)) {
+            fire(ClassLoaderEvent.Type.STOP_COMPLETED, System.nanoTime() - stopSince, stopClosed.size());
+        }
         return result;
     }
 
@@ -177,33 +733,155 @@ public class DynamicURLClassLoader extends URLClassLoader
     }
 
     /**
-     * {@inheritDoc}
+     * {@inheritDoc} The time spent is accounted in the metrics of this class loader, and classes not found are
+     * remembered by the lookup cache when enabled.
      * 
-     * @see java.lang.Object#finalize()
+     * @see java.net.URLClassLoader#findClass(java.lang.String)
      */
     @Override
-    protected void finalize() throws Throwable
+    protected Class< ? > findClass(String name) throws ClassNotFoundException
     {
-        stop();
-        super.finalize();
+        if (stopped) {
+            throw new ClassNotFoundException("ClassLoader is stopped");
+        }
+        LookupCache cache = lookupCache;
+        int generation = 0;
+        if (cache != null) {
+            generation = cache.getGeneration();
+            if (cache.get(LookupCache.CLASS, name) == LookupCache.MISSING) {
+                metrics.lookupCacheHit();
+                throw new ClassNotFoundException(name);
+            }
+            metrics.lookupCacheMiss();
+        }
+        long start = System.nanoTime();
+        try {
+            Class< ? > c = findIndexedClass(name);
+            if (c == null) {
+                if (transformerChain != null) {
+                    c = findTransformedClass(name);
+                } else {
+                    c = super.findClass(name);
+                    metrics.classDefined(0);
+                }
+            }
+            definedClasses.add(name);
+            return c;
+        } catch (ClassNotFoundException e) {
+            if (cache != null)
+                cache.put(LookupCache.CLASS, name, LookupCache.MISSING, generation);
+            throw e;
+        } finally {
+            metrics.findClass(System.nanoTime() - start);
+        }
     }
 
     /**
-     * {@inheritDoc}
+     * Find a class without the package index, reading its bytecode to pass it through the transformer chain. The
+     * connection used to read it is closed once read, so it is neither registered with this class loader nor checked
+     * for staleness, and other connections are not cached.
      * 
-     * @see java.net.URLClassLoader#findClass(java.lang.String)
+     * @param name the binary name of the class
+     * @return the defined class
+     * @throws ClassNotFoundException if the class is not found or could not be read
      */
-    @Override
-    protected Class< ? > findClass(String name) throws ClassNotFoundException
+    private Class< ? > findTransformedClass(String name) throws ClassNotFoundException
     {
-        if (stopped) {
-            throw new ClassNotFoundException("ClassLoader is stopped");
+        String path = name.replace('.', '/').concat(".class");
+        URL url = super.findResource(path);
+        if (url == null)
+            throw new ClassNotFoundException(name);
+        try {
+            URLConnection uc = url.openConnection();
+            if (!(uc instanceof DynamicJarURLConnection))
+                uc.setUseCaches(false);
+            URL codeSourceURL = getCodeSourceURL(url, path);
+            byte[] bytes;
+            CodeSigner[] signers = null;
+            try {
+                InputStream in = uc.getInputStream();
+                try {
+                    definePackage(name, uc, codeSourceURL);
+                    bytes = readFully(in, uc.getContentLength());
+                    if (uc instanceof JarURLConnection) {
+                        JarEntry entry = ((JarURLConnection) uc).getJarEntry();
+                        if (entry != null)
+                            signers = entry.getCodeSigners();
+                    }
+                } finally {
+                    in.close();
+                }
+            } finally {
+                if (uc instanceof DynamicJarURLConnection) {
+                    // Registered when its manifest has been read
+                    clear((DynamicJarURLConnection) uc);
+                    ((DynamicJarURLConnection) uc).close();
+                }
+            }
+            metrics.classDefined(bytes.length);
+            return defineTransformedClass(name, ByteBuffer.wrap(bytes), new CodeSource(codeSourceURL, signers));
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
         }
-        return super.findClass(name);
     }
 
     /**
-     * {@inheritDoc}
+     * @param url the URL of a resource found in the class path
+     * @param path the name of the resource
+     * @return the class path URL containing the resource, or the URL of the resource if not found
+     */
+    private URL getCodeSourceURL(URL url, String path)
+    {
+        String form = url.toExternalForm();
+        for (URL classPathURL : getURLs()) {
+            String base = classPathURL.toExternalForm();
+            if (form.equals(base + path) || form.equals("jar:" + base + "!/" + path))
+                return classPathURL;
+        }
+        return url;
+    }
+
+    /**
+     * Define a class, passing its bytecode through the transformer chain when defined.
+     * 
+     * @param name the binary name of the class
+     * @param content the bytecode of the class
+     * @param cs the code source of the class
+     * @return the defined class
+     */
+    private Class< ? > defineTransformedClass(String name, ByteBuffer content, CodeSource cs)
+    {
+        ClassTransformerChain chain = transformerChain;
+        if (chain == null)
+            return defineClass(name, content, cs);
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        bytes = chain.transform(name, bytes);
+        return defineClass(name, bytes, 0, bytes.length, cs);
+    }
+
+    /**
+     * @param name the binary name of the class
+     * @return the class found using the package index, or null if the index is not available
+     * @throws ClassNotFoundException if the index is available and the class is not found
+     */
+    private Class< ? > findIndexedClass(String name) throws ClassNotFoundException
+    {
+        ClassPathIndex index = getIndex();
+        if (index != null) {
+            String path = name.replace('.', '/').concat(".class");
+            for (int i : index.getCandidates(path)) {
+                Class< ? > c = defineClass(name, path, index, i);
+                if (c != null)
+                    return c;
+            }
+            throw new ClassNotFoundException(name);
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc} The result is served from the lookup cache when enabled.
      * 
      * @see java.net.URLClassLoader#findResource(java.lang.String)
      */
@@ -213,6 +891,40 @@ public class DynamicURLClassLoader extends URLClassLoader
         if (stopped) {
             return null;
         }
+        LookupCache cache = lookupCache;
+        if (cache == null)
+            return findUncachedResource(name);
+
+        int generation = cache.getGeneration();
+        Object result = cache.get(LookupCache.RESOURCE, name);
+        if (result != null) {
+            metrics.lookupCacheHit();
+            return (result != LookupCache.MISSING) ? (URL) result : null;
+        }
+        metrics.lookupCacheMiss();
+        URL url = findUncachedResource(name);
+        cache.put(LookupCache.RESOURCE, name, (url != null) ? url : LookupCache.MISSING, generation);
+        return url;
+    }
+
+    /**
+     * @param name the resource name
+     * @return the URL of the resource, or null if not found
+     */
+    private URL findUncachedResource(String name)
+    {
+        ClassPathIndex index = getIndex();
+        if (index != null) {
+            for (int i : index.getCandidates(name)) {
+                if (index.contains(i, name)) {
+                    try {
+                        return index.getResourceURL(i, name);
+                    } catch (MalformedURLException e) {
+                    }
+                }
+            }
+            return null;
+        }
         return super.findResource(name);
     }
 
@@ -227,6 +939,62 @@ public class DynamicURLClassLoader extends URLClassLoader
         if (stopped) {
             return null;
         }
+        ClassPathIndex index = getIndex();
+        if (index != null) {
+            Vector<URL> urls = new Vector<URL>();
+            for (int i : index.getCandidates(name)) {
+                if (index.contains(i, name))
+                    urls.add(index.getResourceURL(i, name));
+            }
+            return urls.elements();
+        }
         return super.findResources(name);
     }
+
+    /**
+     * Release of the jar files held by the connections of a class loader, run when the class loader becomes
+     * unreachable. It does not refer to the class loader itself, and notifies the listeners of the class loader of
+     * its reclamation.
+     */
+    private static final class ConnectionsRelease implements Runnable
+    {
+        private final Collection<DynamicJarURLConnection> connections;
+
+        private final ClassLoaderMetrics metrics;
+
+        private final long created;
+
+        private volatile List<ClassLoaderListener> listeners = Collections.emptyList();
+
+        ConnectionsRelease(Collection<DynamicJarURLConnection> connections, ClassLoaderMetrics metrics, long created)
+        {
+            this.connections = connections;
+            this.metrics = metrics;
+            this.created = created;
+        }
+
+        public void run()
+        {
+            int closed = 0;
+            Set<String> jars = new HashSet<String>();
+            Iterator<DynamicJarURLConnection> it = connections.iterator();
+            while (it.hasNext()) {
+                DynamicJarURLConnection uc = it.next();
+                try {
+                    if (uc.isConnected() && uc.close()) {
+                        closed++;
+                        jars.add(uc.getJarFileURL().toExternalForm());
+                    }
+                } catch (IOException e) {
+                }
+                it.remove();
+            }
+            ReclamationService.getDefault().handlesReclaimed(closed);
+            List<ClassLoaderListener> listeners = this.listeners;
+            if (!listeners.isEmpty()) {
+                ClassLoaderEvent.fire(listeners, new ClassLoaderEvent(ClassLoaderEvent.Type.COLLECTED, null, null,
+                    metrics.getClassPath(), System.nanoTime() - created, jars.size()));
+            }
+        }
+    }
 }
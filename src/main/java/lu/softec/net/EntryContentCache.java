@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a bounded cache of the content of jar file entries, shared by all DynamicURLClassLoader. Entries are
+ * addressed by the URL of their jar file, their name, and the CRC and size recorded in the central directory of the
+ * jar file, so a new class loader created for a modified class path gets the unchanged classes of its jar files from
+ * memory, without reading and inflating them again. Content may be kept outside of the Java heap. When the cache is
+ * full, the oldest entries are evicted first. Entries of signed jar files are never cached, since they should be
+ * verified when read.
+ * <p>
+ * The cache is disabled until a maximum size is defined.
+ * 
+ * @see lu.softec.net.DynamicURLClassLoader#setIndexed(boolean)
+ * @see lu.softec.net.DynamicJarURLConnection#setMappedReader(boolean)
+ */
+public class EntryContentCache implements EntryContentCacheMXBean
+{
+    private static final EntryContentCache defaultCache = new EntryContentCache();
+
+    private final ConcurrentMap<String, ByteBuffer> entries = new ConcurrentHashMap<String, ByteBuffer>();
+
+    private final Queue<String> order = new ConcurrentLinkedQueue<String>();
+
+    private final AtomicLong size = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private volatile long maxSize = 0;
+
+    private volatile int maxEntrySize = 1024 * 1024;
+
+    private volatile boolean offHeap = false;
+
+    /**
+     * @return the cache used by DynamicURLClassLoader and DynamicJarURLConnection
+     */
+    public static EntryContentCache getDefault()
+    {
+        return defaultCache;
+    }
+
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize the maximum number of bytes of content kept, 0 to disable the cache
+     */
+    public void setMaxSize(long maxSize)
+    {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("Size should not be negative");
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * @return the size in bytes of the largest entry cached
+     */
+    public int getMaxEntrySize()
+    {
+        return maxEntrySize;
+    }
+
+    /**
+     * @param maxEntrySize the size in bytes of the largest entry cached
+     */
+    public void setMaxEntrySize(int maxEntrySize)
+    {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * @return true if the content of new entries is kept outside of the Java heap
+     */
+    public boolean isOffHeap()
+    {
+        return offHeap;
+    }
+
+    /**
+     * @param offHeap true to keep the content of new entries in direct buffers, outside of the Java heap
+     */
+    public void setOffHeap(boolean offHeap)
+    {
+        this.offHeap = offHeap;
+    }
+
+    public long getSize()
+    {
+        return size.get();
+    }
+
+    public int getEntryCount()
+    {
+        return entries.size();
+    }
+
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    public void clear()
+    {
+        String key;
+        while ((key = order.poll()) != null) {
+            remove(key);
+        }
+    }
+
+    /**
+     * @param size the size of an entry
+     * @return true if an entry of that size could be cached
+     */
+    boolean isCacheable(long size)
+    {
+        return size >= 0 && size <= maxEntrySize && size <= maxSize;
+    }
+
+    /**
+     * @param jarFileURL the URL of the jar file
+     * @param name the name of the entry
+     * @param crc the CRC-32 of the entry, from the central directory
+     * @param size the uncompressed size of the entry
+     * @return a read-only buffer of the content of the entry, or null if not cached
+     */
+    ByteBuffer get(URL jarFileURL, String name, long crc, long size)
+    {
+        if (!isCacheable(size))
+            return null;
+        ByteBuffer content = entries.get(getKey(jarFileURL, name, crc, size));
+        if (content == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return content.duplicate();
+    }
+
+    /**
+     * Cache the content of an entry, evicting the oldest entries if the cache is full.
+     * 
+     * @param jarFileURL the URL of the jar file
+     * @param name the name of the entry
+     * @param crc the CRC-32 of the entry, from the central directory
+     * @param content the content of the entry
+     */
+    void put(URL jarFileURL, String name, long crc, byte[] content)
+    {
+        if (!isCacheable(content.length))
+            return;
+        ByteBuffer buffer;
+        if (offHeap) {
+            buffer = ByteBuffer.allocateDirect(content.length);
+            buffer.put(content);
+            buffer.flip();
+        } else {
+            buffer = ByteBuffer.wrap(content.clone());
+        }
+        String key = getKey(jarFileURL, name, crc, content.length);
+        if (entries.putIfAbsent(key, buffer.asReadOnlyBuffer()) != null)
+            return;
+        order.offer(key);
+        size.addAndGet(content.length);
+        evict();
+    }
+
+    /**
+     * @param content a buffer returned by <code>get()</code>
+     * @return a copy of the remaining content of the buffer
+     */
+    static byte[] toBytes(ByteBuffer content)
+    {
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Evict the oldest entries until the cache is within its maximum size.
+     */
+    private void evict()
+    {
+        while (size.get() > maxSize) {
+            String key = order.poll();
+            if (key == null)
+                break;
+            remove(key);
+        }
+    }
+
+    private void remove(String key)
+    {
+        ByteBuffer content = entries.remove(key);
+        if (content != null)
+            size.addAndGet(-content.capacity());
+    }
+
+    private static String getKey(URL jarFileURL, String name, long crc, long size)
+    {
+        return jarFileURL.toExternalForm() + "!/" + name + '#' + Long.toHexString(crc & 0xFFFFFFFFL) + '#' + size;
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+/**
+ * Management interface of an EntryContentCache.
+ * 
+ * @see lu.softec.net.Management#registerEntryContentCache()
+ */
+public interface EntryContentCacheMXBean
+{
+    /**
+     * @return the maximum number of bytes of content kept, 0 if the cache is disabled
+     */
+    long getMaxSize();
+
+    /**
+     * @return the number of bytes of content currently kept
+     */
+    long getSize();
+
+    /**
+     * @return the number of entries currently kept
+     */
+    int getEntryCount();
+
+    /**
+     * @return the number of lookups that found the content of an entry
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of lookups that did not find the content of an entry
+     */
+    long getMissCount();
+
+    /**
+     * Forget the content of all entries.
+     */
+    void clear();
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+/**
+ * This class defines how a CachedURLClassLoaderFactory limits its cache. Class loaders are held according to a
+ * retention, and evicted in least recently used order when the cache holds more than a maximum number of entries, or
+ * when they have not been used for longer than an idle time. Evicted class loaders are removed from the cache and
+ * stopped in the background.
+ * <p>
+ * The legacy policy holds class loaders weakly, without any limit.
+ * 
+ * @see lu.softec.net.CachedURLClassLoaderFactory#setEvictionPolicy(EvictionPolicy)
+ */
+public class EvictionPolicy
+{
+    /**
+     * Policy weakly holding class loaders, without any limit.
+     */
+    public static final EvictionPolicy LEGACY = new EvictionPolicy(0, 0, LoaderRetention.WEAK);
+
+    private final int maxEntries;
+
+    private final long idleTimeout;
+
+    private final LoaderRetention retention;
+
+    /**
+     * @param maxEntries the maximum number of class loaders kept in the cache, 0 for no limit
+     * @param idleTimeout the time in milliseconds after which an unused class loader is evicted, 0 for no limit
+     * @param retention how class loaders are held while cached
+     */
+    public EvictionPolicy(int maxEntries, long idleTimeout, LoaderRetention retention)
+    {
+        if (maxEntries < 0 || idleTimeout < 0)
+            throw new IllegalArgumentException("Limits should not be negative");
+        if (retention == null)
+            throw new IllegalArgumentException("Retention should not be null");
+        this.maxEntries = maxEntries;
+        this.idleTimeout = idleTimeout;
+        this.retention = retention;
+    }
+
+    /**
+     * @return the maximum number of class loaders kept in the cache, 0 for no limit
+     */
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    /**
+     * @return the time in milliseconds after which an unused class loader is evicted, 0 for no limit
+     */
+    public long getIdleTimeout()
+    {
+        return idleTimeout;
+    }
+
+    /**
+     * @return how class loaders are held while cached
+     */
+    public LoaderRetention getRetention()
+    {
+        return retention;
+    }
+
+    /**
+     * @return true if this policy requires evicting class loaders
+     */
+    boolean isBounded()
+    {
+        return maxEntries > 0 || idleTimeout > 0;
+    }
+
+    /**
+     * @return the period in milliseconds of the maintenance of a cache following this policy, 0 if the cache should
+     *         only be maintained when full
+     */
+    long getMaintenancePeriod()
+    {
+        if (idleTimeout <= 0)
+            return 0;
+        return Math.max(idleTimeout / 2, 10L);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "EvictionPolicy[maxEntries=" + maxEntries + ", idleTimeout=" + idleTimeout + ", retention=" + retention
+            + "]";
+    }
+}
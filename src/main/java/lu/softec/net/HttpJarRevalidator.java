@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class keeps track of the validators (ETag and Last-Modified) of remote jar files retrieved through http, and
+ * revalidates them using conditional HEAD requests. A successful validation is considered fresh for a configurable
+ * time, during which no request is sent for the same jar file. When the server could not be reached or answers with
+ * an error, the jar file is not considered outdated, and the next attempt is delayed using an exponential back-off.
+ * 
+ * @see lu.softec.net.DynamicJarURLConnection#isOutdated()
+ */
+public class HttpJarRevalidator
+{
+    private static final HttpJarRevalidator defaultRevalidator = new HttpJarRevalidator();
+
+    private static final long MIN_BACKOFF = 1000L;
+
+    private final ConcurrentMap<String, Validation> validations = new ConcurrentHashMap<String, Validation>();
+
+    private volatile long freshness = 5000L;
+
+    private volatile long maxBackoff = 300000L;
+
+    private volatile int timeout = 10000;
+
+    /**
+     * @return the revalidator used by DynamicJarURLConnection
+     */
+    public static HttpJarRevalidator getDefault()
+    {
+        return defaultRevalidator;
+    }
+
+    /**
+     * @return the time in milliseconds during which a successful validation is considered fresh
+     */
+    public long getFreshness()
+    {
+        return freshness;
+    }
+
+    /**
+     * @param freshness the time in milliseconds during which a successful validation is considered fresh, 0 to
+     *            validate on each check
+     */
+    public void setFreshness(long freshness)
+    {
+        this.freshness = freshness;
+    }
+
+    /**
+     * @return the maximum delay in milliseconds between two attempts after failures
+     */
+    public long getMaxBackoff()
+    {
+        return maxBackoff;
+    }
+
+    /**
+     * @param maxBackoff the maximum delay in milliseconds between two attempts after failures
+     */
+    public void setMaxBackoff(long maxBackoff)
+    {
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * @return the connect and read timeout in milliseconds of validation requests
+     */
+    public int getTimeout()
+    {
+        return timeout;
+    }
+
+    /**
+     * @param timeout the connect and read timeout in milliseconds of validation requests
+     */
+    public void setTimeout(int timeout)
+    {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Forget all known validators, so the next checks are sent to the servers.
+     */
+    public void clear()
+    {
+        validations.clear();
+    }
+
+    /**
+     * Check if the remote jar file at the given URL is newer than the version described by the given validators.
+     * 
+     * @param url the URL of a remote jar file
+     * @param lastModified the Last-Modified date of the version in use, 0 if unknown
+     * @param etag the ETag of the version in use, null if unknown
+     * @return true if the remote jar file has been modified. If the remote jar file could not be validated, return
+     *         false.
+     */
+    public boolean isOutdated(URL url, long lastModified, String etag)
+    {
+        String key = url.toExternalForm();
+        Validation validation = validations.get(key);
+        if (validation == null) {
+            validation = new Validation();
+            Validation existing = validations.putIfAbsent(key, validation);
+            if (existing != null)
+                validation = existing;
+        }
+
+        validation.lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (now >= validation.expires) {
+                revalidate(url, validation, lastModified, etag, now);
+            }
+            return validation.isNewerThan(lastModified, etag);
+        } finally {
+            validation.lock.unlock();
+        }
+    }
+
+    /**
+     * Send a conditional HEAD request to refresh the known validators of a remote jar file.
+     * 
+     * @param url the URL of a remote jar file
+     * @param validation the known validators of this jar file
+     * @param lastModified the Last-Modified date of the version in use, used when no validators are known yet
+     * @param etag the ETag of the version in use, used when no validators are known yet
+     * @param now the current time
+     */
+    private void revalidate(URL url, Validation validation, long lastModified, String etag, long now)
+    {
+        if (!validation.known) {
+            validation.etag = etag;
+            validation.lastModified = lastModified;
+        }
+
+        try {
+            URLConnection uc = url.openConnection();
+            if (!(uc instanceof HttpURLConnection))
+                throw new IOException("Not an http connection: " + url);
+            HttpURLConnection httpuc = (HttpURLConnection) uc;
+            httpuc.setRequestMethod("HEAD");
+            httpuc.setUseCaches(false);
+            httpuc.setConnectTimeout(timeout);
+            httpuc.setReadTimeout(timeout);
+            if (validation.etag != null)
+                httpuc.setRequestProperty("If-None-Match", validation.etag);
+            if (validation.lastModified > 0)
+                httpuc.setIfModifiedSince(validation.lastModified);
+
+            int code = httpuc.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                validation.known = true;
+            } else if (code >= 200 && code < 300) {
+                validation.etag = httpuc.getHeaderField("ETag");
+                validation.lastModified = httpuc.getLastModified();
+                validation.known = true;
+            } else {
+                InputStream err = httpuc.getErrorStream();
+                if (err != null)
+                    err.close();
+                throw new IOException("Unexpected response " + code + " for " + url);
+            }
+            validation.failures = 0;
+            validation.expires = now + freshness;
+        } catch (IOException e) {
+            validation.failures++;
+            long backoff = Math.max(freshness, MIN_BACKOFF) << Math.min(validation.failures - 1, 16);
+            validation.expires = now + Math.min(backoff, maxBackoff);
+        }
+    }
+
+    /**
+     * Validators of a remote jar file, as last reported by the server.
+     */
+    private static class Validation
+    {
+        private final Lock lock = new ReentrantLock();
+
+        private boolean known;
+
+        private String etag;
+
+        private long lastModified;
+
+        private long expires;
+
+        private int failures;
+
+        /**
+         * @param lastModified the Last-Modified date of the version in use
+         * @param etag the ETag of the version in use
+         * @return true if the validators of the remote version show it differs from the version in use
+         */
+        boolean isNewerThan(long lastModified, String etag)
+        {
+            if (!known)
+                return false;
+            if (this.etag != null && etag != null)
+                return !this.etag.equals(etag);
+            return this.lastModified > lastModified;
+        }
+    }
+}
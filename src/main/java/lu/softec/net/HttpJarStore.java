@@ -0,0 +1,511 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class is a persistent store of remote jar files retrieved through http, kept in a local directory. Each version
+ * of a jar file is stored under a name derived from its URL and its validators (ETag and Last-Modified), and described
+ * by a properties file, so the store survives restarts. A remote jar file is downloaded once per version; later
+ * connections are served from the local copy as long as the default HttpJarRevalidator does not report it outdated,
+ * or when the server could not be reached. When the store exceeds its maximum size, the least recently used versions
+ * are deleted first, except those still used by a connection.
+ * 
+ * @see lu.softec.net.DynamicJarURLConnection#setJarStore(HttpJarStore)
+ * @see lu.softec.net.HttpJarRevalidator
+ */
+public class HttpJarStore
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String JAR_SUFFIX = ".jar";
+
+    private static final String INFO_SUFFIX = ".properties";
+
+    private static final long TOUCH_INTERVAL = 60000L;
+
+    private final File directory;
+
+    private final ConcurrentMap<String, StoredJar> versions = new ConcurrentHashMap<String, StoredJar>();
+
+    private final ConcurrentMap<String, StoredJar> latest = new ConcurrentHashMap<String, StoredJar>();
+
+    private final ConcurrentMap<String, Lock> locks = new ConcurrentHashMap<String, Lock>();
+
+    private final Lock evictLock = new ReentrantLock();
+
+    private final AtomicLong size = new AtomicLong();
+
+    private volatile long maxSize;
+
+    private volatile int timeout = 30000;
+
+    /**
+     * Constructs a store in the given directory, and reload the jar files already stored in it.
+     * 
+     * @param directory the directory of the store, created if needed
+     * @param maxSize the maximum number of bytes of jar files kept
+     * @throws IOException if the directory could not be created
+     */
+    public HttpJarStore(File directory, long maxSize) throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Unable to create the store directory " + directory);
+        this.directory = directory;
+        this.maxSize = maxSize;
+        load();
+        evict(null);
+    }
+
+    /**
+     * @return the directory of this store
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * @return the maximum number of bytes of jar files kept
+     */
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * @param maxSize the maximum number of bytes of jar files kept
+     */
+    public void setMaxSize(long maxSize)
+    {
+        this.maxSize = maxSize;
+        evict(null);
+    }
+
+    /**
+     * @return the number of bytes of jar files currently kept
+     */
+    public long getSize()
+    {
+        return size.get();
+    }
+
+    /**
+     * @return the connect and read timeout in milliseconds of downloads
+     */
+    public int getTimeout()
+    {
+        return timeout;
+    }
+
+    /**
+     * @param timeout the connect and read timeout in milliseconds of downloads
+     */
+    public void setTimeout(int timeout)
+    {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Retrieve the local copy of the current version of a remote jar file, downloading it if not yet stored or
+     * outdated.
+     * 
+     * @param url the URL of a remote jar file
+     * @return the stored version of the jar file
+     * @throws IOException if the jar file is not stored and could not be downloaded
+     */
+    StoredJar get(URL url) throws IOException
+    {
+        String key = url.toExternalForm();
+        Lock lock = locks.get(key);
+        if (lock == null) {
+            lock = new ReentrantLock();
+            Lock existing = locks.putIfAbsent(key, lock);
+            if (existing != null)
+                lock = existing;
+        }
+
+        lock.lock();
+        try {
+            StoredJar jar = latest.get(key);
+            if (jar != null && !jar.file.isFile()) {
+                remove(jar);
+                jar = null;
+            }
+            if (jar != null
+                && !HttpJarRevalidator.getDefault().isOutdated(url, jar.lastModified, jar.etag)) {
+                touch(jar);
+                return jar;
+            }
+
+            StoredJar downloaded;
+            try {
+                downloaded = download(url, jar);
+            } catch (IOException e) {
+                if (jar == null)
+                    throw e;
+                // Keep using the stored version while the new one is not available
+                downloaded = null;
+            }
+            if (downloaded == null) {
+                // Not modified
+                touch(jar);
+                return jar;
+            }
+            evict(downloaded);
+            return downloaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Download a remote jar file, conditionally to the validators of the stored version, if any.
+     * 
+     * @param url the URL of a remote jar file
+     * @param current the currently stored version, or null
+     * @return the newly stored version, or null if the current version has not been modified
+     * @throws IOException if the jar file could not be downloaded
+     */
+    private StoredJar download(URL url, StoredJar current) throws IOException
+    {
+        URLConnection uc = url.openConnection();
+        if (!(uc instanceof HttpURLConnection))
+            throw new IOException("Not an http connection: " + url);
+        HttpURLConnection httpuc = (HttpURLConnection) uc;
+        httpuc.setUseCaches(false);
+        httpuc.setConnectTimeout(timeout);
+        httpuc.setReadTimeout(timeout);
+        if (current != null) {
+            if (current.etag != null)
+                httpuc.setRequestProperty("If-None-Match", current.etag);
+            if (current.lastModified > 0)
+                httpuc.setIfModifiedSince(current.lastModified);
+        }
+
+        int code = httpuc.getResponseCode();
+        if (code == HttpURLConnection.HTTP_NOT_MODIFIED && current != null)
+            return null;
+        if (code < 200 || code >= 300) {
+            InputStream err = httpuc.getErrorStream();
+            if (err != null)
+                err.close();
+            throw new IOException("Unexpected response " + code + " for " + url);
+        }
+
+        String etag = httpuc.getHeaderField("ETag");
+        long lastModified = httpuc.getLastModified();
+        String name = digest(url.toExternalForm()) + '-' + digest(etag + '#' + lastModified);
+        File file = new File(directory, name + JAR_SUFFIX);
+        StoredJar existing = versions.get(name);
+        if (existing != null && file.isFile()) {
+            httpuc.getInputStream().close();
+            latest.put(url.toExternalForm(), existing);
+            touch(existing);
+            return existing;
+        }
+
+        File tmp = File.createTempFile(name, ".tmp", directory);
+        try {
+            InputStream in = httpuc.getInputStream();
+            try {
+                OutputStream out = new FileOutputStream(tmp);
+                try {
+                    byte[] buffer = new byte[65536];
+                    int n;
+                    while ((n = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, n);
+                    }
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+            file.delete();
+            if (!tmp.renameTo(file))
+                throw new IOException("Unable to store " + url + " into " + file);
+        } finally {
+            tmp.delete();
+        }
+
+        StoredJar jar = new StoredJar(name, url.toExternalForm(), file, etag, lastModified);
+        writeInfo(jar);
+        add(jar);
+        return jar;
+    }
+
+    /**
+     * Write the properties file describing a stored version, replacing the previous one atomically.
+     * 
+     * @param jar a stored version
+     * @throws IOException if the properties file could not be written
+     */
+    private void writeInfo(StoredJar jar) throws IOException
+    {
+        Properties info = new Properties();
+        info.setProperty("url", jar.url);
+        if (jar.etag != null)
+            info.setProperty("etag", jar.etag);
+        info.setProperty("lastModified", Long.toString(jar.lastModified));
+        info.setProperty("lastAccess", Long.toString(jar.lastAccess));
+        File tmp = File.createTempFile(jar.name, ".tmp", directory);
+        try {
+            OutputStream out = new FileOutputStream(tmp);
+            try {
+                info.store(out, null);
+            } finally {
+                out.close();
+            }
+            Files.move(tmp.toPath(), new File(directory, jar.name + INFO_SUFFIX).toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmp.delete();
+        }
+        jar.savedAccess = jar.lastAccess;
+    }
+
+    /**
+     * Record an access to a stored version. The access time is also written to its properties file, at most once a
+     * minute, to be kept across restarts. The local copy itself is left unchanged, since its modification date is
+     * part of the identity of its opened jar file.
+     * 
+     * @param jar a stored version
+     * @see lu.softec.net.JarHandlePool
+     */
+    private void touch(StoredJar jar)
+    {
+        long now = System.currentTimeMillis();
+        jar.lastAccess = now;
+        if (now - jar.savedAccess > TOUCH_INTERVAL) {
+            try {
+                writeInfo(jar);
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Reload the jar files already stored in the directory. The most recently modified version of each URL is
+     * considered its current version.
+     */
+    private void load()
+    {
+        File[] files = directory.listFiles();
+        if (files == null)
+            return;
+        for (File infoFile : files) {
+            String fileName = infoFile.getName();
+            if (!fileName.endsWith(INFO_SUFFIX))
+                continue;
+            String name = fileName.substring(0, fileName.length() - INFO_SUFFIX.length());
+            File file = new File(directory, name + JAR_SUFFIX);
+            Properties info = new Properties();
+            try {
+                InputStream in = new FileInputStream(infoFile);
+                try {
+                    info.load(in);
+                } finally {
+                    in.close();
+                }
+                String url = info.getProperty("url");
+                if (url == null || !file.isFile())
+                    throw new IOException("Incomplete stored jar " + name);
+                StoredJar jar = new StoredJar(name, url, file, info.getProperty("etag"),
+                    Long.parseLong(info.getProperty("lastModified", "0")));
+                jar.lastAccess = Long.parseLong(info.getProperty("lastAccess", Long.toString(file.lastModified())));
+                jar.savedAccess = jar.lastAccess;
+                StoredJar current = latest.get(url);
+                if (current != null && current.lastAccess > jar.lastAccess) {
+                    versions.put(name, jar);
+                    size.addAndGet(jar.file.length());
+                } else {
+                    add(jar);
+                }
+            } catch (IOException e) {
+                infoFile.delete();
+                file.delete();
+            } catch (NumberFormatException e) {
+                infoFile.delete();
+                file.delete();
+            }
+        }
+    }
+
+    private void add(StoredJar jar)
+    {
+        versions.put(jar.name, jar);
+        latest.put(jar.url, jar);
+        size.addAndGet(jar.file.length());
+    }
+
+    private void remove(StoredJar jar)
+    {
+        if (versions.remove(jar.name, jar)) {
+            latest.remove(jar.url, jar);
+            size.addAndGet(-jar.file.length());
+            jar.file.delete();
+            new File(directory, jar.name + INFO_SUFFIX).delete();
+        }
+    }
+
+    /**
+     * Delete the least recently used versions until the store is within its maximum size. Versions still used by a
+     * connection are kept, since a pooled jar file closed while idle would have to be opened again. Deleting a jar
+     * file still opened may fail on some platforms, in which case it is kept until the next eviction.
+     * 
+     * @param kept a version that should not be deleted, or null
+     */
+    private void evict(StoredJar kept)
+    {
+        evictLock.lock();
+        try {
+            if (size.get() <= maxSize)
+                return;
+            List<StoredJar> jars = new ArrayList<StoredJar>(versions.values());
+            Collections.sort(jars, new Comparator<StoredJar>()
+            {
+                public int compare(StoredJar o1, StoredJar o2)
+                {
+                    return (o1.lastAccess < o2.lastAccess) ? -1 : ((o1.lastAccess == o2.lastAccess) ? 0 : 1);
+                }
+            });
+            for (StoredJar jar : jars) {
+                if (size.get() <= maxSize)
+                    break;
+                if (jar == kept || isInUse(jar))
+                    continue;
+                long length = jar.file.length();
+                if (jar.file.delete() || !jar.file.exists()) {
+                    if (versions.remove(jar.name, jar)) {
+                        latest.remove(jar.url, jar);
+                        size.addAndGet(-length);
+                    }
+                    new File(directory, jar.name + INFO_SUFFIX).delete();
+                }
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    /**
+     * @param jar a stored version
+     * @return true if the local copy of this version is currently used by a connection
+     */
+    private static boolean isInUse(StoredJar jar)
+    {
+        try {
+            return (JarReference.get(jar.file.toURI().toURL().toExternalForm()) != null);
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
+    private static String digest(String value)
+    {
+        try {
+            StringBuilder sb = new StringBuilder(40);
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(value.getBytes(UTF8))) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A version of a remote jar file kept in the store.
+     */
+    static final class StoredJar
+    {
+        private final String name;
+
+        private final String url;
+
+        private final File file;
+
+        private final String etag;
+
+        private final long lastModified;
+
+        private volatile long lastAccess;
+
+        private volatile long savedAccess;
+
+        StoredJar(String name, String url, File file, String etag, long lastModified)
+        {
+            this.name = name;
+            this.url = url;
+            this.file = file;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        /**
+         * @return the local copy of the jar file
+         */
+        File getFile()
+        {
+            return file;
+        }
+
+        /**
+         * @return the ETag of this version, or null if unknown
+         */
+        String getETag()
+        {
+            return etag;
+        }
+
+        /**
+         * @return the Last-Modified date of this version, 0 if unknown
+         */
+        long getLastModified()
+        {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class collects the statistics of all DynamicJarURLConnection: the reference counts of the opened jar files
+ * and the latency of the outdated status checks.
+ * 
+ * @see lu.softec.net.DynamicJarURLConnection#isOutdated()
+ */
+public class JarConnectionStatistics implements JarConnectionStatisticsMXBean
+{
+    private static final JarConnectionStatistics instance = new JarConnectionStatistics();
+
+    private final LongAdder stalenessCheckCount = new LongAdder();
+
+    private final LongAdder stalenessCheckNanos = new LongAdder();
+
+    private final AtomicLong stalenessCheckMaxNanos = new AtomicLong();
+
+    private final LongAdder reloadSuppressed = new LongAdder();
+
+    private JarConnectionStatistics()
+    {
+    }
+
+    /**
+     * @return the statistics of all DynamicJarURLConnection
+     */
+    public static JarConnectionStatistics getInstance()
+    {
+        return instance;
+    }
+
+    public Map<String, Integer> getOpenJarFiles()
+    {
+        return DynamicJarURLConnection.getConnectionCounts();
+    }
+
+    public int getOpenJarFileCount()
+    {
+        return getOpenJarFiles().size();
+    }
+
+    public long getStalenessCheckCount()
+    {
+        return stalenessCheckCount.sum();
+    }
+
+    public long getStalenessCheckTime()
+    {
+        return stalenessCheckNanos.sum() / 1000L;
+    }
+
+    public long getStalenessCheckMaxTime()
+    {
+        return stalenessCheckMaxNanos.get() / 1000L;
+    }
+
+    public long getSuppressedReloadCount()
+    {
+        return reloadSuppressed.sum();
+    }
+
+    /**
+     * @param nanos the duration of an outdated status check
+     */
+    void stalenessChecked(long nanos)
+    {
+        stalenessCheckCount.increment();
+        stalenessCheckNanos.add(nanos);
+        long max;
+        while (nanos > (max = stalenessCheckMaxNanos.get())) {
+            if (stalenessCheckMaxNanos.compareAndSet(max, nanos))
+                break;
+        }
+    }
+
+    /**
+     * Count a jar file whose last modification date moved without any change of its content.
+     */
+    void reloadSuppressed()
+    {
+        reloadSuppressed.increment();
+    }
+}
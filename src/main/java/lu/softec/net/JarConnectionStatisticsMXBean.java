@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.util.Map;
+
+/**
+ * Management interface of the statistics of all DynamicJarURLConnection.
+ * 
+ * @see lu.softec.net.Management#registerJarConnections()
+ */
+public interface JarConnectionStatisticsMXBean
+{
+    /**
+     * @return the number of connections currently holding each opened jar file, by jar file URL
+     */
+    Map<String, Integer> getOpenJarFiles();
+
+    /**
+     * @return the number of jar files currently opened
+     */
+    int getOpenJarFileCount();
+
+    /**
+     * @return the number of outdated status checks made
+     */
+    long getStalenessCheckCount();
+
+    /**
+     * @return the total time spent checking outdated status, in microseconds
+     */
+    long getStalenessCheckTime();
+
+    /**
+     * @return the longest time spent on a single outdated status check, in microseconds
+     */
+    long getStalenessCheckMaxTime();
+
+    /**
+     * @return the number of outdated status checks of jar files whose last modification date moved without any change
+     *         of their content
+     */
+    long getSuppressedReloadCount();
+}
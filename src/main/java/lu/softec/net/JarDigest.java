@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * This class is a digest of the content of a local jar file, taken for a given last modification date. The latest
+ * digest of each jar file is kept, so connections to the same jar file compute it only once per modification.
+ * 
+ * @see lu.softec.net.DigestCheck
+ */
+final class JarDigest
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final ConcurrentMap<URL, JarDigest> digests = new ConcurrentHashMap<URL, JarDigest>();
+
+    private final DigestCheck mode;
+
+    private final long lastmodified;
+
+    private final byte[] value;
+
+    private JarDigest(DigestCheck mode, long lastmodified, byte[] value)
+    {
+        this.mode = mode;
+        this.lastmodified = lastmodified;
+        this.value = value;
+    }
+
+    /**
+     * Retrieve the digest of a local jar file, computing it if the latest known digest has been taken for another
+     * modification date or using another mode.
+     * 
+     * @param url the URL of the jar file
+     * @param file the local jar file
+     * @param lastmodified the current last modification date of the jar file
+     * @param mode the kind of digest, CENTRAL_DIRECTORY or FULL_DIGEST
+     * @return the digest of the jar file, or null if it could not be read
+     */
+    static JarDigest get(URL url, File file, long lastmodified, DigestCheck mode)
+    {
+        JarDigest digest = digests.get(url);
+        if (digest != null && digest.lastmodified == lastmodified && digest.mode == mode)
+            return digest;
+        try {
+            byte[] value = (mode == DigestCheck.FULL_DIGEST) ? digestContent(file) : digestCentralDirectory(file);
+            digest = new JarDigest(mode, lastmodified, value);
+            digests.put(url, digest);
+            return digest;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the kind of this digest
+     */
+    DigestCheck getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * @param other another digest, may be null
+     * @return true if both digests are of the same kind and have the same value
+     */
+    boolean isSameContent(JarDigest other)
+    {
+        return other != null && mode == other.mode && Arrays.equals(value, other.value);
+    }
+
+    private static byte[] digestCentralDirectory(File file) throws IOException
+    {
+        MessageDigest md = getMessageDigest();
+        ZipFile zip = new ZipFile(file);
+        try {
+            byte[] buffer = new byte[24];
+            Enumeration< ? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                md.update(entry.getName().getBytes(UTF8));
+                putLong(buffer, 0, entry.getCrc());
+                putLong(buffer, 8, entry.getSize());
+                putLong(buffer, 16, entry.getMethod());
+                md.update(buffer);
+            }
+        } finally {
+            zip.close();
+        }
+        return md.digest();
+    }
+
+    private static byte[] digestContent(File file) throws IOException
+    {
+        MessageDigest md = getMessageDigest();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[65536];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                md.update(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return md.digest();
+    }
+
+    private static void putLong(byte[] buffer, int pos, long value)
+    {
+        for (int i = 0; i < 8; i++) {
+            buffer[pos + i] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    private static MessageDigest getMessageDigest()
+    {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,387 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.jar.JarFile;
+
+/**
+ * This class is a process-wide pool of opened local jar files, shared by the connections of all class loaders. A jar
+ * file is identified by its canonical path and its version, made of its last modification date and its size, so
+ * class loaders using the same version of a jar file through different URLs share a single opened file, while a
+ * rewritten jar file is opened separately from the version still in use.
+ * <p>
+ * The pool may be limited to a maximum number of opened files. When the limit is exceeded, jar files that are not
+ * being read are closed in least recently used order, and opened again transparently on their next use. Jar files
+ * handed out through <code>JarURLConnection.getJarFile()</code> remain opened until their connection is closed, so
+ * the limit is not strict.
+ * 
+ * @see lu.softec.net.DynamicJarURLConnection#getJarFile()
+ */
+public class JarHandlePool implements JarHandlePoolMXBean
+{
+    private static final JarHandlePool defaultPool = new JarHandlePool();
+
+    private final ConcurrentMap<String, JarHandle> handles = new ConcurrentHashMap<String, JarHandle>();
+
+    private final AtomicInteger openFiles = new AtomicInteger();
+
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    private final LongAdder reopened = new LongAdder();
+
+    private final LongAdder idleClosed = new LongAdder();
+
+    private volatile boolean enabled = false;
+
+    private volatile int maxOpenFiles = 0;
+
+    /**
+     * @return the pool used by DynamicJarURLConnection
+     */
+    public static JarHandlePool getDefault()
+    {
+        return defaultPool;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the pool. When enabled, local jar files are opened through the pool instead of the cache of
+     * the jar protocol handler of the JVM. It only affects jar files opened after the change.
+     * 
+     * @param enabled true to open local jar files through the pool
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public int getMaxOpenFiles()
+    {
+        return maxOpenFiles;
+    }
+
+    /**
+     * @param maxOpenFiles the maximum number of jar files kept opened, 0 for no limit
+     */
+    public void setMaxOpenFiles(int maxOpenFiles)
+    {
+        if (maxOpenFiles < 0)
+            throw new IllegalArgumentException("Maximum should not be negative");
+        this.maxOpenFiles = maxOpenFiles;
+        trim();
+    }
+
+    public int getOpenFileCount()
+    {
+        return openFiles.get();
+    }
+
+    public int getHandleCount()
+    {
+        return handles.size();
+    }
+
+    public long getReopenCount()
+    {
+        return reopened.sum();
+    }
+
+    public long getIdleCloseCount()
+    {
+        return idleClosed.sum();
+    }
+
+    /**
+     * Retain the handle of the current version of a local jar file. The jar file itself is only opened when first
+     * acquired. Each successful call should be followed by a call to <code>JarHandle.dispose()</code>.
+     * 
+     * @param file a local jar file
+     * @return the retained handle of the jar file
+     * @throws IOException if the canonical path of the file could not be resolved
+     */
+    JarHandle retain(File file) throws IOException
+    {
+        File canonical = file.getCanonicalFile();
+        long lastModified = canonical.lastModified();
+        long length = canonical.length();
+        String key = canonical.getPath() + '#' + lastModified + '#' + length;
+        for (;;) {
+            JarHandle handle = handles.get(key);
+            if (handle == null) {
+                JarHandle created = new JarHandle(key, canonical, lastModified, length);
+                handle = handles.putIfAbsent(key, created);
+                if (handle == null)
+                    handle = created;
+            }
+            if (handle.retain())
+                return handle;
+            handles.remove(key, handle);
+        }
+    }
+
+    /**
+     * Close idle jar files, in least recently used order, until the pool is within its maximum number of opened
+     * files. Only one thread trims the pool at a time.
+     */
+    private void trim()
+    {
+        int max = maxOpenFiles;
+        if (max == 0 || openFiles.get() <= max || !trimming.compareAndSet(false, true))
+            return;
+        try {
+            List<JarHandle> candidates = new ArrayList<JarHandle>(handles.values());
+            Collections.sort(candidates, new Comparator<JarHandle>()
+            {
+                public int compare(JarHandle o1, JarHandle o2)
+                {
+                    return (o1.lastAccess < o2.lastAccess) ? -1 : ((o1.lastAccess == o2.lastAccess) ? 0 : 1);
+                }
+            });
+            for (JarHandle handle : candidates) {
+                if (openFiles.get() <= max)
+                    break;
+                if (handle.closeIdle())
+                    idleClosed.increment();
+            }
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    /**
+     * Handle of a version of a local jar file, retained by the connections using it. The jar file is opened while
+     * acquired for reading, and may be closed while idle when the pool exceeds its limit. Before opening it again, its
+     * last modification date and size are compared to its version, and a rewritten jar file is never read through the
+     * handle of a previous version. The memory-mapped reader of this version, if any, is kept until the handle is
+     * disposed.
+     */
+    final class JarHandle
+    {
+        private final String key;
+
+        private final File file;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final AtomicReference<MappedJarFile> mapped = new AtomicReference<MappedJarFile>();
+
+        private final Lock lock = new ReentrantLock();
+
+        private JarFile jarFile;
+
+        private boolean opened;
+
+        private int users;
+
+        private int readers;
+
+        private boolean disposed;
+
+        private volatile boolean changed;
+
+        private volatile long lastAccess = System.nanoTime();
+
+        private JarHandle(String key, File file, long lastModified, long length)
+        {
+            this.key = key;
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        /**
+         * @return the canonical local jar file
+         */
+        File getFile()
+        {
+            return file;
+        }
+
+        /**
+         * @return the last modification date of the version of the jar file
+         */
+        long getLastModified()
+        {
+            return lastModified;
+        }
+
+        /**
+         * @return true if the jar file has been found rewritten while opening it, so this version is no more readable
+         */
+        boolean isChanged()
+        {
+            return changed;
+        }
+
+        /**
+         * @return the memory-mapped reader of this version, possibly closed for a signed jar file, or null if none
+         */
+        MappedJarFile getMappedJarFile()
+        {
+            return mapped.get();
+        }
+
+        /**
+         * @param reader a memory-mapped reader of this version
+         * @return true if the reader has been set, false if another reader was already set
+         */
+        boolean setMappedJarFile(MappedJarFile reader)
+        {
+            return mapped.compareAndSet(null, reader);
+        }
+
+        /**
+         * Acquire the jar file for reading, opening it if needed. Each successful call should be followed by a call
+         * to <code>release()</code>, and the jar file should not be used after it.
+         * 
+         * @return the opened jar file
+         * @throws IOException if the jar file could not be opened, has been rewritten since this version, or the handle
+         *             is no more retained
+         */
+        JarFile acquire() throws IOException
+        {
+            JarFile result;
+            boolean openedNow = false;
+            lock.lock();
+            try {
+                if (disposed)
+                    throw new IOException("Jar handle disposed: " + file);
+                if (jarFile == null) {
+                    if (changed || file.lastModified() != lastModified || file.length() != length) {
+                        changed = true;
+                        throw new IOException("Jar file changed since opened: " + file);
+                    }
+                    jarFile = new JarFile(file);
+                    openFiles.incrementAndGet();
+                    if (opened)
+                        reopened.increment();
+                    opened = true;
+                    openedNow = true;
+                }
+                readers++;
+                lastAccess = System.nanoTime();
+                result = jarFile;
+            } finally {
+                lock.unlock();
+            }
+            if (openedNow)
+                trim();
+            return result;
+        }
+
+        /**
+         * Release the jar file acquired by <code>acquire()</code>.
+         */
+        void release()
+        {
+            lock.lock();
+            try {
+                readers--;
+                lastAccess = System.nanoTime();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Release a handle retained by <code>JarHandlePool.retain()</code>, closing the jar file and removing the
+         * handle from the pool if this was its last user.
+         */
+        void dispose()
+        {
+            lock.lock();
+            try {
+                if (--users > 0)
+                    return;
+                disposed = true;
+                handles.remove(key, this);
+                close();
+                MappedJarFile reader = mapped.getAndSet(null);
+                if (reader != null)
+                    reader.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return true if the handle has been retained, false if it has already been disposed
+         */
+        private boolean retain()
+        {
+            lock.lock();
+            try {
+                if (disposed)
+                    return false;
+                users++;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return true if the jar file was opened and not being read, and has been closed
+         */
+        private boolean closeIdle()
+        {
+            if (!lock.tryLock())
+                return false;
+            try {
+                if (readers > 0 || jarFile == null)
+                    return false;
+                close();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void close()
+        {
+            if (jarFile == null)
+                return;
+            try {
+                jarFile.close();
+            } catch (IOException e) {
+            }
+            jarFile = null;
+            openFiles.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+/**
+ * Management interface of a JarHandlePool.
+ * 
+ * @see lu.softec.net.Management#registerJarHandlePool()
+ */
+public interface JarHandlePoolMXBean
+{
+    /**
+     * @return true if local jar files are opened through the pool
+     */
+    boolean isEnabled();
+
+    /**
+     * @return the maximum number of jar files kept opened, 0 for no limit
+     */
+    int getMaxOpenFiles();
+
+    /**
+     * @return the number of jar files currently opened
+     */
+    int getOpenFileCount();
+
+    /**
+     * @return the number of distinct jar file versions currently in use
+     */
+    int getHandleCount();
+
+    /**
+     * @return the number of times a jar file has been opened again after being closed while idle
+     */
+    long getReopenCount();
+
+    /**
+     * @return the number of times an idle jar file has been closed to stay within the maximum
+     */
+    long getIdleCloseCount();
+}
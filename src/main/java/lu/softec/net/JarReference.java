@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class counts the connections that currently use a jar file, so the jar file is closed once the last of them is
+ * closed. Its state is either the number of connections holding it, or closing once the last connection has
+ * released it. Transitions are atomic and independent for each jar file, so connecting to and closing unrelated jar
+ * files never contend. A connection acquiring a jar file that is being closed waits until the closing is done, and
+ * then gets a new reference.
+ * 
+ * @see lu.softec.net.DynamicJarURLConnection#connect()
+ * @see lu.softec.net.DynamicJarURLConnection#close()
+ */
+final class JarReference
+{
+    private static final int CLOSING = -1;
+
+    private static final ConcurrentMap<String, JarReference> references =
+        new ConcurrentHashMap<String, JarReference>();
+
+    private final String key;
+
+    private final AtomicInteger state = new AtomicInteger();
+
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    private final AtomicReference<MappedJarFile> mapped = new AtomicReference<MappedJarFile>();
+
+    private final boolean pooled;
+
+    private JarReference(String key)
+    {
+        this.key = key;
+        this.pooled = JarHandlePool.getDefault().isEnabled();
+    }
+
+    /**
+     * Acquire the reference of a jar file, waiting for a previous reference to be closed if needed.
+     * 
+     * @param key the identity of the jar file
+     * @return the acquired reference
+     */
+    static JarReference acquire(String key)
+    {
+        for (;;) {
+            JarReference ref = references.get(key);
+            if (ref == null) {
+                JarReference created = new JarReference(key);
+                ref = references.putIfAbsent(key, created);
+                if (ref == null)
+                    ref = created;
+            }
+            if (ref.tryAcquire())
+                return ref;
+            ref.awaitClosed();
+        }
+    }
+
+    /**
+     * @param key the identity of a jar file
+     * @return the current reference of the jar file, or null if not in use
+     */
+    static JarReference get(String key)
+    {
+        return references.get(key);
+    }
+
+    /**
+     * @return the number of holders of each jar file in use, by jar file identity
+     */
+    static Map<String, Integer> getCounts()
+    {
+        Map<String, Integer> result = new TreeMap<String, Integer>();
+        for (JarReference ref : references.values()) {
+            int count = ref.getCount();
+            if (count > 0)
+                result.put(ref.key, count);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of holders of this reference, 0 if closing
+     */
+    int getCount()
+    {
+        return Math.max(state.get(), 0);
+    }
+
+    /**
+     * Release this reference. When the last holder releases it, the reference moves to closing, and the caller
+     * should close the jar file and then call <code>closed()</code>.
+     * 
+     * @return true if the caller released the last holder and should close the jar file
+     */
+    boolean release()
+    {
+        for (;;) {
+            int count = state.get();
+            if (count <= 0)
+                throw new IllegalStateException("Jar reference " + key + " is not held");
+            if (state.compareAndSet(count, (count == 1) ? CLOSING : count - 1))
+                return (count == 1);
+        }
+    }
+
+    /**
+     * Complete the closing of this reference, releasing its memory-mapped reader and allowing the jar file to be
+     * acquired again.
+     */
+    void closed()
+    {
+        try {
+            MappedJarFile reader = mapped.getAndSet(null);
+            if (reader != null)
+                reader.close();
+        } finally {
+            references.remove(key, this);
+            closed.countDown();
+        }
+    }
+
+    /**
+     * @return the memory-mapped reader of the jar file, possibly closed for a signed jar file, or null if none
+     */
+    MappedJarFile getMappedJarFile()
+    {
+        return mapped.get();
+    }
+
+    /**
+     * @param reader a memory-mapped reader of the jar file
+     * @return true if the reader has been set, false if another reader was already set
+     */
+    boolean setMappedJarFile(MappedJarFile reader)
+    {
+        return mapped.compareAndSet(null, reader);
+    }
+
+    /**
+     * @return true if the connections holding this reference open their jar file through the default JarHandlePool,
+     *         as decided when this reference has been created
+     */
+    boolean isPooled()
+    {
+        return pooled;
+    }
+
+    private boolean tryAcquire()
+    {
+        for (;;) {
+            int count = state.get();
+            if (count < 0)
+                return false;
+            if (state.compareAndSet(count, count + 1))
+                return true;
+        }
+    }
+
+    private void awaitClosed()
+    {
+        boolean interrupted = false;
+        for (;;) {
+            try {
+                closed.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This watcher uses a <code>WatchService</code> to follow the local jar files used by DynamicURLClassLoaders. It
+ * watches the parent directories of these jars and marks the class loaders using a jar as outdated as soon as a
+ * change event is received for it, so checking the outdated status of these class loaders does not require any
+ * file system access. When a digest check is enabled, the content of a changed jar file is first compared to the
+ * digest taken by the connections of each class loader, and class loaders using the same content are kept and
+ * still watched. Jar files retrieved through other protocols are still checked by their connection.
+ * 
+ * @see lu.softec.net.DynamicURLClassLoader#isOutdated()
+ * @see lu.softec.net.CachedURLClassLoaderFactory#setJarWatcher(JarWatcher)
+ */
+public class JarWatcher implements Closeable
+{
+    private final WatchService watchService;
+
+    private final ConcurrentMap<Path, WatchKey> directories = new ConcurrentHashMap<Path, WatchKey>();
+
+    private final ConcurrentMap<Path, Collection<WeakReference<DynamicURLClassLoader>>> files =
+        new ConcurrentHashMap<Path, Collection<WeakReference<DynamicURLClassLoader>>>();
+
+    private final Lock lock = new ReentrantLock();
+
+    private final Thread thread;
+
+    /**
+     * Constructs and starts a new JarWatcher using the <code>WatchService</code> of the default file system.
+     * 
+     * @throws IOException if the watch service could not be created
+     */
+    public JarWatcher() throws IOException
+    {
+        watchService = FileSystems.getDefault().newWatchService();
+        thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                processEvents();
+            }
+        }, "JarWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Watch the local jar files in the class path of the given class loader. Directories and URLs of other
+     * protocols are ignored.
+     * 
+     * @param classLoader the class loader to be marked outdated when one of its local jar file changes
+     * @throws IOException if a directory could not be registered with the watch service
+     */
+    public void watch(DynamicURLClassLoader classLoader) throws IOException
+    {
+        for (URL url : classLoader.getURLs()) {
+            Path file = toPath(url);
+            if (file != null && Files.isRegularFile(file)) {
+                watch(file, classLoader);
+            }
+        }
+        classLoader.setJarWatcher(this);
+    }
+
+    /**
+     * Stop watching the local jar files of the given class loader for it. Directories no more containing any watched
+     * jar file are no more watched.
+     * 
+     * @param classLoader a class loader previously watched
+     */
+    public void unwatch(DynamicURLClassLoader classLoader)
+    {
+        lock.lock();
+        try {
+            for (URL url : classLoader.getURLs()) {
+                Path file = toPath(url);
+                Collection<WeakReference<DynamicURLClassLoader>> loaders = (file != null) ? files.get(file) : null;
+                if (loaders == null)
+                    continue;
+                Iterator<WeakReference<DynamicURLClassLoader>> it = loaders.iterator();
+                while (it.hasNext()) {
+                    DynamicURLClassLoader watched = it.next().get();
+                    if (watched == null || watched == classLoader)
+                        it.remove();
+                }
+                if (loaders.isEmpty())
+                    forget(file);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param url an URL of a jar file
+     * @return true if this URL is a local jar file currently watched by this watcher
+     */
+    public boolean isWatching(URL url)
+    {
+        Path file = toPath(url);
+        return (file != null && files.containsKey(file));
+    }
+
+    /**
+     * Stop watching and release the underlying watch service.
+     * 
+     * @throws IOException if an I/O error occurs
+     */
+    public void close() throws IOException
+    {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    /**
+     * Register a file and the class loader that use it, watching its parent directory if not yet done.
+     * 
+     * @param file the absolute path to a jar file
+     * @param classLoader the class loader using this file
+     * @throws IOException if the directory could not be registered with the watch service
+     */
+    private void watch(Path file, DynamicURLClassLoader classLoader) throws IOException
+    {
+        lock.lock();
+        try {
+            Path dir = file.getParent();
+            if (!directories.containsKey(dir)) {
+                directories.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+            }
+            Collection<WeakReference<DynamicURLClassLoader>> loaders = files.get(file);
+            if (loaders == null) {
+                loaders = new ConcurrentLinkedQueue<WeakReference<DynamicURLClassLoader>>();
+                files.put(file, loaders);
+            }
+            Iterator<WeakReference<DynamicURLClassLoader>> it = loaders.iterator();
+            while (it.hasNext()) {
+                if (it.next().get() == null)
+                    it.remove();
+            }
+            loaders.add(new WeakReference<DynamicURLClassLoader>(classLoader));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mark outdated all class loaders using the given file and stop watching it for them. When a digest check is
+     * enabled, class loaders whose connections to the file still match its content are not marked and remain watched.
+     * 
+     * @param file the absolute path to a changed jar file
+     */
+    private void changed(Path file)
+    {
+        lock.lock();
+        try {
+            Collection<WeakReference<DynamicURLClassLoader>> loaders = files.get(file);
+            if (loaders != null) {
+                Iterator<WeakReference<DynamicURLClassLoader>> it = loaders.iterator();
+                while (it.hasNext()) {
+                    DynamicURLClassLoader classLoader = it.next().get();
+                    if (classLoader == null) {
+                        it.remove();
+                    } else if (isChanged(file, classLoader)) {
+                        classLoader.setOutdated();
+                        it.remove();
+                    }
+                }
+                if (!loaders.isEmpty())
+                    return;
+            }
+            forget(file);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop watching a file no more used by any watched class loader, and its parent directory if it does not contain
+     * any other watched file. Should be called while holding the lock.
+     * 
+     * @param file the absolute path to a jar file
+     */
+    private void forget(Path file)
+    {
+        files.remove(file);
+        Path dir = file.getParent();
+        for (Path watched : files.keySet()) {
+            if (watched.getParent().equals(dir))
+                return;
+        }
+        WatchKey key = directories.remove(dir);
+        if (key != null)
+            key.cancel();
+    }
+
+    /**
+     * @param file the absolute path to a changed jar file
+     * @param classLoader a class loader using this file
+     * @return true if the content of the file is not the one used by the class loader. Without digest check, or when
+     *         the class loader does not use the file through a connection, the file is always considered changed.
+     * @see lu.softec.net.DynamicJarURLConnection#setDigestCheck(DigestCheck)
+     */
+    private static boolean isChanged(Path file, DynamicURLClassLoader classLoader)
+    {
+        if (DynamicJarURLConnection.getDigestCheck() == DigestCheck.NONE)
+            return true;
+        boolean connected = false;
+        for (DynamicJarURLConnection uc : classLoader.getConnections()) {
+            if (uc != null && uc.isConnected() && file.equals(toPath(uc.getJarFileURL()))) {
+                if (uc.isOutdated())
+                    return true;
+                connected = true;
+            }
+        }
+        return !connected;
+    }
+
+    /**
+     * Events processing loop, running until the watch service is closed.
+     */
+    private void processEvents()
+    {
+        try {
+            for (;;) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent< ? > event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Some events are lost, consider every watched file of this directory as changed
+                        Collection<Path> changed = new ArrayList<Path>();
+                        for (Map.Entry<Path, Collection<WeakReference<DynamicURLClassLoader>>> entry : files.entrySet()) {
+                            if (entry.getKey().getParent().equals(dir))
+                                changed.add(entry.getKey());
+                        }
+                        for (Path file : changed) {
+                            changed(file);
+                        }
+                    } else {
+                        Path file = dir.resolve((Path) event.context());
+                        if (files.containsKey(file))
+                            changed(file);
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+        } catch (ClosedWatchServiceException e) {
+        }
+    }
+
+    /**
+     * @param url an URL
+     * @return the normalized absolute path of a file URL, or null for URLs of other protocols
+     */
+    private static Path toPath(URL url)
+    {
+        if (url == null || !"file".equals(url.getProtocol()))
+            return null;
+        try {
+            return Paths.get(url.toURI()).toAbsolutePath().normalize();
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
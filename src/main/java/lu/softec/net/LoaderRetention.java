@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+/**
+ * How a CachedURLClassLoaderFactory holds the class loaders of its cache while they are not evicted.
+ * 
+ * @see lu.softec.net.EvictionPolicy
+ */
+public enum LoaderRetention
+{
+    /**
+     * Class loaders are only weakly held, and are removed from the cache as soon as nobody else uses them.
+     */
+    WEAK,
+
+    /**
+     * Class loaders are softly held, and are only removed from the cache under memory pressure, or when evicted.
+     */
+    SOFT,
+
+    /**
+     * Class loaders are strongly held, and are only removed from the cache when evicted.
+     */
+    STRONG
+}
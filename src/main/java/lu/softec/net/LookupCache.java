@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is a bounded cache of the results of the class and resource lookups of a DynamicURLClassLoader. It
+ * remembers the classes and resources not found, and the URLs of the resources found, so repeated probes do not
+ * scan the jar files again. When full, the oldest entries are evicted first. Each result is tagged with the
+ * generation of the cache when its lookup started, and clearing the cache starts a new generation, so a lookup that
+ * was running while the class path changed never serves its result.
+ * 
+ * @see lu.softec.net.DynamicURLClassLoader#setLookupCacheSize(int)
+ */
+final class LookupCache
+{
+    /**
+     * Kind of the lookup of a class
+     */
+    static final char CLASS = 'C';
+
+    /**
+     * Kind of the lookup of a resource
+     */
+    static final char RESOURCE = 'R';
+
+    /**
+     * Result of a lookup that did not find anything
+     */
+    static final Object MISSING = new Object();
+
+    private final int capacity;
+
+    private final ConcurrentMap<String, Entry> entries;
+
+    private final Queue<String> order = new ConcurrentLinkedQueue<String>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * @param capacity the maximum number of lookup results kept
+     */
+    LookupCache(int capacity)
+    {
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<String, Entry>(Math.min(capacity, 1024));
+    }
+
+    /**
+     * @return the maximum number of lookup results kept
+     */
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return the current generation, to be captured before a lookup and given back with its result
+     */
+    int getGeneration()
+    {
+        return generation.get();
+    }
+
+    /**
+     * @param kind the kind of lookup, CLASS or RESOURCE
+     * @param name the name looked up
+     * @return the result of the lookup, MISSING if nothing was found, or null if the result is not known
+     */
+    Object get(char kind, String name)
+    {
+        Entry entry = entries.get(kind + name);
+        return (entry != null && entry.generation == generation.get()) ? entry.value : null;
+    }
+
+    /**
+     * Remember the result of a lookup, evicting the oldest results if the cache is full. The result is ignored if the
+     * cache has been cleared since the lookup started.
+     * 
+     * @param kind the kind of lookup, CLASS or RESOURCE
+     * @param name the name looked up
+     * @param value the result of the lookup, or MISSING if nothing was found
+     * @param generation the generation captured before the lookup
+     */
+    void put(char kind, String name, Object value, int generation)
+    {
+        if (generation != this.generation.get())
+            return;
+        String key = kind + name;
+        Entry entry = new Entry(value, generation);
+        Entry previous = entries.putIfAbsent(key, entry);
+        if (previous != null) {
+            // Replace the result of a previous generation, already counted
+            if (previous.generation != generation)
+                entries.replace(key, previous, entry);
+            return;
+        }
+        order.offer(key);
+        if (size.incrementAndGet() > capacity) {
+            String eldest = order.poll();
+            if (eldest != null) {
+                entries.remove(eldest);
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Forget all lookup results, and start a new generation.
+     */
+    void clear()
+    {
+        generation.incrementAndGet();
+        String key;
+        while ((key = order.poll()) != null) {
+            entries.remove(key);
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Result of a lookup, with the generation of the cache when the lookup started.
+     */
+    private static final class Entry
+    {
+        final Object value;
+
+        final int generation;
+
+        Entry(Object value, int generation)
+        {
+            this.value = value;
+            this.generation = generation;
+        }
+    }
+}
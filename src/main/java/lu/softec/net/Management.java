@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class registers the management beans of this library with the platform MBean server, under the
+ * <code>lu.softec.net</code> domain.
+ */
+public final class Management
+{
+    /**
+     * The JMX domain of the management beans of this library
+     */
+    public static final String DOMAIN = "lu.softec.net";
+
+    private Management()
+    {
+    }
+
+    /**
+     * Register a factory, to expose its statistics and the metrics of its cached class loaders. The factory should
+     * be unregistered when no more used, since the MBean server keeps a reference to it.
+     * 
+     * @param factory the factory to register
+     * @param name a name identifying the factory
+     * @return the name of the registered bean
+     * @throws JMException if the registration fails
+     */
+    public static ObjectName register(CachedURLClassLoaderFactory factory, String name) throws JMException
+    {
+        ObjectName objectName =
+            new ObjectName(DOMAIN + ":type=CachedURLClassLoaderFactory,name=" + ObjectName.quote(name));
+        getServer().registerMBean(factory, objectName);
+        return objectName;
+    }
+
+    /**
+     * Register the statistics of all DynamicJarURLConnection, if not already done.
+     * 
+     * @return the name of the registered bean
+     * @throws JMException if the registration fails
+     */
+    public static ObjectName registerJarConnections() throws JMException
+    {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=JarConnectionStatistics");
+        MBeanServer server = getServer();
+        if (!server.isRegistered(objectName))
+            server.registerMBean(JarConnectionStatistics.getInstance(), objectName);
+        return objectName;
+    }
+
+    /**
+     * Register the default EntryContentCache, if not already done.
+     * 
+     * @return the name of the registered bean
+     * @throws JMException if the registration fails
+     */
+    public static ObjectName registerEntryContentCache() throws JMException
+    {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=EntryContentCache");
+        MBeanServer server = getServer();
+        if (!server.isRegistered(objectName))
+            server.registerMBean(EntryContentCache.getDefault(), objectName);
+        return objectName;
+    }
+
+    /**
+     * Register the default ReclamationService, if not already done.
+     * 
+     * @return the name of the registered bean
+     * @throws JMException if the registration fails
+     */
+    public static ObjectName registerReclamationService() throws JMException
+    {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=ReclamationService");
+        MBeanServer server = getServer();
+        if (!server.isRegistered(objectName))
+            server.registerMBean(ReclamationService.getDefault(), objectName);
+        return objectName;
+    }
+
+    /**
+     * Register the default JarHandlePool, if not already done.
+     * 
+     * @return the name of the registered bean
+     * @throws JMException if the registration fails
+     */
+    public static ObjectName registerJarHandlePool() throws JMException
+    {
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=JarHandlePool");
+        MBeanServer server = getServer();
+        if (!server.isRegistered(objectName))
+            server.registerMBean(JarHandlePool.getDefault(), objectName);
+        return objectName;
+    }
+
+    /**
+     * @param objectName the name of a bean registered by this class
+     * @throws JMException if the bean could not be unregistered
+     */
+    public static void unregister(ObjectName objectName) throws JMException
+    {
+        getServer().unregisterMBean(objectName);
+    }
+
+    private static MBeanServer getServer()
+    {
+        return ManagementFactory.getPlatformMBeanServer();
+    }
+}
@@ -0,0 +1,553 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * This class is a read-only jar file reader working on a memory mapping of the file. The central directory is parsed
+ * once into a compact index made of primitive arrays, and the content of stored entries is accessed directly as
+ * slices of the mapping. Reads are guarded against a concurrent <code>close()</code>, which releases the mapping
+ * immediately instead of waiting for the garbage collector. A jar file nested in a jar file is read in place, from a
+ * slice of the mapping of the outer jar file when stored, or from an inflated copy in memory otherwise.
+ * 
+ * @see lu.softec.net.DynamicJarURLConnection#setMappedReader(boolean)
+ */
+final class MappedJarFile implements Closeable
+{
+    private static final int LOCSIG = 0x04034b50;
+
+    private static final int CENSIG = 0x02014b50;
+
+    private static final int ENDSIG = 0x06054b50;
+
+    private static final int LOCHDR = 30;
+
+    private static final int CENHDR = 46;
+
+    private static final int ENDHDR = 22;
+
+    static final int STORED = 0;
+
+    static final int DEFLATED = 8;
+
+    private final ByteBuffer buffer;
+
+    private final MappedByteBuffer mapping;
+
+    private final ReadWriteLock lock;
+
+    private boolean closed;
+
+    private final byte[] names;
+
+    private final int[] nameOffsets;
+
+    private final int[] offsets;
+
+    private final int[] compressedSizes;
+
+    private final int[] sizes;
+
+    private final int[] crcs;
+
+    private final short[] methods;
+
+    private final int[] table;
+
+    private final boolean signed;
+
+    private final MappedJarFile parent;
+
+    private final ConcurrentMap<Integer, MappedJarFile> nested = new ConcurrentHashMap<Integer, MappedJarFile>();
+
+    /**
+     * Map and parse a jar file.
+     * 
+     * @param file the jar file
+     * @return a reader of this jar file
+     * @throws IOException if the file could not be mapped or is not a valid jar file. ZIP64 files are not supported.
+     */
+    static MappedJarFile open(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new ZipException("File too large: " + file);
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try {
+                return new MappedJarFile(mapping, mapping, new ReentrantReadWriteLock(), null);
+            } catch (IOException e) {
+                unmap(mapping);
+                throw e;
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Parse the central directory of a jar file.
+     * 
+     * @param buffer the content of the jar file
+     * @param mapping the mapping to be released on close, or null
+     * @param lock the lock guarding reads against close
+     * @param parent the jar file whose mapping contains the buffer, or null
+     * @throws IOException if the buffer does not contain a valid jar file
+     */
+    MappedJarFile(ByteBuffer buffer, MappedByteBuffer mapping, ReadWriteLock lock, MappedJarFile parent)
+        throws IOException
+    {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        this.mapping = mapping;
+        this.lock = lock;
+        this.parent = parent;
+
+        ByteBuffer buf = this.buffer;
+        int end = findEnd(buf);
+        int count = buf.getShort(end + 10) & 0xFFFF;
+        int cenLength = buf.getInt(end + 12);
+        int cenOffset = buf.getInt(end + 16);
+        if (count == 0xFFFF || cenOffset == -1 || cenLength == -1)
+            throw new ZipException("ZIP64 not supported");
+        // Take into account data prepended to the archive
+        int base = end - cenLength - cenOffset;
+        if (base < 0)
+            throw new ZipException("Invalid central directory offset");
+
+        nameOffsets = new int[count + 1];
+        offsets = new int[count];
+        compressedSizes = new int[count];
+        sizes = new int[count];
+        crcs = new int[count];
+        methods = new short[count];
+
+        int pos = end - cenLength;
+        int namesLength = 0;
+        for (int i = 0; i < count; i++) {
+            if (pos + CENHDR > end || buf.getInt(pos) != CENSIG)
+                throw new ZipException("Invalid central directory");
+            namesLength += buf.getShort(pos + 28) & 0xFFFF;
+            pos += CENHDR + (buf.getShort(pos + 28) & 0xFFFF) + (buf.getShort(pos + 30) & 0xFFFF)
+                + (buf.getShort(pos + 32) & 0xFFFF);
+        }
+
+        names = new byte[namesLength];
+        table = new int[Integer.highestOneBit(Math.max(count, 1) * 2) * 2];
+        boolean hasSignature = false;
+        pos = end - cenLength;
+        int namePos = 0;
+        for (int i = 0; i < count; i++) {
+            int nameLength = buf.getShort(pos + 28) & 0xFFFF;
+            methods[i] = buf.getShort(pos + 10);
+            crcs[i] = buf.getInt(pos + 16);
+            compressedSizes[i] = buf.getInt(pos + 20);
+            sizes[i] = buf.getInt(pos + 24);
+            offsets[i] = base + buf.getInt(pos + 42);
+            if (compressedSizes[i] < 0 || sizes[i] < 0 || offsets[i] < 0)
+                throw new ZipException("ZIP64 not supported");
+            nameOffsets[i] = namePos;
+            for (int j = 0; j < nameLength; j++) {
+                names[namePos++] = buf.get(pos + CENHDR + j);
+            }
+
+            int slot = hash(names, nameOffsets[i], namePos) & (table.length - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (table.length - 1);
+            }
+            table[slot] = i + 1;
+
+            String name = new String(names, nameOffsets[i], nameLength, "UTF-8");
+            if (isSignature(name))
+                hasSignature = true;
+
+            pos += CENHDR + nameLength + (buf.getShort(pos + 30) & 0xFFFF) + (buf.getShort(pos + 32) & 0xFFFF);
+        }
+        nameOffsets[count] = namePos;
+        signed = hasSignature;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    int size()
+    {
+        return offsets.length;
+    }
+
+    /**
+     * @param name the name of an entry
+     * @return true if the entry is a signature file of a signed jar file
+     */
+    static boolean isSignature(String name)
+    {
+        return name.startsWith("META-INF/")
+            && (name.endsWith(".SF") || name.endsWith(".DSA") || name.endsWith(".RSA") || name.endsWith(".EC"));
+    }
+
+    /**
+     * @return true if this jar file contains signature files, and should be read with a verifying reader
+     */
+    boolean isSigned()
+    {
+        return signed;
+    }
+
+    /**
+     * @param name the name of an entry
+     * @return the index of the entry, or -1 if not found
+     */
+    int getEntry(String name)
+    {
+        byte[] bytes = null;
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 0x80) {
+                bytes = toUTF8(name);
+                h = hash(bytes, 0, bytes.length);
+                break;
+            }
+            h = 31 * h + c;
+        }
+
+        int mask = table.length - 1;
+        for (int slot = h & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int i = table[slot] - 1;
+            if (bytes != null ? matches(i, bytes) : matches(i, name))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param i the index of an entry
+     * @return the name of the entry
+     */
+    String getName(int i)
+    {
+        try {
+            return new String(names, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i], "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param i the index of an entry
+     * @return the uncompressed size of the entry
+     */
+    int getSize(int i)
+    {
+        return sizes[i];
+    }
+
+    /**
+     * @param i the index of an entry
+     * @return the CRC-32 of the uncompressed content of the entry
+     */
+    long getCrc(int i)
+    {
+        return crcs[i] & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param i the index of an entry
+     * @return the compression method of the entry
+     */
+    int getMethod(int i)
+    {
+        return methods[i];
+    }
+
+    /**
+     * Acquire the permission to read this jar file. Each successful call should be followed by a call to
+     * <code>release()</code>, and content slices should not be used after it.
+     * 
+     * @return true if this jar file is still opened and could be read
+     */
+    boolean acquire()
+    {
+        lock.readLock().lock();
+        if (closed || (parent != null && parent.closed)) {
+            lock.readLock().unlock();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Release the permission to read acquired by <code>acquire()</code>.
+     */
+    void release()
+    {
+        lock.readLock().unlock();
+    }
+
+    /**
+     * Return the content of a stored entry as a slice of the mapping. It should only be used while read permission
+     * is acquired.
+     * 
+     * @param i the index of an entry
+     * @return the content of the entry, or null if the entry is compressed
+     * @throws IOException if the local header of the entry is invalid
+     */
+    ByteBuffer getStoredContent(int i) throws IOException
+    {
+        if (methods[i] != STORED)
+            return null;
+        return slice(getDataOffset(i), sizes[i]);
+    }
+
+    /**
+     * Read the content of an entry. Read permission is acquired by this method.
+     * 
+     * @param i the index of an entry
+     * @return the uncompressed content of the entry
+     * @throws IOException if the jar file is closed or the entry could not be read
+     */
+    byte[] getBytes(int i) throws IOException
+    {
+        if (!acquire())
+            throw new IOException("Jar file closed");
+        try {
+            int offset = getDataOffset(i);
+            byte[] bytes = new byte[sizes[i]];
+            if (methods[i] == STORED) {
+                slice(offset, sizes[i]).get(bytes);
+            } else if (methods[i] == DEFLATED) {
+                byte[] input = new byte[compressedSizes[i]];
+                slice(offset, compressedSizes[i]).get(input);
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(input);
+                    int pos = 0;
+                    while (pos < bytes.length) {
+                        int n = inflater.inflate(bytes, pos, bytes.length - pos);
+                        if (n == 0 && (inflater.finished() || inflater.needsInput()))
+                            throw new ZipException("Truncated entry: " + getName(i));
+                        pos += n;
+                    }
+                } catch (DataFormatException e) {
+                    throw new ZipException(e.getMessage());
+                } finally {
+                    inflater.end();
+                }
+            } else {
+                throw new ZipException("Unsupported compression method " + methods[i]);
+            }
+            return bytes;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Return a reader of a jar file stored as an entry of this jar file. A stored entry is read in place, sharing the
+     * mapping and the lock of this jar file, while a compressed entry is inflated once in memory. Nested readers are
+     * kept with this jar file, and closed with it.
+     * 
+     * @param i the index of an entry
+     * @return a reader of the jar file stored in the entry
+     * @throws IOException if this jar file is closed or the entry is not a valid jar file
+     */
+    MappedJarFile getNestedJarFile(int i) throws IOException
+    {
+        MappedJarFile reader = nested.get(i);
+        if (reader != null)
+            return reader;
+        if (!acquire())
+            throw new IOException("Jar file closed");
+        try {
+            ByteBuffer content = getStoredContent(i);
+            if (content != null)
+                reader = new MappedJarFile(content, null, lock, this);
+        } finally {
+            release();
+        }
+        if (reader == null)
+            reader = new MappedJarFile(ByteBuffer.wrap(getBytes(i)), null, new ReentrantReadWriteLock(), null);
+        MappedJarFile existing = nested.putIfAbsent(i, reader);
+        if (existing != null)
+            return existing;
+        if (isClosed())
+            reader.close();
+        return reader;
+    }
+
+    /**
+     * @return true if this jar file, or the jar file containing it, has been closed
+     */
+    boolean isClosed()
+    {
+        if (!acquire())
+            return true;
+        release();
+        return false;
+    }
+
+    /**
+     * Release the mapping and the nested readers. Pending reads are completed first, and later reads fail.
+     */
+    public void close()
+    {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                if (mapping != null)
+                    unmap(mapping);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (MappedJarFile reader : nested.values()) {
+            reader.close();
+        }
+    }
+
+    /**
+     * @param i the index of an entry
+     * @return the position of the content of the entry
+     * @throws IOException if the local header of the entry is invalid
+     */
+    private int getDataOffset(int i) throws IOException
+    {
+        int pos = offsets[i];
+        if (pos + LOCHDR > buffer.limit() || buffer.getInt(pos) != LOCSIG)
+            throw new ZipException("Invalid local header: " + getName(i));
+        return pos + LOCHDR + (buffer.getShort(pos + 26) & 0xFFFF) + (buffer.getShort(pos + 28) & 0xFFFF);
+    }
+
+    /**
+     * @param offset the position of the slice
+     * @param length the length of the slice
+     * @return a slice of the content of this jar file
+     * @throws IOException if the slice is out of bounds
+     */
+    private ByteBuffer slice(int offset, int length) throws IOException
+    {
+        if (offset + length > buffer.limit() || offset + length < 0)
+            throw new ZipException("Invalid entry size");
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length).position(offset);
+        return slice.slice();
+    }
+
+    private boolean matches(int i, String name)
+    {
+        int offset = nameOffsets[i];
+        if (nameOffsets[i + 1] - offset != name.length())
+            return false;
+        for (int j = 0; j < name.length(); j++) {
+            if (names[offset + j] != name.charAt(j))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean matches(int i, byte[] name)
+    {
+        int offset = nameOffsets[i];
+        if (nameOffsets[i + 1] - offset != name.length)
+            return false;
+        for (int j = 0; j < name.length; j++) {
+            if (names[offset + j] != name[j])
+                return false;
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int from, int to)
+    {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h;
+    }
+
+    private static byte[] toUTF8(String name)
+    {
+        try {
+            return name.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param buf the content of a jar file
+     * @return the position of the end of central directory record
+     * @throws ZipException if the record is not found
+     */
+    private static int findEnd(ByteBuffer buf) throws ZipException
+    {
+        int min = Math.max(0, buf.limit() - ENDHDR - 0xFFFF);
+        for (int pos = buf.limit() - ENDHDR; pos >= min; pos--) {
+            if (buf.getInt(pos) == ENDSIG && pos + ENDHDR + (buf.getShort(pos + 20) & 0xFFFF) == buf.limit())
+                return pos;
+        }
+        throw new ZipException("End of central directory not found");
+    }
+
+    /**
+     * Release a mapping immediately, using the cleaner of the Sun JVM. If not available, the mapping is released when
+     * garbage collected.
+     * 
+     * @param mapping the mapping to be released
+     */
+    private static void unmap(MappedByteBuffer mapping)
+    {
+        try {
+            Class< ? > unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), mapping);
+        } catch (NoSuchMethodException e) {
+            try {
+                Method cleanerMethod = mapping.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(mapping);
+                if (cleaner != null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            } catch (Exception ex) {
+            }
+        } catch (Exception e) {
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * This class reports the outcome of the preloading of classes by a DynamicURLClassLoader.
+ * 
+ * @see lu.softec.net.DynamicURLClassLoader#preload(String...)
+ */
+public class PreloadResult
+{
+    private final int classCount;
+
+    private final int loadedCount;
+
+    private final int failedCount;
+
+    private final long elapsedNanos;
+
+    private final Map<String, Throwable> failures;
+
+    PreloadResult(int classCount, int loadedCount, int failedCount, long elapsedNanos, Map<String, Throwable> failures)
+    {
+        this.classCount = classCount;
+        this.loadedCount = loadedCount;
+        this.failedCount = failedCount;
+        this.elapsedNanos = elapsedNanos;
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return the number of classes requested for preloading
+     */
+    public int getClassCount()
+    {
+        return classCount;
+    }
+
+    /**
+     * @return the number of classes successfully loaded
+     */
+    public int getLoadedCount()
+    {
+        return loadedCount;
+    }
+
+    /**
+     * @return the number of classes that failed to load
+     */
+    public int getFailedCount()
+    {
+        return failedCount;
+    }
+
+    /**
+     * @return the time spent preloading, in milliseconds
+     */
+    public long getElapsedMillis()
+    {
+        return elapsedNanos / 1000000L;
+    }
+
+    /**
+     * @return the time spent preloading, in nanoseconds
+     */
+    public long getElapsedNanos()
+    {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the errors of the classes that failed to load, limited to the first ones reported
+     */
+    public Map<String, Throwable> getFailures()
+    {
+        return failures;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PreloadResult[classes=" + classCount + ", loaded=" + loadedCount + ", failed=" + failedCount
+            + ", elapsed=" + getElapsedMillis() + "ms]";
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This service runs cleanup actions as soon as objects become unreachable, using phantom references processed by a
+ * dedicated daemon thread. It replaces finalization of class loaders and jar connections, so their jar files are
+ * closed without waiting for the finalizer thread and without delaying the collection of these objects. A cleanup
+ * action must not refer to the object it cleans up, or that object will never become unreachable.
+ * 
+ * @see lu.softec.net.DynamicURLClassLoader#stop()
+ * @see lu.softec.net.DynamicJarURLConnection#close()
+ */
+public class ReclamationService implements ReclamationServiceMXBean
+{
+    private static final ReclamationService defaultService = new ReclamationService();
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    private final Set<Registration> registrations =
+        Collections.newSetFromMap(new ConcurrentHashMap<Registration, Boolean>());
+
+    private final LongAdder registered = new LongAdder();
+
+    private final LongAdder reclaimed = new LongAdder();
+
+    private final LongAdder reclaimedHandles = new LongAdder();
+
+    private volatile Thread thread;
+
+    private ReclamationService()
+    {
+    }
+
+    /**
+     * @return the service used by DynamicURLClassLoader, DynamicJarURLConnection and CachedURLClassLoaderFactory
+     */
+    public static ReclamationService getDefault()
+    {
+        return defaultService;
+    }
+
+    public long getRegisteredCount()
+    {
+        return registered.sum();
+    }
+
+    public int getPendingCount()
+    {
+        return registrations.size();
+    }
+
+    public long getReclaimedCount()
+    {
+        return reclaimed.sum();
+    }
+
+    public long getReclaimedHandleCount()
+    {
+        return reclaimedHandles.sum();
+    }
+
+    /**
+     * Register an action to be run once the given object becomes unreachable.
+     * 
+     * @param referent the object to follow
+     * @param action the cleanup action, not referring to the object
+     * @return the registration, allowing to run the action earlier or to cancel it
+     */
+    Registration register(Object referent, Runnable action)
+    {
+        if (thread == null)
+            start();
+        Registration registration = new Registration(referent, action, this);
+        registrations.add(registration);
+        registered.increment();
+        return registration;
+    }
+
+    /**
+     * Count jar files closed by a cleanup action.
+     * 
+     * @param count the number of jar files closed
+     */
+    void handlesReclaimed(int count)
+    {
+        if (count > 0)
+            reclaimedHandles.add(count);
+    }
+
+    private synchronized void start()
+    {
+        if (thread != null)
+            return;
+        Thread t = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                processQueue();
+            }
+        }, "ReclamationService");
+        t.setDaemon(true);
+        t.start();
+        thread = t;
+    }
+
+    /**
+     * Cleanup loop, running the actions of unreachable objects as they are enqueued.
+     */
+    private void processQueue()
+    {
+        for (;;) {
+            try {
+                Registration registration = (Registration) queue.remove();
+                if (registration.unregister()) {
+                    reclaimed.increment();
+                    registration.action.run();
+                }
+            } catch (InterruptedException e) {
+                // The daemon thread lives as long as the JVM
+            } catch (Throwable t) {
+                // A failing action should not stop other cleanups
+            }
+        }
+    }
+
+    /**
+     * Registration of a cleanup action for an object.
+     */
+    static final class Registration extends PhantomReference<Object>
+    {
+        private final Runnable action;
+
+        private final ReclamationService service;
+
+        private Registration(Object referent, Runnable action, ReclamationService service)
+        {
+            super(referent, service.queue);
+            this.action = action;
+            this.service = service;
+        }
+
+        /**
+         * Run the cleanup action now, unless already done or cancelled.
+         */
+        void clean()
+        {
+            if (unregister())
+                action.run();
+        }
+
+        /**
+         * Cancel the cleanup action.
+         * 
+         * @return true if the action was still registered
+         */
+        boolean unregister()
+        {
+            clear();
+            return service.registrations.remove(this);
+        }
+    }
+}
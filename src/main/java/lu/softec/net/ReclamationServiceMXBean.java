@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+/**
+ * Management interface of the ReclamationService.
+ * 
+ * @see lu.softec.net.Management#registerReclamationService()
+ */
+public interface ReclamationServiceMXBean
+{
+    /**
+     * @return the number of objects registered for cleanup
+     */
+    long getRegisteredCount();
+
+    /**
+     * @return the number of registered objects not yet cleaned up
+     */
+    int getPendingCount();
+
+    /**
+     * @return the number of cleanups run because the object became unreachable
+     */
+    long getReclaimedCount();
+
+    /**
+     * @return the number of jar files closed by cleanups of unreachable class loaders and connections
+     */
+    long getReclaimedHandleCount();
+}
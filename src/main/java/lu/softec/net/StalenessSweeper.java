@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class checks the outdated status of many class loaders in parallel, using a bounded pool of threads. Jar
+ * files shared by several class loaders are checked only once, the remaining checks of a class loader are skipped as
+ * soon as it is known to be outdated, and the sweep is abandoned after a given deadline.
+ * 
+ * @see lu.softec.net.CachedURLClassLoaderFactory#refreshCache()
+ */
+class StalenessSweeper
+{
+    private static final AtomicInteger sweeperCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param parallelism the maximum number of checks running concurrently
+     */
+    StalenessSweeper(int parallelism)
+    {
+        final String prefix = "StalenessSweeper-" + sweeperCount.incrementAndGet() + "-";
+        executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, prefix + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Check the given class loaders and return those that are outdated. Class loaders whose checks have not
+     * completed before the deadline are not considered outdated.
+     * 
+     * @param classLoaders the class loaders to be checked
+     * @param timeout the maximum time in milliseconds to wait for the checks, 0 to wait until all checks are done
+     * @return the class loaders found outdated
+     */
+    <T extends DynamicURLClassLoader> Collection<T> sweep(Collection<T> classLoaders, long timeout)
+    {
+        Map<String, Check> checks = new LinkedHashMap<String, Check>();
+        for (DynamicURLClassLoader classLoader : classLoaders) {
+            if (classLoader.isMarkedOutdated())
+                continue;
+            for (DynamicJarURLConnection uc : classLoader.getCheckedConnections()) {
+                String key = uc.getVersionKey();
+                Check check = checks.get(key);
+                if (check == null) {
+                    check = new Check(uc);
+                    checks.put(key, check);
+                }
+                check.classLoaders.add(classLoader);
+            }
+        }
+
+        if (!checks.isEmpty()) {
+            CountDownLatch done = new CountDownLatch(checks.size());
+            List<Future< ? >> futures = new ArrayList<Future< ? >>(checks.size());
+            for (Check check : checks.values()) {
+                check.done = done;
+                try {
+                    futures.add(executor.submit(check));
+                } catch (RejectedExecutionException e) {
+                    done.countDown();
+                }
+            }
+            try {
+                if (timeout > 0) {
+                    done.await(timeout, TimeUnit.MILLISECONDS);
+                } else {
+                    done.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Future< ? > future : futures) {
+                future.cancel(false);
+            }
+        }
+
+        Collection<T> result = new ArrayList<T>();
+        for (T classLoader : classLoaders) {
+            if (classLoader.isMarkedOutdated())
+                result.add(classLoader);
+        }
+        return result;
+    }
+
+    /**
+     * Release the threads of this sweeper.
+     */
+    void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    /**
+     * Check of a single version of a jar file, shared by the class loaders using it.
+     */
+    private static class Check implements Runnable
+    {
+        private final DynamicJarURLConnection uc;
+
+        private final Collection<DynamicURLClassLoader> classLoaders = new ArrayList<DynamicURLClassLoader>();
+
+        private CountDownLatch done;
+
+        Check(DynamicJarURLConnection uc)
+        {
+            this.uc = uc;
+        }
+
+        public void run()
+        {
+            try {
+                if (isNeeded() && uc.isOutdated()) {
+                    for (DynamicURLClassLoader classLoader : classLoaders) {
+                        classLoader.setOutdated();
+                    }
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        /**
+         * @return false if all class loaders using this jar file are already known to be outdated
+         */
+        private boolean isNeeded()
+        {
+            for (DynamicURLClassLoader classLoader : classLoaders) {
+                if (!classLoader.isMarkedOutdated())
+                    return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a persistent cache of the output of ClassTransformerChains, kept in a local directory. Each output is
+ * stored in a file named after a SHA-256 digest of the class name, its input bytecode and the class names and
+ * versions of the transformers, so it survives restarts and is never reused for a different input or a new version
+ * of a transformer. Classes left unchanged by the transformers are recorded by an empty file. Files are written
+ * atomically, and the cache may be shared by several chains and processes.
+ * 
+ * @see lu.softec.net.ClassTransformerChain#setCache(TransformedClassCache)
+ */
+public class TransformedClassCache
+{
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final File directory;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder writes = new LongAdder();
+
+    /**
+     * Constructs a cache in the given directory, reusing the outputs already stored in it.
+     * 
+     * @param directory the directory of the cache, created if needed
+     * @throws IOException if the directory could not be created
+     */
+    public TransformedClassCache(File directory) throws IOException
+    {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Unable to create the cache directory " + directory);
+        this.directory = directory;
+    }
+
+    /**
+     * @return the directory of this cache
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * @return the number of outputs served from this cache
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of outputs not found in this cache
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of outputs stored in this cache
+     */
+    public long getWriteCount()
+    {
+        return writes.sum();
+    }
+
+    /**
+     * Delete all the outputs stored in this cache, like those of old versions of the transformers.
+     */
+    public void clear()
+    {
+        File[] dirs = directory.listFiles();
+        if (dirs == null)
+            return;
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files == null)
+                continue;
+            for (File file : files) {
+                if (file.getName().endsWith(CLASS_SUFFIX))
+                    file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    /**
+     * @param className the binary name of a class
+     * @param classfile the input bytecode of the class
+     * @param chain the transformers applied to the class
+     * @return the key of the output of the transformers for this class
+     */
+    static String getKey(String className, byte[] classfile, ClassTransformer[] chain)
+    {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(md, className);
+        md.update(classfile);
+        for (ClassTransformer transformer : chain) {
+            update(md, transformer.getClass().getName());
+            update(md, String.valueOf(transformer.getVersion()));
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Add a length-prefixed string to a digest, so consecutive strings could not be confused.
+     */
+    private static void update(MessageDigest md, String value)
+    {
+        byte[] bytes = value.getBytes(UTF8);
+        md.update(new byte[] {(byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16),
+            (byte) (bytes.length >>> 8), (byte) bytes.length});
+        md.update(bytes);
+    }
+
+    /**
+     * @param key the key of an output
+     * @return the stored output, an empty array if the class was left unchanged, or null if not stored
+     */
+    byte[] get(String key)
+    {
+        File file = getFile(key);
+        if (file.isFile()) {
+            try {
+                InputStream in = new FileInputStream(file);
+                try {
+                    byte[] output = DynamicURLClassLoader.readFully(in, (int) file.length());
+                    hits.increment();
+                    return output;
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // Transformed again
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Store an output. Failures are ignored, the class will simply be transformed again.
+     * 
+     * @param key the key of the output
+     * @param output the transformed bytecode, or null if the class was left unchanged
+     */
+    void put(String key, byte[] output)
+    {
+        File file = getFile(key);
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs())
+            return;
+        try {
+            File tmp = File.createTempFile(key, ".tmp", dir);
+            try {
+                OutputStream out = new FileOutputStream(tmp);
+                try {
+                    if (output != null)
+                        out.write(output);
+                } finally {
+                    out.close();
+                }
+                if (tmp.renameTo(file) || file.isFile())
+                    writes.increment();
+            } finally {
+                tmp.delete();
+            }
+        } catch (IOException e) {
+        }
+    }
+
+    /**
+     * @param key the key of an output
+     * @return the file storing this output, in a subdirectory named after the first two characters of the key
+     */
+    private File getFile(String key)
+    {
+        return new File(new File(directory, key.substring(0, 2)), key.substring(2) + CLASS_SUFFIX);
+    }
+}
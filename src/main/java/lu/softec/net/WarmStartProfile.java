@@ -0,0 +1,277 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class is a warm-start profile of a CachedURLClassLoaderFactory: the class paths of the class loaders it
+ * created, and the classes each of them defined. A profile attached to a factory records its class loaders, and is
+ * saved to a compact file, usually before shutdown. On the next startup, the profile is loaded and replayed on a new
+ * factory, which rebuilds the recorded class loaders and preloads their classes in parallel before taking traffic.
+ * Parent class loaders and custom stream handler factories are not recorded, and are provided when replaying.
+ * 
+ * @see lu.softec.net.CachedURLClassLoaderFactory#setWarmStartProfile(WarmStartProfile)
+ */
+public class WarmStartProfile
+{
+    private static final int MAGIC = 0x57535046;
+
+    private static final int VERSION = 1;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+    private final Lock lock = new ReentrantLock();
+
+    /**
+     * Load a profile saved by <code>save()</code>.
+     * 
+     * @param file the profile file
+     * @return the loaded profile
+     * @throws IOException if the file could not be read or is not a profile
+     */
+    public static WarmStartProfile load(File file) throws IOException
+    {
+        WarmStartProfile profile = new WarmStartProfile();
+        DataInputStream in =
+            new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Not a warm-start profile: " + file);
+            int count = readCount(in, file);
+            for (int i = 0; i < count; i++) {
+                URL[] urls = new URL[readCount(in, file)];
+                for (int j = 0; j < urls.length; j++) {
+                    urls[j] = new URL(in.readUTF());
+                }
+                Entry entry = profile.getEntry(urls);
+                int classCount = readCount(in, file);
+                for (int j = 0; j < classCount; j++) {
+                    entry.classNames.add(in.readUTF());
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return profile;
+    }
+
+    /**
+     * @param in the profile being read
+     * @param file the profile file
+     * @return the count read
+     * @throws IOException if the count could not be read or is negative
+     */
+    private static int readCount(DataInputStream in, File file) throws IOException
+    {
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException("Corrupted warm-start profile: " + file);
+        return count;
+    }
+
+    /**
+     * Save this profile, including the classes defined so far by the recorded class loaders still alive. The file is
+     * replaced atomically.
+     * 
+     * @param file the profile file
+     * @throws IOException if the file could not be written
+     */
+    public void save(File file) throws IOException
+    {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))));
+            try {
+                List<Entry> snapshot = snapshot();
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(snapshot.size());
+                for (Entry entry : snapshot) {
+                    out.writeInt(entry.urls.length);
+                    for (URL url : entry.urls) {
+                        out.writeUTF(url.toExternalForm());
+                    }
+                    out.writeInt(entry.classNames.size());
+                    for (String name : entry.classNames) {
+                        out.writeUTF(name);
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Rebuild the recorded class loaders with the given factory, and preload their recorded classes in parallel.
+     * 
+     * @param factory the factory creating the class loaders
+     * @param parent the parent class loader of the class loaders
+     * @param pool the fork-join pool used to load the classes, or null to use a shared pool
+     * @return the futures reporting the outcome of the preloading of each class loader, in recording order
+     */
+    public List<Future<PreloadResult>> replay(CachedURLClassLoaderFactory factory, ClassLoader parent,
+        ForkJoinPool pool)
+    {
+        List<Future<PreloadResult>> results = new ArrayList<Future<PreloadResult>>();
+        for (Entry entry : snapshot()) {
+            ComparableURLClassLoader classLoader = factory.getURLClassLoader(ClassPathKey.of(entry.urls, parent));
+            results.add(classLoader.preload(entry.classNames, pool));
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of class paths recorded
+     */
+    public int getLoaderCount()
+    {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of classes recorded, including the classes defined so far by the recorded class loaders
+     */
+    public int getClassCount()
+    {
+        int count = 0;
+        for (Entry entry : snapshot()) {
+            count += entry.classNames.size();
+        }
+        return count;
+    }
+
+    /**
+     * Record a class loader created by a factory, so its defined classes are part of this profile.
+     * 
+     * @param classLoader the created class loader
+     */
+    void record(DynamicURLClassLoader classLoader)
+    {
+        lock.lock();
+        try {
+            getEntry(classLoader.getURLs()).classLoaders.add(new WeakReference<DynamicURLClassLoader>(classLoader));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param urls a class path
+     * @return the entry of the class path, created if needed
+     */
+    private Entry getEntry(URL[] urls)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (URL url : urls) {
+            sb.append(url.toExternalForm()).append('\n');
+        }
+        String key = sb.toString();
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(urls.clone());
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Merge the classes defined by the recorded class loaders still alive into their entries, and forget the others.
+     * 
+     * @return a copy of the entries, in recording order
+     */
+    private List<Entry> snapshot()
+    {
+        lock.lock();
+        try {
+            List<Entry> snapshot = new ArrayList<Entry>(entries.size());
+            for (Entry entry : entries.values()) {
+                Iterator<WeakReference<DynamicURLClassLoader>> it = entry.classLoaders.iterator();
+                while (it.hasNext()) {
+                    DynamicURLClassLoader classLoader = it.next().get();
+                    if (classLoader == null) {
+                        it.remove();
+                        continue;
+                    }
+                    entry.classNames.addAll(classLoader.getDefinedClassNames());
+                }
+                Entry copy = new Entry(entry.urls);
+                copy.classNames.addAll(entry.classNames);
+                snapshot.add(copy);
+            }
+            return snapshot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The recorded class path of class loaders, and the classes they defined, sorted for a compact profile file.
+     */
+    private static final class Entry
+    {
+        private final URL[] urls;
+
+        private final Set<String> classNames = new TreeSet<String>();
+
+        private final Collection<WeakReference<DynamicURLClassLoader>> classLoaders =
+            new ArrayList<WeakReference<DynamicURLClassLoader>>();
+
+        Entry(URL[] urls)
+        {
+            this.urls = urls;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the creation of class loaders by CachedURLClassLoaderFactory.
+ */
+public class CachedURLClassLoaderFactoryTest extends TestCase
+{
+    private static final int THREADS = 8;
+
+    private File dir;
+
+    private URL jar;
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("factory");
+        jar = new TestJars().add("res/a.txt", "a").write(new File(dir, "a.jar")).toURI().toURL();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        TestJars.delete(dir);
+    }
+
+    public void testCreatedOnceForConcurrentRequests() throws Exception
+    {
+        final CachedURLClassLoaderFactory factory = new CachedURLClassLoaderFactory();
+        final ClassPathKey key = ClassPathKey.of(new URL[] {jar}, null);
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<ComparableURLClassLoader>> futures = new ArrayList<Future<ComparableURLClassLoader>>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(new Callable<ComparableURLClassLoader>()
+            {
+                public ComparableURLClassLoader call() throws Exception
+                {
+                    barrier.await();
+                    return factory.getURLClassLoader(key);
+                }
+            }));
+        }
+        ComparableURLClassLoader classLoader = futures.get(0).get(30, TimeUnit.SECONDS);
+        for (Future<ComparableURLClassLoader> future : futures) {
+            assertSame(classLoader, future.get(30, TimeUnit.SECONDS));
+        }
+        assertEquals(1, factory.getStatNewLoader());
+        assertEquals(THREADS - 1, factory.getStatReusedLoader());
+        classLoader.stop();
+    }
+
+    public void testListenerMayRequestCreatedLoader() throws Exception
+    {
+        final CachedURLClassLoaderFactory factory = new CachedURLClassLoaderFactory();
+        final ClassPathKey key = ClassPathKey.of(new URL[] {jar}, null);
+        final AtomicReference<ComparableURLClassLoader> requested = new AtomicReference<ComparableURLClassLoader>();
+        factory.addClassLoaderListener(new ClassLoaderListener()
+        {
+            public void onEvent(ClassLoaderEvent event)
+            {
+                if (event.getType() == ClassLoaderEvent.Type.CREATED)
+                    requested.set(factory.getURLClassLoader(key));
+            }
+        });
+        Future<ComparableURLClassLoader> future = executor.submit(new Callable<ComparableURLClassLoader>()
+        {
+            public ComparableURLClassLoader call()
+            {
+                return factory.getURLClassLoader(key);
+            }
+        });
+        // A request waiting for its own creation would never complete
+        ComparableURLClassLoader classLoader = future.get(30, TimeUnit.SECONDS);
+        assertSame(classLoader, requested.get());
+        assertEquals(1, factory.getStatNewLoader());
+        classLoader.stop();
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Child;
+import lu.softec.net.fixtures.Other;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of the notification of the lifecycle of class loaders to the listeners of a CachedURLClassLoaderFactory.
+ */
+public class ClassLoaderEventTest extends TestCase
+{
+    private File dir;
+
+    private File jar;
+
+    private URL[] urls;
+
+    private CachedURLClassLoaderFactory factory;
+
+    private List<ClassLoaderEvent> events;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("events");
+        jar = new TestJars().add(Other.class).add(Parent.class).add(Child.class).add("res/one.txt", "one").write(new File(dir, "lib.jar"));
+        assertTrue(jar.setLastModified(1500000000000L));
+        urls = new URL[] {jar.toURI().toURL()};
+        factory = new CachedURLClassLoaderFactory();
+        // Jar files opened through the package index are registered with their class loader
+        factory.setIndexedLoaders(true);
+        events = new CopyOnWriteArrayList<ClassLoaderEvent>();
+        factory.addClassLoaderListener(new ClassLoaderListener()
+        {
+            public void onEvent(ClassLoaderEvent event)
+            {
+                events.add(event);
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testCreatedAndStopped() throws Exception
+    {
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        assertEquals(1, events.size());
+        ClassLoaderEvent event = events.get(0);
+        assertEquals(ClassLoaderEvent.Type.CREATED, event.getType());
+        assertSame(classLoader, event.getClassLoader());
+        assertNull(event.getPreviousClassLoader());
+        assertEquals(1, event.getClassPath().length);
+        assertEquals(1, event.getJarCount());
+        assertTrue(event.getDuration() >= 0);
+
+        // Reused class loaders are not notified
+        assertSame(classLoader, factory.getURLClassLoader(urls, null));
+        assertEquals(1, events.size());
+
+        loadClasses(classLoader);
+        InputStream in = classLoader.getResourceAsStream("res/one.txt");
+        // Several connections are opened on the single jar file, which is counted once
+        assertTrue(classLoader.getConnections().size() > 1);
+        assertEquals(1, classLoader.getJarCount());
+        assertFalse(classLoader.stop());
+        event = events.get(1);
+        assertEquals(ClassLoaderEvent.Type.STOP_ATTEMPTED, event.getType());
+        assertSame(classLoader, event.getClassLoader());
+        assertEquals(1, event.getJarCount());
+
+        in.close();
+        assertTrue(classLoader.stop());
+        event = events.get(2);
+        assertEquals(ClassLoaderEvent.Type.STOP_COMPLETED, event.getType());
+        assertEquals(1, event.getJarCount());
+
+        // Completion is only notified once
+        assertTrue(classLoader.stop());
+        assertEquals(3, events.size());
+    }
+
+    public void testStalenessDetected() throws Exception
+    {
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        loadClasses(classLoader);
+        assertTrue(jar.setLastModified(1500000010000L));
+
+        ComparableURLClassLoader replacement = factory.getURLClassLoader(urls, null);
+        assertNotSame(classLoader, replacement);
+        assertEquals(getTypes(ClassLoaderEvent.Type.CREATED, ClassLoaderEvent.Type.STALENESS_DETECTED,
+            ClassLoaderEvent.Type.STOP_COMPLETED, ClassLoaderEvent.Type.CREATED), getTypes(events));
+        ClassLoaderEvent event = events.get(1);
+        assertSame(classLoader, event.getClassLoader());
+        assertEquals(1, event.getJarCount());
+        assertEquals(1, events.get(2).getJarCount());
+        assertSame(replacement, events.get(3).getClassLoader());
+
+        // Staleness is only notified once
+        assertTrue(classLoader.isOutdated());
+        assertEquals(4, events.size());
+        replacement.stop();
+    }
+
+    public void testSwapped() throws Exception
+    {
+        factory.setStaleWhileRevalidate(true);
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        loadClasses(classLoader);
+        assertTrue(jar.setLastModified(1500000010000L));
+
+        assertSame(classLoader, factory.getURLClassLoader(urls, null));
+        ClassLoaderEvent swapped = waitFor(ClassLoaderEvent.Type.SWAPPED);
+        assertSame(classLoader, swapped.getPreviousClassLoader());
+        assertNotSame(classLoader, swapped.getClassLoader());
+        assertEquals(1, swapped.getJarCount());
+        assertSame(swapped.getClassLoader(), factory.getURLClassLoader(urls, null));
+        assertTrue(classLoader.isStopped());
+        swapped.getClassLoader().stop();
+    }
+
+    public void testFailingListener() throws Exception
+    {
+        final List<ClassLoaderEvent> others = new CopyOnWriteArrayList<ClassLoaderEvent>();
+        factory.addClassLoaderListener(new ClassLoaderListener()
+        {
+            public void onEvent(ClassLoaderEvent event)
+            {
+                throw new IllegalStateException("Failing listener");
+            }
+        });
+        factory.addClassLoaderListener(new ClassLoaderListener()
+        {
+            public void onEvent(ClassLoaderEvent event)
+            {
+                others.add(event);
+            }
+        });
+
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        assertTrue(classLoader.stop());
+        assertEquals(getTypes(events), getTypes(others));
+        assertEquals(2, others.size());
+    }
+
+    private static void loadClasses(ClassLoader classLoader) throws ClassNotFoundException
+    {
+        classLoader.loadClass(Other.class.getName());
+        classLoader.loadClass(Parent.class.getName());
+        classLoader.loadClass(Child.class.getName());
+    }
+
+    private ClassLoaderEvent waitFor(ClassLoaderEvent.Type type) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            for (ClassLoaderEvent event : events) {
+                if (event.getType() == type)
+                    return event;
+            }
+            Thread.sleep(10);
+        }
+        fail("No " + type + " event in " + events);
+        return null;
+    }
+
+    private static List<ClassLoaderEvent.Type> getTypes(ClassLoaderEvent.Type... types)
+    {
+        List<ClassLoaderEvent.Type> result = new ArrayList<ClassLoaderEvent.Type>();
+        for (ClassLoaderEvent.Type type : types) {
+            result.add(type);
+        }
+        return result;
+    }
+
+    private static List<ClassLoaderEvent.Type> getTypes(List<ClassLoaderEvent> events)
+    {
+        List<ClassLoaderEvent.Type> result = new ArrayList<ClassLoaderEvent.Type>();
+        for (ClassLoaderEvent event : events) {
+            result.add(event.getType());
+        }
+        return result;
+    }
+}
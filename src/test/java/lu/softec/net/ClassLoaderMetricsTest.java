@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Child;
+import lu.softec.net.fixtures.Other;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of the metrics of a DynamicURLClassLoader.
+ */
+public class ClassLoaderMetricsTest extends TestCase
+{
+    private File dir;
+
+    private URL jar;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("metrics");
+        jar = new TestJars().add(Parent.class).add(Child.class).add(Other.class).write(new File(dir, "fixtures.jar")).toURI().toURL();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testBytesReadWithoutIndex() throws Exception
+    {
+        // Read and defined by the URLClassLoader
+        checkBytesRead(false, null, 0);
+    }
+
+    public void testBytesReadWithIndex() throws Exception
+    {
+        checkBytesRead(true, null, TestJars.getBytes(Parent.class).length + TestJars.getBytes(Child.class).length
+            + TestJars.getBytes(Other.class).length);
+    }
+
+    public void testBytesReadWithTransformerChain() throws Exception
+    {
+        checkBytesRead(false, new ClassTransformerChain(), TestJars.getBytes(Parent.class).length
+            + TestJars.getBytes(Child.class).length + TestJars.getBytes(Other.class).length);
+    }
+
+    private void checkBytesRead(boolean indexed, ClassTransformerChain chain, long bytes) throws Exception
+    {
+        DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {jar}, null);
+        loader.setIndexed(indexed);
+        loader.setTransformerChain(chain);
+        boolean stopped = false;
+        try {
+            loader.loadClass(Child.class.getName());
+            loader.loadClass(Other.class.getName());
+            ClassLoaderMetrics metrics = loader.getMetrics();
+            assertEquals(3, metrics.getClassesDefined());
+            assertEquals(bytes, metrics.getBytesRead());
+            assertEquals(3, metrics.getFindClassCount());
+
+            // Loading classes does not hold a connection per class
+            assertTrue(loader.getConnections().size() <= 1);
+            stopped = loader.stop();
+            assertTrue(stopped);
+        } finally {
+            if (!stopped)
+                loader.stop();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the package index used by DynamicURLClassLoader lookups.
+ */
+public class ClassPathIndexTest extends TestCase
+{
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("index");
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testIndexedLookups() throws IOException
+    {
+        File a = new TestJars().add("a/first.txt", "a").add("shared/one.txt", "a").write(new File(dir, "a.jar"));
+        File b = new TestJars().add("b/second.txt", "b").add("shared/one.txt", "b").write(new File(dir, "b.jar"));
+        DynamicURLClassLoader loader = newIndexedLoader(a, b);
+        try {
+            assertNotNull(loader.getResource("a/first.txt"));
+            assertNotNull(loader.getResource("b/second.txt"));
+            assertNull(loader.getResource("c/third.txt"));
+            assertTrue(loader.getResource("shared/one.txt").toExternalForm().contains("a.jar!"));
+        } finally {
+            loader.stop();
+        }
+    }
+
+    public void testClassPathManifestEntriesAreFollowed() throws IOException
+    {
+        new TestJars().add("b/second.txt", "b").write(new File(dir, "b.jar"));
+        File a = new TestJars().add("a/first.txt", "a").classPath("b.jar").write(new File(dir, "a.jar"));
+        DynamicURLClassLoader loader = newIndexedLoader(a);
+        try {
+            assertNotNull(loader.getResource("a/first.txt"));
+            assertNotNull(loader.getResource("b/second.txt"));
+        } finally {
+            loader.stop();
+        }
+    }
+
+    private static DynamicURLClassLoader newIndexedLoader(File... files) throws IOException
+    {
+        URL[] urls = new URL[files.length];
+        for (int i = 0; i < files.length; i++) {
+            urls[i] = files[i].toURI().toURL();
+        }
+        DynamicURLClassLoader loader = new DynamicURLClassLoader(urls, null);
+        loader.setIndexed(true);
+        return loader;
+    }
+}
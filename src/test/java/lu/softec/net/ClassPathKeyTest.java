@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the hashing, normalization and interning of ClassPathKey.
+ */
+public class ClassPathKeyTest extends TestCase
+{
+    private static final ClassLoader parent = ClassPathKeyTest.class.getClassLoader();
+
+    public void testEquivalentURLsNormalized() throws Exception
+    {
+        ClassPathKey key = new ClassPathKey(new URL[] {new URL("file:/tmp/a/lib.jar")}, parent, null);
+        ClassPathKey dotted = new ClassPathKey(new URL[] {new URL("file:/tmp/a/./b/../lib.jar")}, parent, null);
+
+        assertEquals(key, dotted);
+        assertEquals(key.longHashCode(), dotted.longHashCode());
+        assertEquals("file:/tmp/a/lib.jar", dotted.getURLs()[0].toExternalForm());
+    }
+
+    public void testDistinctKeys() throws Exception
+    {
+        URL[] urls = new URL[] {new URL("file:/tmp/a/lib.jar")};
+        ClassPathKey key = new ClassPathKey(urls, parent, null);
+
+        assertFalse(key.equals(new ClassPathKey(new URL[] {new URL("file:/tmp/b/lib.jar")}, parent, null)));
+        assertFalse(key.equals(new ClassPathKey(urls, null, null)));
+    }
+
+    public void testCollidingHashesUnequal() throws Exception
+    {
+        URL[] urls = new URL[] {new URL("file:/tmp/collision/a.jar")};
+        ClassPathKey key = ClassPathKey.of(urls, parent);
+        ClassPathKey other = new ClassPathKey(new URL[] {new URL("file:/tmp/collision/b.jar")}, parent, null);
+        Field hash = ClassPathKey.class.getDeclaredField("hash");
+        hash.setAccessible(true);
+        hash.setLong(other, key.longHashCode());
+
+        assertEquals(key.hashCode(), other.hashCode());
+        assertFalse(key.equals(other));
+        assertFalse(other.equals(key));
+
+        // The colliding key is not interned in place of the existing one
+        Method intern = ClassPathKey.class.getDeclaredMethod("intern");
+        intern.setAccessible(true);
+        assertSame(other, intern.invoke(other));
+        assertSame(key, ClassPathKey.of(urls, parent));
+    }
+
+    public void testInternedKeyReused() throws Exception
+    {
+        URL[] urls = new URL[] {new URL("file:/tmp/interned/lib.jar")};
+        ClassPathKey key = ClassPathKey.of(urls, parent);
+
+        assertSame(key, ClassPathKey.of(urls, parent));
+        assertSame(key, ClassPathKey.of(new URL[] {new URL("file:/tmp/interned/./lib.jar")}, parent));
+        assertNotSame(key, ClassPathKey.of(urls, null));
+    }
+
+    public void testInternedKeyCollected() throws Exception
+    {
+        ClassPathKey key = ClassPathKey.of(new URL[] {new URL("file:/tmp/collected/lib.jar")}, parent);
+        Long hash = Long.valueOf(key.longHashCode());
+        Map<?, ?> interned = getInterned();
+        assertTrue(interned.containsKey(hash));
+
+        WeakReference<ClassPathKey> ref = new WeakReference<ClassPathKey>(key);
+        key = null;
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((ref.get() != null || interned.containsKey(hash)) && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNull(ref.get());
+        assertFalse(interned.containsKey(hash));
+    }
+
+    private static Map<?, ?> getInterned() throws Exception
+    {
+        Field field = ClassPathKey.class.getDeclaredField("interned");
+        field.setAccessible(true);
+        return (Map<?, ?>) field.get(null);
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Child;
+import lu.softec.net.fixtures.Other;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of the parallel preloading of the classes of a DynamicURLClassLoader.
+ */
+public class ClassPreloaderTest extends TestCase
+{
+    private File dir;
+
+    private File jar;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("preload");
+        TestJars builder = new TestJars().add(Parent.class).add(Child.class).add(Other.class);
+        for (int i = 0; i < 40; i++) {
+            String name = "generated.C" + i;
+            builder.add(name.replace('.', '/') + ".class", TestJars.createClass(name));
+        }
+        jar = builder.add("res/one.txt", "one").write(new File(dir, "lib.jar"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testPreloadClassPath() throws Exception
+    {
+        DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {jar.toURI().toURL()}, null);
+        try {
+            PreloadResult result = loader.preload().get(30, TimeUnit.SECONDS);
+            assertEquals(43, result.getClassCount());
+            assertEquals(43, result.getLoadedCount());
+            assertEquals(0, result.getFailedCount());
+            assertEquals(43, loader.getDefinedClassNames().size());
+            assertTrue(loader.getDefinedClassNames().contains("generated.C39"));
+            assertTrue(loader.getDefinedClassNames().contains(Child.class.getName()));
+        } finally {
+            loader.stop();
+        }
+    }
+
+    public void testPreloadPackage() throws Exception
+    {
+        DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {jar.toURI().toURL()}, null);
+        try {
+            PreloadResult result = loader.preload(Parent.class.getPackage().getName()).get(30, TimeUnit.SECONDS);
+            assertEquals(3, result.getLoadedCount());
+            assertEquals(3, loader.getDefinedClassNames().size());
+            assertFalse(loader.getDefinedClassNames().contains("generated.C0"));
+        } finally {
+            loader.stop();
+        }
+    }
+
+    public void testFailuresDoNotAbortBatch() throws Exception
+    {
+        // Child cannot be linked without its parent
+        File partial = new TestJars().add(Child.class).add(Other.class).write(new File(dir, "partial.jar"));
+        DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {partial.toURI().toURL()}, null);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            PreloadResult result = loader.preload(
+                Arrays.asList("missing.Missing", Child.class.getName(), Other.class.getName()), pool).get(30,
+                TimeUnit.SECONDS);
+            assertEquals(3, result.getClassCount());
+            assertEquals(1, result.getLoadedCount());
+            assertEquals(2, result.getFailedCount());
+            assertTrue(result.getFailures().get("missing.Missing") instanceof ClassNotFoundException);
+            assertTrue(result.getFailures().get(Child.class.getName()) instanceof LinkageError);
+            assertEquals(Arrays.asList(Other.class.getName()), loader.getDefinedClassNames());
+        } finally {
+            pool.shutdown();
+            loader.stop();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Other;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of ClassTransformerChain and of its TransformedClassCache.
+ */
+public class ClassTransformerChainTest extends TestCase
+{
+    private File dir;
+
+    private URL jar;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("transformer");
+        jar = new TestJars().add(Parent.class).add(Other.class).write(new File(dir, "fixtures.jar")).toURI().toURL();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testTransformedClassDefined() throws Exception
+    {
+        checkTransformedClassDefined(false);
+    }
+
+    public void testTransformedClassDefinedWithIndex() throws Exception
+    {
+        checkTransformedClassDefined(true);
+    }
+
+    private void checkTransformedClassDefined(boolean indexed) throws Exception
+    {
+        Renaming renaming = new Renaming("1");
+        DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {jar}, null);
+        loader.setIndexed(indexed);
+        loader.setTransformerChain(new ClassTransformerChain(renaming));
+        try {
+            assertEquals("OTHER", newInstance(loader, Other.class).toString());
+            // Left unchanged by the transformer
+            assertEquals("Parent", newInstance(loader, Parent.class).toString());
+            assertEquals(2, renaming.calls.get());
+        } finally {
+            loader.stop();
+        }
+    }
+
+    public void testOutputReusedFromCache() throws Exception
+    {
+        File cacheDir = new File(dir, "cache");
+        byte[] input = TestJars.getBytes(Other.class);
+        byte[] unchanged = TestJars.getBytes(Parent.class);
+
+        Renaming renaming = new Renaming("1");
+        ClassTransformerChain chain = new ClassTransformerChain(renaming);
+        TransformedClassCache cache = new TransformedClassCache(cacheDir);
+        chain.setCache(cache);
+        byte[] output = chain.transform(Other.class.getName(), input);
+        assertNotSame(input, output);
+        assertSame(unchanged, chain.transform(Parent.class.getName(), unchanged));
+        assertEquals(2, chain.getTransformedCount());
+        assertEquals(2, cache.getWriteCount());
+
+        // Served from the stored outputs after a restart, without calling the transformer
+        Renaming restarted = new Renaming("1");
+        chain = new ClassTransformerChain(restarted);
+        cache = new TransformedClassCache(cacheDir);
+        chain.setCache(cache);
+        assertTrue(Arrays.equals(output, chain.transform(Other.class.getName(), input)));
+        assertSame(unchanged, chain.transform(Parent.class.getName(), unchanged));
+        assertEquals(0, restarted.calls.get());
+        assertEquals(2, cache.getHitCount());
+
+        // A new version of the transformer does not reuse the outputs of the previous one
+        Renaming upgraded = new Renaming("2");
+        chain = new ClassTransformerChain(upgraded);
+        chain.setCache(cache);
+        chain.transform(Other.class.getName(), input);
+        assertEquals(1, upgraded.calls.get());
+        assertEquals(1, cache.getMissCount());
+
+        cache.clear();
+        chain = new ClassTransformerChain(restarted);
+        chain.setCache(cache);
+        chain.transform(Other.class.getName(), input);
+        assertEquals(1, restarted.calls.get());
+    }
+
+    public void testTransformersAppliedInOrder()
+    {
+        final StringBuilder order = new StringBuilder();
+        ClassTransformerChain chain = new ClassTransformerChain();
+        for (final String name : new String[] {"a", "b", "c"}) {
+            chain.add(new ClassTransformer()
+            {
+                public String getVersion()
+                {
+                    return "1";
+                }
+
+                public byte[] transform(String className, byte[] classfile)
+                {
+                    order.append(name);
+                    byte[] output = classfile.clone();
+                    output[0]++;
+                    return output;
+                }
+            });
+        }
+        assertEquals(3, chain.transform("x.Y", new byte[] {0})[0]);
+        assertEquals("abc", order.toString());
+    }
+
+    private static Object newInstance(ClassLoader loader, Class< ? > type) throws Exception
+    {
+        Class< ? > c = loader.loadClass(type.getName());
+        assertSame(loader, c.getClassLoader());
+        return c.getConstructor().newInstance();
+    }
+
+    /**
+     * Transformer replacing the string constant "Other" by "OTHER", which keeps the bytecode valid since both have the
+     * same length.
+     */
+    private static class Renaming implements ClassTransformer
+    {
+        final AtomicInteger calls = new AtomicInteger();
+
+        private final String version;
+
+        Renaming(String version)
+        {
+            this.version = version;
+        }
+
+        public String getVersion()
+        {
+            return version;
+        }
+
+        public byte[] transform(String className, byte[] classfile)
+        {
+            calls.incrementAndGet();
+            byte[] from = {0, 5, 'O', 't', 'h', 'e', 'r'};
+            for (int i = 0; i + from.length <= classfile.length; i++) {
+                boolean match = true;
+                for (int j = 0; j < from.length && match; j++) {
+                    match = (classfile[i + j] == from[j]);
+                }
+                if (match) {
+                    byte[] output = classfile.clone();
+                    System.arraycopy(new byte[] {'O', 'T', 'H', 'E', 'R'}, 0, output, i + 2, 5);
+                    return output;
+                }
+            }
+            return null;
+        }
+    }
+}
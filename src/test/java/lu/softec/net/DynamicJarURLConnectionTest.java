@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the staleness check of DynamicJarURLConnection on local jar files.
+ */
+public class DynamicJarURLConnectionTest extends TestCase
+{
+    private File dir;
+
+    private File jar;
+
+    private DynamicURLClassLoader loader;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("connection");
+        jar = new TestJars().add("res/one.txt", "one").write(new File(dir, "lib.jar"));
+        loader = new DynamicURLClassLoader(new URL[] {jar.toURI().toURL()}, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        DynamicJarURLConnection.setDigestCheck(DigestCheck.NONE);
+        loader.stop();
+        TestJars.delete(dir);
+    }
+
+    public void testNotOutdatedWithSubsecondModificationDate() throws IOException
+    {
+        assertTrue(jar.setLastModified(1500000000123L));
+        DynamicJarURLConnection uc = connect();
+        try {
+            assertFalse(uc.isOutdated());
+        } finally {
+            uc.close();
+        }
+    }
+
+    public void testOutdatedWhenModified() throws IOException
+    {
+        assertTrue(jar.setLastModified(1500000000123L));
+        DynamicJarURLConnection uc = connect();
+        try {
+            assertTrue(jar.setLastModified(1500000010123L));
+            assertTrue(uc.isOutdated());
+        } finally {
+            uc.close();
+        }
+    }
+
+    public void testCentralDirectoryDigest() throws IOException
+    {
+        checkDigest(DigestCheck.CENTRAL_DIRECTORY);
+    }
+
+    public void testFullDigest() throws IOException
+    {
+        checkDigest(DigestCheck.FULL_DIGEST);
+    }
+
+    private void checkDigest(DigestCheck check) throws IOException
+    {
+        DynamicJarURLConnection.setDigestCheck(check);
+        assertTrue(jar.setLastModified(1500000000000L));
+        DynamicJarURLConnection uc = connect();
+        try {
+            // Rewritten with the same content
+            replace(Files.readAllBytes(jar.toPath()), 1500000010000L);
+            long suppressed = JarConnectionStatistics.getInstance().getSuppressedReloadCount();
+            assertFalse(uc.isOutdated());
+            assertEquals(suppressed + 1, JarConnectionStatistics.getInstance().getSuppressedReloadCount());
+
+            // Rewritten with an entry of the same name and size, but another content
+            File other = new TestJars().add("res/one.txt", "two").write(new File(dir, "other.jar"));
+            replace(Files.readAllBytes(other.toPath()), 1500000020000L);
+            assertTrue(uc.isOutdated());
+        } finally {
+            uc.close();
+        }
+    }
+
+    /**
+     * Replace the jar file like a deployment would, without altering the file opened by the connection.
+     */
+    private void replace(byte[] content, long lastmodified) throws IOException
+    {
+        File file = new File(dir, "lib.jar.tmp");
+        Files.write(file.toPath(), content);
+        assertTrue(file.setLastModified(lastmodified));
+        Files.move(file.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private DynamicJarURLConnection connect() throws IOException
+    {
+        URL url = loader.getResource("res/one.txt");
+        assertNotNull(url);
+        DynamicJarURLConnection uc = (DynamicJarURLConnection) url.openConnection();
+        uc.connect();
+        assertTrue(uc.isConnected());
+        return uc;
+    }
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Other;
+
+/**
+ * Tests of the caching of the content of jar file entries.
+ */
+public class EntryContentCacheTest extends TestCase
+{
+    private File dir;
+
+    private File jar;
+
+    private URL[] urls;
+
+    private EntryContentCache cache;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("entries");
+        jar = new TestJars().add(Other.class).write(new File(dir, "lib.jar"));
+        assertTrue(jar.setLastModified(1500000000000L));
+        urls = new URL[] {jar.toURI().toURL()};
+        cache = EntryContentCache.getDefault();
+        cache.clear();
+        cache.setMaxSize(1024 * 1024);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        cache.setMaxSize(0);
+        cache.clear();
+        TestJars.delete(dir);
+    }
+
+    public void testGetAndPut() throws Exception
+    {
+        EntryContentCache small = new EntryContentCache();
+        small.setMaxSize(8);
+        byte[] content = new byte[] {1, 2, 3, 4};
+        assertNull(small.get(urls[0], "a", 42, 4));
+
+        small.put(urls[0], "a", 42, content);
+        content[0] = 0;
+        ByteBuffer cached = small.get(urls[0], "a", 42, 4);
+        assertTrue(cached.isReadOnly());
+        assertEquals(1, EntryContentCache.toBytes(cached)[0]);
+        assertEquals(1, small.getHitCount());
+        assertEquals(1, small.getMissCount());
+
+        // A changed CRC or size addresses another entry
+        assertNull(small.get(urls[0], "a", 43, 4));
+        assertNull(small.get(urls[0], "a", 42, 5));
+        assertEquals(3, small.getMissCount());
+    }
+
+    public void testEviction() throws Exception
+    {
+        EntryContentCache small = new EntryContentCache();
+        small.setMaxSize(8);
+        small.put(urls[0], "a", 1, new byte[4]);
+        small.put(urls[0], "b", 2, new byte[4]);
+        small.put(urls[0], "c", 3, new byte[9]);
+        assertEquals(2, small.getEntryCount());
+
+        small.put(urls[0], "c", 3, new byte[4]);
+        assertEquals(2, small.getEntryCount());
+        assertEquals(8, small.getSize());
+        assertNull(small.get(urls[0], "a", 1, 4));
+        assertNotNull(small.get(urls[0], "c", 3, 4));
+
+        small.setMaxSize(0);
+        assertEquals(0, small.getEntryCount());
+        assertEquals(0, small.getSize());
+    }
+
+    public void testClassLoadersShareContent() throws Exception
+    {
+        CachedURLClassLoaderFactory factory = newFactory();
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        classLoader.loadClass(Other.class.getName());
+        assertTrue(classLoader.stop());
+        assertEquals(1, cache.getEntryCount());
+        long hits = cache.getHitCount();
+
+        classLoader = newFactory().getURLClassLoader(urls, null);
+        Class< ? > type = classLoader.loadClass(Other.class.getName());
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(1, type.getDeclaredMethods().length);
+        assertTrue(classLoader.stop());
+    }
+
+    public void testChangedJarInvalidated() throws Exception
+    {
+        CachedURLClassLoaderFactory factory = newFactory();
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        classLoader.loadClass(Other.class.getName());
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+
+        // Replace the class by an empty one of the same name
+        new TestJars().add(Other.class.getName().replace('.', '/') + ".class",
+            TestJars.createClass(Other.class.getName())).write(jar);
+        assertTrue(jar.setLastModified(1500000010000L));
+
+        ComparableURLClassLoader replacement = factory.getURLClassLoader(urls, null);
+        assertNotSame(classLoader, replacement);
+        Class< ? > type = replacement.loadClass(Other.class.getName());
+        assertEquals(0, type.getDeclaredMethods().length);
+        assertEquals(hits, cache.getHitCount());
+        assertEquals(misses + 1, cache.getMissCount());
+        assertTrue(replacement.stop());
+    }
+
+    private static CachedURLClassLoaderFactory newFactory()
+    {
+        CachedURLClassLoaderFactory factory = new CachedURLClassLoaderFactory();
+        // Only the package index reads classes through the cache
+        factory.setIndexedLoaders(true);
+        return factory;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Other;
+
+/**
+ * Tests of the eviction of class loaders from a CachedURLClassLoaderFactory following its EvictionPolicy.
+ */
+public class EvictionPolicyTest extends TestCase
+{
+    private File dir;
+
+    private URL[][] classPaths;
+
+    private CachedURLClassLoaderFactory factory;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("eviction");
+        classPaths = new URL[3][];
+        for (int i = 0; i < classPaths.length; i++) {
+            File jar = new TestJars().add(Other.class).write(new File(dir, "lib" + i + ".jar"));
+            classPaths[i] = new URL[] {jar.toURI().toURL()};
+        }
+        factory = new CachedURLClassLoaderFactory();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        factory.setEvictionPolicy(EvictionPolicy.LEGACY);
+        TestJars.delete(dir);
+    }
+
+    public void testInvalidPolicy()
+    {
+        try {
+            new EvictionPolicy(-1, 0, LoaderRetention.STRONG);
+            fail("Negative maximum accepted");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new EvictionPolicy(0, -1, LoaderRetention.STRONG);
+            fail("Negative idle timeout accepted");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            new EvictionPolicy(0, 0, null);
+            fail("Null retention accepted");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testLeastRecentlyUsedEvicted() throws Exception
+    {
+        factory.setEvictionPolicy(new EvictionPolicy(2, 0, LoaderRetention.STRONG));
+        ComparableURLClassLoader first = factory.getURLClassLoader(classPaths[0], null);
+        Thread.sleep(5);
+        ComparableURLClassLoader second = factory.getURLClassLoader(classPaths[1], null);
+        Thread.sleep(5);
+        assertSame(first, factory.getURLClassLoader(classPaths[0], null));
+        Thread.sleep(5);
+        ComparableURLClassLoader third = factory.getURLClassLoader(classPaths[2], null);
+
+        waitForEvictions(1);
+        assertEquals(2, factory.getCachedLoaderCount());
+        assertTrue(second.isStopped());
+        assertFalse(first.isStopped());
+        assertFalse(third.isStopped());
+        assertSame(first, factory.getURLClassLoader(classPaths[0], null));
+        assertSame(third, factory.getURLClassLoader(classPaths[2], null));
+        assertNotSame(second, factory.getURLClassLoader(classPaths[1], null));
+    }
+
+    public void testIdleEvicted() throws Exception
+    {
+        factory.setEvictionPolicy(new EvictionPolicy(0, 50, LoaderRetention.STRONG));
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(classPaths[0], null);
+
+        waitForEvictions(1);
+        assertEquals(0, factory.getCachedLoaderCount());
+        assertTrue(classLoader.isStopped());
+    }
+
+    public void testStrongRetention() throws Exception
+    {
+        factory.setEvictionPolicy(new EvictionPolicy(0, 0, LoaderRetention.STRONG));
+        int hash = System.identityHashCode(factory.getURLClassLoader(classPaths[0], null));
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertEquals(1, factory.getCachedLoaderCount());
+        assertEquals(hash, System.identityHashCode(factory.getURLClassLoader(classPaths[0], null)));
+        assertEquals(1, factory.getStatNewLoader());
+        assertEquals(1, factory.getStatReusedLoader());
+        assertEquals(0, factory.getStatDroppedLoader());
+    }
+
+    private void waitForEvictions(long count) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (factory.getStatEvictedLoader() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, factory.getStatEvictedLoader());
+    }
+}
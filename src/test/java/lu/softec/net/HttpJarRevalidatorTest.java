@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests of HttpJarRevalidator against an in-process http server.
+ */
+public class HttpJarRevalidatorTest extends TestCase
+{
+    private HttpServer server;
+
+    private URL url;
+
+    private HttpJarRevalidator revalidator;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile String etag = "\"v1\"";
+
+    private volatile String ifNoneMatch;
+
+    private volatile int status = 0;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/lib.jar", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                requests.incrementAndGet();
+                ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                if (status != 0) {
+                    exchange.sendResponseHeaders(status, -1);
+                } else if (etag.equals(ifNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    exchange.getResponseHeaders().set("ETag", etag);
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/lib.jar");
+        revalidator = new HttpJarRevalidator();
+        revalidator.setFreshness(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        server.stop(0);
+    }
+
+    public void testNotModifiedWithSameETag()
+    {
+        assertFalse(revalidator.isOutdated(url, 0, "\"v1\""));
+        assertEquals(1, requests.get());
+        assertEquals("\"v1\"", ifNoneMatch);
+    }
+
+    public void testModifiedWithNewETag()
+    {
+        assertFalse(revalidator.isOutdated(url, 0, "\"v1\""));
+        etag = "\"v2\"";
+        assertTrue(revalidator.isOutdated(url, 0, "\"v1\""));
+        assertEquals(2, requests.get());
+        assertFalse(revalidator.isOutdated(url, 0, "\"v2\""));
+    }
+
+    public void testFreshValidationIsNotSent()
+    {
+        revalidator.setFreshness(60000L);
+        assertFalse(revalidator.isOutdated(url, 0, "\"v1\""));
+        etag = "\"v2\"";
+        assertFalse(revalidator.isOutdated(url, 0, "\"v1\""));
+        assertEquals(1, requests.get());
+
+        revalidator.clear();
+        assertTrue(revalidator.isOutdated(url, 0, "\"v1\""));
+        assertEquals(2, requests.get());
+    }
+
+    public void testFailureIsNotOutdatedAndBacksOff()
+    {
+        status = 500;
+        assertFalse(revalidator.isOutdated(url, 0, "\"v1\""));
+        assertEquals(1, requests.get());
+
+        // The next attempt is delayed even without freshness
+        etag = "\"v2\"";
+        status = 0;
+        assertFalse(revalidator.isOutdated(url, 0, "\"v1\""));
+        assertEquals(1, requests.get());
+    }
+
+    public void testUnreachableServerIsNotOutdated()
+    {
+        server.stop(0);
+        assertFalse(revalidator.isOutdated(url, 0, "\"v1\""));
+    }
+}
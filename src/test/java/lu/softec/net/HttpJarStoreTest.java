@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarFile;
+
+import junit.framework.TestCase;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests of HttpJarStore against an in-process http server.
+ */
+public class HttpJarStoreTest extends TestCase
+{
+    private HttpServer server;
+
+    private File dir;
+
+    private File storeDir;
+
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<String, byte[]>();
+
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private volatile int getStatus = 0;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("store");
+        storeDir = new File(dir, "store");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                byte[] content = contents.get(exchange.getRequestURI().getPath());
+                if (content == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    exchange.close();
+                    return;
+                }
+                String etag = "\"" + content.length + "-" + Arrays.hashCode(content) + "\"";
+                boolean head = "HEAD".equals(exchange.getRequestMethod());
+                if (!head)
+                    downloads.incrementAndGet();
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else if (!head && getStatus != 0) {
+                    exchange.sendResponseHeaders(getStatus, -1);
+                } else {
+                    exchange.getResponseHeaders().set("ETag", etag);
+                    exchange.sendResponseHeaders(200, head ? -1 : content.length);
+                    if (!head) {
+                        OutputStream out = exchange.getResponseBody();
+                        out.write(content);
+                        out.close();
+                    }
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        HttpJarRevalidator.getDefault().clear();
+        HttpJarRevalidator.getDefault().setFreshness(0);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        server.stop(0);
+        HttpJarRevalidator.getDefault().clear();
+        HttpJarRevalidator.getDefault().setFreshness(5000L);
+        TestJars.delete(dir);
+    }
+
+    public void testDownloadedOnce() throws IOException
+    {
+        URL url = serve("/a.jar", "one");
+        HttpJarStore store = new HttpJarStore(storeDir, Long.MAX_VALUE);
+        HttpJarStore.StoredJar jar = store.get(url);
+        assertEquals("one", read(jar));
+        assertEquals(1, downloads.get());
+        long lastModified = jar.getFile().lastModified();
+
+        // Revalidated with a 304, and served from the store
+        assertSame(jar, store.get(url));
+        assertEquals(1, downloads.get());
+        assertEquals(lastModified, jar.getFile().lastModified());
+    }
+
+    public void testModifiedIsDownloadedAgain() throws IOException
+    {
+        URL url = serve("/a.jar", "one");
+        HttpJarStore store = new HttpJarStore(storeDir, Long.MAX_VALUE);
+        HttpJarStore.StoredJar first = store.get(url);
+        serve("/a.jar", "two");
+        HttpJarStore.StoredJar second = store.get(url);
+        assertNotSame(first, second);
+        assertFalse(first.getFile().equals(second.getFile()));
+        assertEquals("two", read(second));
+        assertEquals(2, downloads.get());
+    }
+
+    public void testStoredVersionUsedWhenDownloadFails() throws IOException
+    {
+        URL url = serve("/a.jar", "one");
+        HttpJarStore store = new HttpJarStore(storeDir, Long.MAX_VALUE);
+        HttpJarStore.StoredJar jar = store.get(url);
+        serve("/a.jar", "two");
+        getStatus = 503;
+        assertSame(jar, store.get(url));
+        assertEquals("one", read(jar));
+    }
+
+    public void testMissingJarIsNotStored() throws IOException
+    {
+        HttpJarStore store = new HttpJarStore(storeDir, Long.MAX_VALUE);
+        try {
+            store.get(new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/missing.jar"));
+            fail("Missing jar file stored");
+        } catch (IOException e) {
+        }
+        assertEquals(0, store.getSize());
+    }
+
+    public void testReloadedAfterRestart() throws IOException
+    {
+        URL url = serve("/a.jar", "one");
+        HttpJarStore.StoredJar jar = new HttpJarStore(storeDir, Long.MAX_VALUE).get(url);
+
+        HttpJarStore restarted = new HttpJarStore(storeDir, Long.MAX_VALUE);
+        assertEquals(jar.getFile().length(), restarted.getSize());
+        HttpJarStore.StoredJar reloaded = restarted.get(url);
+        assertEquals(jar.getFile(), reloaded.getFile());
+        assertEquals(jar.getETag(), reloaded.getETag());
+        assertEquals(1, downloads.get());
+        for (String name : storeDir.list()) {
+            assertFalse(name, name.endsWith(".tmp"));
+        }
+    }
+
+    public void testLeastRecentlyUsedEvicted() throws Exception
+    {
+        URL a = serve("/a.jar", "one");
+        URL b = serve("/b.jar", "two");
+        HttpJarStore store = new HttpJarStore(storeDir, Long.MAX_VALUE);
+        HttpJarStore.StoredJar first = store.get(a);
+        Thread.sleep(10);
+        HttpJarStore.StoredJar second = store.get(b);
+        store.setMaxSize(second.getFile().length());
+        assertFalse(first.getFile().exists());
+        assertTrue(second.getFile().exists());
+        assertEquals(second.getFile().length(), store.getSize());
+    }
+
+    public void testVersionInUseNotEvicted() throws Exception
+    {
+        URL a = serve("/a.jar", "one");
+        URL b = serve("/b.jar", "two");
+        HttpJarStore store = new HttpJarStore(storeDir, Long.MAX_VALUE);
+        HttpJarStore.StoredJar first = store.get(a);
+        Thread.sleep(10);
+        HttpJarStore.StoredJar second = store.get(b);
+
+        JarReference ref = JarReference.acquire(first.getFile().toURI().toURL().toExternalForm());
+        try {
+            store.setMaxSize(second.getFile().length());
+            assertTrue(first.getFile().exists());
+        } finally {
+            if (ref.release())
+                ref.closed();
+        }
+        store.setMaxSize(second.getFile().length());
+        assertFalse(first.getFile().exists());
+    }
+
+    private URL serve(String path, String value) throws IOException
+    {
+        File jar = new TestJars().add("value.txt", value).write(File.createTempFile("served", ".jar", dir));
+        contents.put(path, Files.readAllBytes(jar.toPath()));
+        jar.delete();
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private static String read(HttpJarStore.StoredJar jar) throws IOException
+    {
+        JarFile jarFile = new JarFile(jar.getFile());
+        try {
+            return new String(DynamicURLClassLoader.readFully(
+                jarFile.getInputStream(jarFile.getEntry("value.txt")), -1), "UTF-8");
+        } finally {
+            jarFile.close();
+        }
+    }
+}
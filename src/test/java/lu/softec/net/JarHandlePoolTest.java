@@ -0,0 +1,216 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.jar.JarFile;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the sharing, the open file budget and the reopening of the handles of JarHandlePool.
+ */
+public class JarHandlePoolTest extends TestCase
+{
+    private File dir;
+
+    private File a;
+
+    private File b;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("pool");
+        new File(dir, "sub").mkdir();
+        a = new TestJars().add("res/a.txt", "a").write(new File(dir, "a.jar"));
+        b = new TestJars().add("res/b.txt", "b").write(new File(dir, "b.jar"));
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        JarHandlePool.getDefault().setEnabled(false);
+        JarHandlePool.getDefault().setMaxOpenFiles(0);
+        TestJars.delete(dir);
+    }
+
+    public void testSameVersionIsShared() throws IOException
+    {
+        JarHandlePool pool = new JarHandlePool();
+        JarHandlePool.JarHandle first = pool.retain(a);
+        JarHandlePool.JarHandle second = pool.retain(new File(new File(dir, "sub"), "../a.jar"));
+        assertSame(first, second);
+        assertEquals(1, pool.getHandleCount());
+
+        acquireAndRelease(first);
+        acquireAndRelease(second);
+        assertEquals(1, pool.getOpenFileCount());
+
+        first.dispose();
+        assertEquals(1, pool.getOpenFileCount());
+        second.dispose();
+        assertEquals(0, pool.getHandleCount());
+        assertEquals(0, pool.getOpenFileCount());
+    }
+
+    public void testRewrittenVersionIsSeparate() throws IOException
+    {
+        JarHandlePool pool = new JarHandlePool();
+        JarHandlePool.JarHandle first = pool.retain(a);
+        rewrite(a, a.lastModified() + 10000L);
+        JarHandlePool.JarHandle second = pool.retain(a);
+        assertNotSame(first, second);
+        assertEquals(2, pool.getHandleCount());
+        first.dispose();
+        second.dispose();
+        assertEquals(0, pool.getHandleCount());
+    }
+
+    public void testIdleFilesClosedWithinBudget() throws IOException
+    {
+        JarHandlePool pool = new JarHandlePool();
+        pool.setMaxOpenFiles(1);
+        JarHandlePool.JarHandle ha = pool.retain(a);
+        JarHandlePool.JarHandle hb = pool.retain(b);
+        try {
+            acquireAndRelease(ha);
+            acquireAndRelease(hb);
+            assertEquals(1, pool.getOpenFileCount());
+            assertEquals(1, pool.getIdleCloseCount());
+
+            // Opened again transparently
+            JarFile jarFile = ha.acquire();
+            try {
+                assertNotNull(jarFile.getEntry("res/a.txt"));
+            } finally {
+                ha.release();
+            }
+            assertEquals(1, pool.getReopenCount());
+            assertEquals(1, pool.getOpenFileCount());
+        } finally {
+            ha.dispose();
+            hb.dispose();
+        }
+    }
+
+    public void testFileBeingReadIsNotClosed() throws IOException
+    {
+        JarHandlePool pool = new JarHandlePool();
+        pool.setMaxOpenFiles(1);
+        JarHandlePool.JarHandle ha = pool.retain(a);
+        JarHandlePool.JarHandle hb = pool.retain(b);
+        try {
+            JarFile jarFile = ha.acquire();
+            try {
+                acquireAndRelease(hb);
+                assertNotNull(jarFile.getEntry("res/a.txt"));
+                jarFile.getInputStream(jarFile.getEntry("res/a.txt")).close();
+            } finally {
+                ha.release();
+            }
+        } finally {
+            ha.dispose();
+            hb.dispose();
+        }
+    }
+
+    public void testRewrittenFileIsNotReopened() throws IOException
+    {
+        JarHandlePool pool = new JarHandlePool();
+        pool.setMaxOpenFiles(1);
+        JarHandlePool.JarHandle ha = pool.retain(a);
+        JarHandlePool.JarHandle hb = pool.retain(b);
+        try {
+            acquireAndRelease(ha);
+            acquireAndRelease(hb);
+            rewrite(a, a.lastModified());
+            try {
+                ha.acquire();
+                fail("Rewritten jar file read through the handle of its previous version");
+            } catch (IOException e) {
+            }
+            assertTrue(ha.isChanged());
+            assertFalse(hb.isChanged());
+        } finally {
+            ha.dispose();
+            hb.dispose();
+        }
+    }
+
+    public void testRewrittenFileOutdatesConnection() throws IOException
+    {
+        JarHandlePool pool = JarHandlePool.getDefault();
+        pool.setEnabled(true);
+        pool.setMaxOpenFiles(1);
+        DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {a.toURI().toURL(), b.toURI().toURL()},
+            null);
+        try {
+            DynamicJarURLConnection ua = connect(loader, "res/a.txt");
+            DynamicJarURLConnection ub = connect(loader, "res/b.txt");
+            try {
+                // Closed while idle, to open b within the budget
+                assertEquals(1, pool.getOpenFileCount());
+                assertFalse(ua.isOutdated());
+
+                // Same modification date, but another size
+                rewrite(a, a.lastModified());
+                try {
+                    ua.acquireJarFile();
+                    ua.releaseJarFile();
+                    fail("Rewritten jar file read by a connection to its previous version");
+                } catch (IOException e) {
+                }
+                assertTrue(ua.isOutdated());
+                assertFalse(ub.isOutdated());
+            } finally {
+                ua.close();
+                ub.close();
+            }
+        } finally {
+            loader.stop();
+        }
+    }
+
+    private static DynamicJarURLConnection connect(DynamicURLClassLoader loader, String name) throws IOException
+    {
+        DynamicJarURLConnection uc = (DynamicJarURLConnection) loader.getResource(name).openConnection();
+        uc.connect();
+        assertTrue(uc.isConnected());
+        return uc;
+    }
+
+    private static void acquireAndRelease(JarHandlePool.JarHandle handle) throws IOException
+    {
+        handle.acquire();
+        handle.release();
+    }
+
+    /**
+     * Rewrite a jar file with a larger content and the given modification date.
+     */
+    private static void rewrite(File file, long lastModified) throws IOException
+    {
+        long length = file.length();
+        new TestJars().add("res/a.txt", "rewritten").add("res/more.txt", "more").write(file);
+        assertTrue(file.length() != length);
+        assertTrue(file.setLastModified(lastModified));
+    }
+}
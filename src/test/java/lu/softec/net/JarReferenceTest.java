@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.JarFile;
+
+import junit.framework.TestCase;
+
+/**
+ * Stress tests of the reference counting of jar files, under concurrent connections, closes and reloads.
+ */
+public class JarReferenceTest extends TestCase
+{
+    private static final int THREADS = 8;
+
+    private static final int ITERATIONS = 500;
+
+    private File dir;
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("reference");
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        JarHandlePool.getDefault().setEnabled(false);
+        TestJars.delete(dir);
+    }
+
+    /**
+     * Acquire and release a few references from many threads. The resource of a reference is only closed by the last
+     * holder, and never seen closed by a holder.
+     */
+    public void testReferenceChurn() throws Exception
+    {
+        final String[] keys = {"test:churn-a", "test:churn-b"};
+        final ConcurrentMap<JarReference, AtomicBoolean> closed = new ConcurrentHashMap<JarReference, AtomicBoolean>();
+        run(new Callable<Void>()
+        {
+            public Void call() throws Exception
+            {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    JarReference ref = JarReference.acquire(keys[i % keys.length]);
+                    closed.putIfAbsent(ref, new AtomicBoolean());
+                    assertFalse("Reference used after close", closed.get(ref).get());
+                    Thread.yield();
+                    assertFalse("Reference used after close", closed.get(ref).get());
+                    if (ref.release()) {
+                        assertTrue("Reference closed twice", closed.get(ref).compareAndSet(false, true));
+                        ref.closed();
+                    }
+                }
+                return null;
+            }
+        });
+        for (String key : keys) {
+            assertNull(JarReference.get(key));
+        }
+        for (AtomicBoolean flag : closed.values()) {
+            assertTrue(flag.get());
+        }
+    }
+
+    public void testConnectionChurn() throws Exception
+    {
+        checkConnectionChurn();
+    }
+
+    public void testPooledConnectionChurn() throws Exception
+    {
+        JarHandlePool.getDefault().setEnabled(true);
+        checkConnectionChurn();
+        assertEquals(0, JarHandlePool.getDefault().getHandleCount());
+        assertEquals(0, JarHandlePool.getDefault().getOpenFileCount());
+    }
+
+    /**
+     * Connect to, read and close the same jar files from many threads, while class loaders using them are replaced.
+     * Reading a jar file closed by another connection would fail, and every jar file should be closed at the end.
+     */
+    private void checkConnectionChurn() throws Exception
+    {
+        final URL[] jars = {
+            new TestJars().add("res/a.txt", "a").write(new File(dir, "a.jar")).toURI().toURL(),
+            new TestJars().add("res/b.txt", "b").write(new File(dir, "b.jar")).toURI().toURL()};
+        run(new Callable<Void>()
+        {
+            public Void call() throws Exception
+            {
+                DynamicURLClassLoader loader = new DynamicURLClassLoader(jars, null);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    if (i % 50 == 49) {
+                        // Reload
+                        loader.stop();
+                        loader = new DynamicURLClassLoader(jars, null);
+                    }
+                    String name = (i % 2 == 0) ? "res/a.txt" : "res/b.txt";
+                    DynamicJarURLConnection uc = (DynamicJarURLConnection) loader.getResource(name).openConnection();
+                    uc.connect();
+                    try {
+                        JarFile jarFile = uc.getJarFile();
+                        InputStream in = jarFile.getInputStream(jarFile.getEntry(name));
+                        try {
+                            assertEquals(1, DynamicURLClassLoader.readFully(in, -1).length);
+                        } finally {
+                            in.close();
+                        }
+                        assertTrue(uc.connectionsCount() > 0);
+                    } finally {
+                        uc.close();
+                    }
+                }
+                loader.stop();
+                return null;
+            }
+        });
+        for (URL jar : jars) {
+            assertNull("Jar file still referenced: " + jar, JarReference.get(jar.toExternalForm()));
+        }
+        for (String key : JarReference.getCounts().keySet()) {
+            assertFalse("Jar file still referenced: " + key, key.startsWith(dir.toURI().toString()));
+        }
+    }
+
+    private void run(final Callable<Void> task) throws Exception
+    {
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(new Callable<Void>()
+            {
+                public Void call() throws Exception
+                {
+                    barrier.await();
+                    return task.call();
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+}
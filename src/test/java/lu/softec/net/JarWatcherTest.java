@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Other;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of the following of local jar files by a JarWatcher.
+ */
+public class JarWatcherTest extends TestCase
+{
+    private File dir;
+
+    private File jar;
+
+    private URL[] urls;
+
+    private JarWatcher watcher;
+
+    private CachedURLClassLoaderFactory factory;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("watcher");
+        jar = new TestJars().add(Parent.class).write(new File(dir, "lib.jar"));
+        assertTrue(jar.setLastModified(1500000000000L));
+        urls = new URL[] {jar.toURI().toURL()};
+        watcher = new JarWatcher();
+        factory = new CachedURLClassLoaderFactory();
+        // Jar files opened through the package index are registered with their class loader
+        factory.setIndexedLoaders(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        watcher.close();
+        TestJars.delete(dir);
+    }
+
+    public void testRewrittenJarMarksOutdated() throws Exception
+    {
+        factory.setJarWatcher(watcher);
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        classLoader.loadClass(Parent.class.getName());
+        assertTrue(watcher.isWatching(urls[0]));
+        assertFalse(classLoader.getConnections().isEmpty());
+        // Watched connections are not checked on lookups
+        assertTrue(classLoader.getCheckedConnections().isEmpty());
+        assertFalse(classLoader.isOutdated());
+
+        new TestJars().add(Parent.class).add(Other.class).write(jar);
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!classLoader.isMarkedOutdated() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(classLoader.isMarkedOutdated());
+        assertFalse(watcher.isWatching(urls[0]));
+        assertNotSame(classLoader, factory.getURLClassLoader(urls, null));
+        classLoader.stop();
+    }
+
+    public void testUnwatchedWhenStopped() throws Exception
+    {
+        factory.setJarWatcher(watcher);
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        classLoader.loadClass(Parent.class.getName());
+        ComparableURLClassLoader other = factory.getURLClassLoader(urls, getClass().getClassLoader());
+        assertNotSame(classLoader, other);
+        assertTrue(watcher.isWatching(urls[0]));
+
+        classLoader.stop();
+        // Still used by the other class loader
+        assertTrue(watcher.isWatching(urls[0]));
+        other.stop();
+        assertFalse(watcher.isWatching(urls[0]));
+    }
+
+    public void testCheckedWhenWatchingUnavailable() throws Exception
+    {
+        factory.setJarWatcher(new JarWatcher()
+        {
+            @Override
+            public void watch(DynamicURLClassLoader classLoader) throws IOException
+            {
+                throw new IOException("Watching unavailable");
+            }
+        });
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        classLoader.loadClass(Parent.class.getName());
+        assertFalse(classLoader.getCheckedConnections().isEmpty());
+        assertFalse(classLoader.isOutdated());
+
+        assertTrue(jar.setLastModified(1500000010000L));
+        assertTrue(classLoader.isOutdated());
+        assertNotSame(classLoader, factory.getURLClassLoader(urls, null));
+        factory.getJarWatcher().close();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the lookup cache of DynamicURLClassLoader.
+ */
+public class LookupCacheTest extends TestCase
+{
+    public void testEvictsOldestResults()
+    {
+        LookupCache cache = new LookupCache(2);
+        int generation = cache.getGeneration();
+        cache.put(LookupCache.RESOURCE, "a", LookupCache.MISSING, generation);
+        cache.put(LookupCache.RESOURCE, "b", LookupCache.MISSING, generation);
+        cache.put(LookupCache.CLASS, "a", LookupCache.MISSING, generation);
+        assertNull(cache.get(LookupCache.RESOURCE, "a"));
+        assertSame(LookupCache.MISSING, cache.get(LookupCache.RESOURCE, "b"));
+        assertSame(LookupCache.MISSING, cache.get(LookupCache.CLASS, "a"));
+    }
+
+    public void testResultOfPreviousGenerationIsIgnored()
+    {
+        LookupCache cache = new LookupCache(16);
+        int generation = cache.getGeneration();
+        cache.clear();
+        cache.put(LookupCache.CLASS, "a", LookupCache.MISSING, generation);
+        assertNull(cache.get(LookupCache.CLASS, "a"));
+
+        cache.put(LookupCache.CLASS, "a", LookupCache.MISSING, cache.getGeneration());
+        assertSame(LookupCache.MISSING, cache.get(LookupCache.CLASS, "a"));
+    }
+
+    public void testResultStoredDuringClearIsNotServed()
+    {
+        LookupCache cache = new LookupCache(16);
+        int generation = cache.getGeneration();
+        // A lookup that passed its generation check just before the cache was cleared
+        cache.put(LookupCache.CLASS, "a", LookupCache.MISSING, generation);
+        cache.clear();
+        cache.put(LookupCache.CLASS, "a", LookupCache.MISSING, generation);
+        assertNull(cache.get(LookupCache.CLASS, "a"));
+    }
+
+    public void testAddedURLIsVisible() throws Exception
+    {
+        File dir = TestJars.createTempDir("lookup");
+        try {
+            URL a = new TestJars().add("a/one.txt", "a").write(new File(dir, "a.jar")).toURI().toURL();
+            URL b = new TestJars().add("b/two.txt", "b").write(new File(dir, "b.jar")).toURI().toURL();
+            DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {a}, null);
+            loader.setLookupCacheSize(16);
+            try {
+                assertNull(loader.findResource("b/two.txt"));
+                loader.addURL(b);
+                assertNotNull(loader.findResource("b/two.txt"));
+            } finally {
+                loader.stop();
+            }
+        } finally {
+            TestJars.delete(dir);
+        }
+    }
+}
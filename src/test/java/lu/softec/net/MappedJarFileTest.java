@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Other;
+
+/**
+ * Tests of the memory-mapped reader of jar files, against jar files written by the JDK.
+ */
+public class MappedJarFileTest extends TestCase
+{
+    private static final String UNICODE_NAME = "res/\u00e9t\u00e9/\u65e5\u672c.txt";
+
+    private File dir;
+
+    private byte[] content;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("mapped");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        content = text.toString().getBytes("UTF-8");
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testStoredAndDeflatedEntries() throws IOException
+    {
+        File jar = new TestJars().add("res/deflated.txt", content).addStored("res/stored.txt", content)
+            .add(Other.class).write(new File(dir, "lib.jar"));
+        MappedJarFile mapped = MappedJarFile.open(jar);
+        try {
+            // The manifest and the three entries
+            assertEquals(4, mapped.size());
+            assertFalse(mapped.isSigned());
+
+            int deflated = mapped.getEntry("res/deflated.txt");
+            assertTrue(deflated >= 0);
+            assertEquals(MappedJarFile.DEFLATED, mapped.getMethod(deflated));
+            assertEquals(content.length, mapped.getSize(deflated));
+            assertTrue(Arrays.equals(content, mapped.getBytes(deflated)));
+            assertNull(mapped.getStoredContent(deflated));
+
+            int stored = mapped.getEntry("res/stored.txt");
+            assertTrue(stored >= 0);
+            assertEquals("res/stored.txt", mapped.getName(stored));
+            assertEquals(MappedJarFile.STORED, mapped.getMethod(stored));
+            assertTrue(Arrays.equals(content, mapped.getBytes(stored)));
+            assertEquals(content.length, mapped.getStoredContent(stored).remaining());
+            assertEquals(mapped.getCrc(deflated), mapped.getCrc(stored));
+
+            String className = Other.class.getName().replace('.', '/') + ".class";
+            assertTrue(Arrays.equals(TestJars.getBytes(Other.class), mapped.getBytes(mapped.getEntry(className))));
+            assertEquals(-1, mapped.getEntry("res/missing.txt"));
+            assertEquals(-1, mapped.getEntry("res/stored.tx"));
+        } finally {
+            mapped.close();
+        }
+    }
+
+    public void testUnicodeNames() throws IOException
+    {
+        File jar = new TestJars().add(UNICODE_NAME, content).add("res/ete/ascii.txt", "ascii")
+            .write(new File(dir, "lib.jar"));
+        MappedJarFile mapped = MappedJarFile.open(jar);
+        try {
+            int i = mapped.getEntry(UNICODE_NAME);
+            assertTrue(i >= 0);
+            assertEquals(UNICODE_NAME, mapped.getName(i));
+            assertTrue(Arrays.equals(content, mapped.getBytes(i)));
+            assertEquals(-1, mapped.getEntry("res/\u00e9t\u00e9/\u65e5.txt"));
+            assertTrue(mapped.getEntry("res/ete/ascii.txt") >= 0);
+        } finally {
+            mapped.close();
+        }
+    }
+
+    public void testSignatureDetected() throws IOException
+    {
+        File jar = new TestJars().add("META-INF/SIGNER.SF", "Signature-Version: 1.0\n")
+            .add("META-INF/SIGNER.RSA", new byte[] {1, 2, 3}).add(Other.class).write(new File(dir, "signed.jar"));
+        MappedJarFile mapped = MappedJarFile.open(jar);
+        try {
+            assertTrue(mapped.isSigned());
+        } finally {
+            mapped.close();
+        }
+
+        jar = new TestJars().add("META-INF/NOTES.TXT", "not a signature").add("SIGNER.SF", "misplaced")
+            .write(new File(dir, "unsigned.jar"));
+        mapped = MappedJarFile.open(jar);
+        try {
+            assertFalse(mapped.isSigned());
+        } finally {
+            mapped.close();
+        }
+    }
+
+    public void testZip64Rejected() throws IOException
+    {
+        // End of central directory record whose fields are defined in a ZIP64 record
+        byte[] end = new byte[22];
+        putInt(end, 0, 0x06054b50);
+        putShort(end, 8, 0xFFFF);
+        putShort(end, 10, 0xFFFF);
+        putInt(end, 12, -1);
+        putInt(end, 16, -1);
+        checkRejected(write("zip64.jar", end), "ZIP64 not supported");
+    }
+
+    public void testInvalidArchivesRejected() throws IOException
+    {
+        checkRejected(write("text.jar", content), "End of central directory not found");
+        checkRejected(write("empty.jar", new byte[0]), "End of central directory not found");
+
+        File jar = new TestJars().add("res/deflated.txt", content).write(new File(dir, "truncated.jar"));
+        RandomAccessFile raf = new RandomAccessFile(jar, "rw");
+        try {
+            raf.setLength(raf.length() - 1);
+        } finally {
+            raf.close();
+        }
+        checkRejected(jar, "End of central directory not found");
+    }
+
+    public void testUnsupportedMethodRejected() throws IOException
+    {
+        File jar = new TestJars().addStored("res/stored.txt", content).write(new File(dir, "lib.jar"));
+        // Mark the entry as compressed with bzip2, in its local and central headers
+        RandomAccessFile raf = new RandomAccessFile(jar, "rw");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            for (int pos = 0; pos + 4 <= bytes.length; pos++) {
+                int sig = getInt(bytes, pos);
+                if (sig == 0x04034b50) {
+                    raf.seek(pos + 8);
+                    raf.write(new byte[] {12, 0});
+                } else if (sig == 0x02014b50) {
+                    raf.seek(pos + 10);
+                    raf.write(new byte[] {12, 0});
+                }
+            }
+        } finally {
+            raf.close();
+        }
+
+        MappedJarFile mapped = MappedJarFile.open(jar);
+        try {
+            int i = mapped.getEntry("res/stored.txt");
+            assertEquals(12, mapped.getMethod(i));
+            assertNull(mapped.getStoredContent(i));
+            try {
+                mapped.getBytes(i);
+                fail("Unsupported method read");
+            } catch (ZipException e) {
+            }
+        } finally {
+            mapped.close();
+        }
+    }
+
+    public void testReadAfterClose() throws IOException
+    {
+        File inner = new TestJars().add("res/one.txt", "one").write(new File(dir, "inner.jar"));
+        File jar = new TestJars().addStored("lib/nested.jar", Files.readAllBytes(inner.toPath()))
+            .add("res/deflated.txt", content).write(new File(dir, "lib.jar"));
+        MappedJarFile mapped = MappedJarFile.open(jar);
+        int i = mapped.getEntry("res/deflated.txt");
+        MappedJarFile nested = mapped.getNestedJarFile(mapped.getEntry("lib/nested.jar"));
+        int one = nested.getEntry("res/one.txt");
+        assertTrue(Arrays.equals("one".getBytes("UTF-8"), nested.getBytes(one)));
+        assertFalse(mapped.isClosed());
+
+        mapped.close();
+        assertTrue(mapped.isClosed());
+        assertTrue(nested.isClosed());
+        assertFalse(mapped.acquire());
+        try {
+            mapped.getBytes(i);
+            fail("Read from a closed jar file");
+        } catch (IOException e) {
+        }
+        try {
+            nested.getBytes(one);
+            fail("Read from a closed nested jar file");
+        } catch (IOException e) {
+        }
+        try {
+            mapped.getNestedJarFile(i);
+            fail("Nested jar file opened from a closed jar file");
+        } catch (IOException e) {
+        }
+        // Closing again has no effect
+        mapped.close();
+    }
+
+    private File write(String name, byte[] bytes) throws IOException
+    {
+        File file = new File(dir, name);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static void checkRejected(File file, String message)
+    {
+        try {
+            MappedJarFile.open(file).close();
+            fail("Invalid archive opened: " + file.getName());
+        } catch (IOException e) {
+            assertTrue(e instanceof ZipException);
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    private static int getInt(byte[] bytes, int pos)
+    {
+        return (bytes[pos] & 0xFF) | (bytes[pos + 1] & 0xFF) << 8 | (bytes[pos + 2] & 0xFF) << 16
+            | (bytes[pos + 3] & 0xFF) << 24;
+    }
+
+    private static void putShort(byte[] bytes, int pos, int value)
+    {
+        bytes[pos] = (byte) value;
+        bytes[pos + 1] = (byte) (value >> 8);
+    }
+
+    private static void putInt(byte[] bytes, int pos, int value)
+    {
+        putShort(bytes, pos, value);
+        putShort(bytes, pos + 2, value >> 16);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Other;
+
+/**
+ * Tests of the class loading from jar files nested in a jar file.
+ */
+public class NestedJarTest extends TestCase
+{
+    private File dir;
+
+    private URL nested;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("nested");
+        File inner = new TestJars().add("res/inner.txt", "inner").add(Other.class).write(new File(dir, "inner.jar"));
+        File outer = new TestJars().add("lib/inner.jar", Files.readAllBytes(inner.toPath()))
+            .write(new File(dir, "outer.jar"));
+        nested = new URL("jar:" + outer.toURI() + "!/lib/inner.jar!/");
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testResourceOfNestedJar() throws Exception
+    {
+        DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {nested}, null);
+        try {
+            URL url = loader.getResource("res/inner.txt");
+            assertNotNull(url);
+            assertEquals(nested.toExternalForm() + "res/inner.txt", url.toExternalForm());
+            InputStream in = url.openStream();
+            try {
+                assertEquals("inner", new String(DynamicURLClassLoader.readFully(in, -1), "UTF-8"));
+            } finally {
+                in.close();
+            }
+        } finally {
+            loader.stop();
+        }
+    }
+
+    public void testClassOfNestedJar() throws Exception
+    {
+        DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {nested}, null);
+        try {
+            Class< ? > c = loader.loadClass(Other.class.getName());
+            assertSame(loader, c.getClassLoader());
+            assertEquals("Other", c.getConstructor().newInstance().toString());
+        } finally {
+            loader.stop();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Child;
+import lu.softec.net.fixtures.Other;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of concurrent class loading by a parallel capable DynamicURLClassLoader.
+ */
+public class ParallelLoadingTest extends TestCase
+{
+    private static final int THREADS = 16;
+
+    private static final int ROUNDS = 20;
+
+    private static final String[] NAMES = {Parent.class.getName(), Child.class.getName(), Other.class.getName()};
+
+    private static final int JARS = 4;
+
+    private static final int CLASSES_PER_JAR = 500;
+
+    private File dir;
+
+    private URL jar;
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("parallel");
+        jar = new TestJars().add(Parent.class).add(Child.class).add(Other.class).write(new File(dir, "fixtures.jar"))
+            .toURI().toURL();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        TestJars.delete(dir);
+    }
+
+    public void testConcurrentLoadClass() throws Exception
+    {
+        for (int i = 0; i < ROUNDS; i++) {
+            checkConcurrentLoading(new DynamicURLClassLoader(new URL[] {jar}, null));
+        }
+    }
+
+    public void testConcurrentIndexedLoadClass() throws Exception
+    {
+        for (int i = 0; i < ROUNDS; i++) {
+            DynamicURLClassLoader loader = new DynamicURLClassLoader(new URL[] {jar}, null);
+            loader.setIndexed(true);
+            checkConcurrentLoading(loader);
+        }
+    }
+
+    /**
+     * Compare the time spent loading many distinct classes by a single thread, and by as many threads as cores, up
+     * to 4, each loading its own part of them from the same class loader. Loading should be faster when there are
+     * several cores, since threads only lock the name of the class they load.
+     */
+    public void testThroughputScalesWithCores() throws Exception
+    {
+        URL[] urls = new URL[JARS];
+        for (int j = 0; j < JARS; j++) {
+            TestJars jar = new TestJars();
+            for (int i = 0; i < CLASSES_PER_JAR; i++) {
+                String name = getGeneratedClassName(j, i);
+                jar.add(name.replace('.', '/') + ".class", TestJars.createClass(name));
+            }
+            urls[j] = jar.write(new File(dir, "generated" + j + ".jar")).toURI().toURL();
+        }
+
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), 4);
+        long single = Long.MAX_VALUE;
+        long parallel = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            single = Math.min(single, timeLoading(urls, 1));
+            parallel = Math.min(parallel, timeLoading(urls, threads));
+        }
+        if (threads > 1) {
+            assertTrue("Loading with " + threads + " threads took " + parallel + "ns, and " + single
+                + "ns with a single thread", parallel * 1.1 < single);
+        }
+    }
+
+    /**
+     * Load all the generated classes from a new class loader, split across the given number of threads.
+     * 
+     * @return the time spent in nanoseconds
+     */
+    private long timeLoading(URL[] urls, final int threads) throws Exception
+    {
+        final DynamicURLClassLoader loader = new DynamicURLClassLoader(urls, null);
+        try {
+            // Open all jar files before measuring
+            assertNull(loader.findResource("missing.txt"));
+            final CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+            List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < threads; t++) {
+                final int first = t;
+                futures.add(executor.submit(new Callable<Integer>()
+                {
+                    public Integer call() throws Exception
+                    {
+                        barrier.await();
+                        int count = 0;
+                        for (int i = first; i < JARS * CLASSES_PER_JAR; i += threads) {
+                            loader.loadClass(getGeneratedClassName(i % JARS, i / JARS));
+                            count++;
+                        }
+                        return count;
+                    }
+                }));
+            }
+            barrier.await();
+            long start = System.nanoTime();
+            int count = 0;
+            for (Future<Integer> future : futures) {
+                count += future.get(60, TimeUnit.SECONDS);
+            }
+            long elapsed = System.nanoTime() - start;
+            assertEquals(JARS * CLASSES_PER_JAR, count);
+            assertEquals(JARS * CLASSES_PER_JAR, loader.getDefinedClassNames().size());
+            return elapsed;
+        } finally {
+            loader.stop();
+        }
+    }
+
+    private static String getGeneratedClassName(int jar, int index)
+    {
+        return "generated.p" + jar + ".C" + index;
+    }
+
+    /**
+     * Load the fixture classes from all threads at once, each in its own order, and check that each class is defined
+     * once by the given class loader. A duplicate definition would fail with a LinkageError.
+     */
+    private void checkConcurrentLoading(final DynamicURLClassLoader loader) throws Exception
+    {
+        final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Future<Class< ? >[]>> futures = new ArrayList<Future<Class< ? >[]>>();
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t;
+            futures.add(executor.submit(new Callable<Class< ? >[]>()
+            {
+                public Class< ? >[] call() throws Exception
+                {
+                    List<Integer> order = new ArrayList<Integer>();
+                    for (int i = 0; i < NAMES.length; i++) {
+                        order.add((i + offset) % NAMES.length);
+                    }
+                    if (offset % 2 == 1)
+                        Collections.reverse(order);
+                    barrier.await();
+                    Class< ? >[] result = new Class< ? >[NAMES.length];
+                    for (int i : order) {
+                        result[i] = loader.loadClass(NAMES[i]);
+                    }
+                    return result;
+                }
+            }));
+        }
+
+        try {
+            Class< ? >[] expected = null;
+            for (Future<Class< ? >[]> future : futures) {
+                Class< ? >[] classes = future.get(30, TimeUnit.SECONDS);
+                if (expected == null)
+                    expected = classes;
+                for (int i = 0; i < NAMES.length; i++) {
+                    assertSame(expected[i], classes[i]);
+                    assertSame(loader, classes[i].getClassLoader());
+                }
+            }
+            assertSame(expected[0], expected[1].getSuperclass());
+            assertEquals(NAMES.length, loader.getDefinedClassNames().size());
+        } finally {
+            loader.stop();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Child;
+import lu.softec.net.fixtures.Other;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of the cleanup of unreachable objects by the ReclamationService.
+ */
+public class ReclamationServiceTest extends TestCase
+{
+    private File dir;
+
+    private URL[] urls;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("reclamation");
+        File jar = new TestJars().add(Other.class).add(Parent.class).add(Child.class).write(new File(dir, "lib.jar"));
+        urls = new URL[] {jar.toURI().toURL()};
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testActionRunWhenUnreachable() throws Exception
+    {
+        ReclamationService service = ReclamationService.getDefault();
+        long reclaimed = service.getReclaimedCount();
+        final CountDownLatch latch = new CountDownLatch(1);
+        service.register(new Object(), new Runnable()
+        {
+            public void run()
+            {
+                latch.countDown();
+            }
+        });
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!latch.await(10, TimeUnit.MILLISECONDS) && System.currentTimeMillis() < deadline) {
+            System.gc();
+        }
+        assertEquals(0, latch.getCount());
+        assertTrue(service.getReclaimedCount() > reclaimed);
+    }
+
+    public void testCleanAndUnregister() throws Exception
+    {
+        final AtomicInteger runs = new AtomicInteger();
+        Runnable action = new Runnable()
+        {
+            public void run()
+            {
+                runs.incrementAndGet();
+            }
+        };
+        Object referent = new Object();
+        ReclamationService.Registration registration = ReclamationService.getDefault().register(referent, action);
+        registration.clean();
+        registration.clean();
+        assertEquals(1, runs.get());
+
+        registration = ReclamationService.getDefault().register(referent, action);
+        assertTrue(registration.unregister());
+        assertFalse(registration.unregister());
+        registration.clean();
+        assertEquals(1, runs.get());
+    }
+
+    public void testCollectedLoaderJarsClosed() throws Exception
+    {
+        // Jar files are released by cleanup actions, not by finalizers
+        assertNoFinalizer(DynamicURLClassLoader.class);
+        assertNoFinalizer(DynamicJarURLConnection.class);
+
+        CachedURLClassLoaderFactory factory = new CachedURLClassLoaderFactory();
+        // Jar files opened through the package index are registered with their class loader
+        factory.setIndexedLoaders(true);
+        final List<ClassLoaderEvent> events = new CopyOnWriteArrayList<ClassLoaderEvent>();
+        factory.addClassLoaderListener(new ClassLoaderListener()
+        {
+            public void onEvent(ClassLoaderEvent event)
+            {
+                if (event.getType() == ClassLoaderEvent.Type.COLLECTED)
+                    events.add(event);
+            }
+        });
+        long handles = ReclamationService.getDefault().getReclaimedHandleCount();
+        loadClasses(factory);
+        String key = urls[0].toExternalForm();
+        assertNotNull(JarReference.get(key));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (events.isEmpty() && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, events.size());
+        ClassLoaderEvent event = events.get(0);
+        assertNull(event.getClassLoader());
+        assertEquals(1, event.getJarCount());
+        assertTrue(ReclamationService.getDefault().getReclaimedHandleCount() > handles);
+        assertFalse(JarReference.getCounts().containsKey(key));
+        assertEquals(0, factory.getCachedLoaderCount());
+    }
+
+    /**
+     * Load classes in a class loader that becomes unreachable on return, without being stopped.
+     */
+    private void loadClasses(CachedURLClassLoaderFactory factory) throws Exception
+    {
+        ComparableURLClassLoader classLoader = factory.getURLClassLoader(urls, null);
+        classLoader.loadClass(Child.class.getName());
+        classLoader.loadClass(Other.class.getName());
+        assertFalse(classLoader.getConnections().isEmpty());
+    }
+
+    private static void assertNoFinalizer(Class< ? > type)
+    {
+        try {
+            type.getDeclaredMethod("finalize");
+            fail(type.getName() + " should not declare finalize()");
+        } catch (NoSuchMethodException e) {
+        }
+    }
+}
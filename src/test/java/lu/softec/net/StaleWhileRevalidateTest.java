@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Child;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of the replacement in the background of outdated class loaders by a CachedURLClassLoaderFactory.
+ */
+public class StaleWhileRevalidateTest extends TestCase
+{
+    private File dir;
+
+    private File jar;
+
+    private URL[] urls;
+
+    private CachedURLClassLoaderFactory factory;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("revalidate");
+        jar = new TestJars().add(Parent.class).add(Child.class).write(new File(dir, "lib.jar"));
+        assertTrue(jar.setLastModified(1500000000000L));
+        urls = new URL[] {jar.toURI().toURL()};
+        factory = new CachedURLClassLoaderFactory();
+        factory.setIndexedLoaders(true);
+        factory.setStaleWhileRevalidate(true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testStaleServedAndSwapped() throws Exception
+    {
+        ComparableURLClassLoader stale = factory.getURLClassLoader(urls, null);
+        stale.loadClass(Child.class.getName());
+        assertTrue(jar.setLastModified(1500000010000L));
+
+        assertSame(stale, factory.getURLClassLoader(urls, null));
+        assertEquals(1, factory.getStatStaleServed());
+        waitForSwaps(1);
+
+        ComparableURLClassLoader replacement = factory.getURLClassLoader(urls, null);
+        assertNotSame(stale, replacement);
+        assertTrue(stale.isStopped());
+        assertFalse(replacement.isOutdated());
+        // Pre-warmed with the classes of the outdated class loader
+        assertTrue(replacement.getDefinedClassNames().contains(Parent.class.getName()));
+        assertTrue(replacement.getDefinedClassNames().contains(Child.class.getName()));
+        assertEquals(2, factory.getStatNewLoader());
+        assertEquals(1, factory.getStatEvictedLoader());
+        assertEquals(0, factory.getStatFailedSwap());
+        assertTrue(factory.getMaxStaleServedTime() <= factory.getStaleServedTime());
+        replacement.stop();
+    }
+
+    public void testFailedSwapRetried() throws Exception
+    {
+        FailingProfile profile = new FailingProfile();
+        factory.setWarmStartProfile(profile);
+        ComparableURLClassLoader stale = factory.getURLClassLoader(urls, null);
+        stale.loadClass(Child.class.getName());
+        assertTrue(jar.setLastModified(1500000010000L));
+
+        profile.failing = true;
+        assertSame(stale, factory.getURLClassLoader(urls, null));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (factory.getStatFailedSwap() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, factory.getStatFailedSwap());
+        assertEquals(0, factory.getStatSwappedLoader());
+        assertFalse(stale.isStopped());
+
+        profile.failing = false;
+        assertSame(stale, factory.getURLClassLoader(urls, null));
+        waitForSwaps(1);
+        ComparableURLClassLoader replacement = factory.getURLClassLoader(urls, null);
+        assertNotSame(stale, replacement);
+        assertTrue(stale.isStopped());
+        assertEquals(2, factory.getStatStaleServed());
+        replacement.stop();
+    }
+
+    private void waitForSwaps(long count) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (factory.getStatSwappedLoader() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, factory.getStatSwappedLoader());
+    }
+
+    /**
+     * Profile failing to record the creation of class loaders while failing, which fails their creation.
+     */
+    private static class FailingProfile extends WarmStartProfile
+    {
+        private volatile boolean failing;
+
+        @Override
+        void record(DynamicURLClassLoader classLoader)
+        {
+            if (failing)
+                throw new IllegalStateException("Failing profile");
+            super.record(classLoader);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Child;
+import lu.softec.net.fixtures.Other;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of the parallel staleness checks of StalenessSweeper.
+ */
+public class StalenessSweeperTest extends TestCase
+{
+    private File dir;
+
+    private File shared;
+
+    private List<DynamicURLClassLoader> loaders;
+
+    private StalenessSweeper sweeper;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("sweeper");
+        shared = new TestJars().add(Parent.class).add(Child.class).write(new File(dir, "shared.jar"));
+        File other = new TestJars().add(Other.class).write(new File(dir, "other.jar"));
+        assertTrue(shared.setLastModified(1500000000000L));
+        assertTrue(other.setLastModified(1500000000000L));
+        URL[] sharedUrls = new URL[] {shared.toURI().toURL()};
+        loaders = Arrays.asList(new DynamicURLClassLoader(sharedUrls, null),
+            new DynamicURLClassLoader(sharedUrls, null),
+            new DynamicURLClassLoader(new URL[] {other.toURI().toURL()}, null));
+        for (DynamicURLClassLoader loader : loaders) {
+            // Jar files opened through the package index are registered with their class loader
+            loader.setIndexed(true);
+        }
+        loaders.get(0).loadClass(Parent.class.getName());
+        loaders.get(1).loadClass(Child.class.getName());
+        loaders.get(2).loadClass(Other.class.getName());
+        sweeper = new StalenessSweeper(2);
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        sweeper.shutdown();
+        for (DynamicURLClassLoader loader : loaders) {
+            loader.stop();
+        }
+        TestJars.delete(dir);
+    }
+
+    public void testNothingOutdated()
+    {
+        assertTrue(sweeper.sweep(loaders, 0).isEmpty());
+        for (DynamicURLClassLoader loader : loaders) {
+            assertFalse(loader.isMarkedOutdated());
+        }
+    }
+
+    public void testSharedJarOutdated()
+    {
+        assertTrue(shared.setLastModified(1500000010000L));
+        Collection<DynamicURLClassLoader> outdated = sweeper.sweep(loaders, 10000);
+        assertEquals(2, outdated.size());
+        assertTrue(outdated.contains(loaders.get(0)));
+        assertTrue(outdated.contains(loaders.get(1)));
+        assertTrue(loaders.get(0).isMarkedOutdated());
+        assertTrue(loaders.get(1).isMarkedOutdated());
+        assertFalse(loaders.get(2).isMarkedOutdated());
+
+        // Already outdated class loaders are reported without being checked again
+        assertEquals(outdated, sweeper.sweep(loaders, 0));
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+
+/**
+ * Helpers building the jar files used by the tests.
+ */
+final class TestJars
+{
+    private final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+
+    private final Set<String> stored = new HashSet<String>();
+
+    private final Manifest manifest = new Manifest();
+
+    TestJars()
+    {
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    }
+
+    /**
+     * @param name the name of an entry
+     * @param content the content of the entry
+     * @return this builder
+     */
+    TestJars add(String name, byte[] content)
+    {
+        entries.put(name, content);
+        return this;
+    }
+
+    /**
+     * @param name the name of an entry written without compression
+     * @param content the content of the entry
+     * @return this builder
+     */
+    TestJars addStored(String name, byte[] content)
+    {
+        stored.add(name);
+        return add(name, content);
+    }
+
+    /**
+     * @param name the name of an entry
+     * @param content the content of the entry, encoded in UTF-8
+     * @return this builder
+     */
+    TestJars add(String name, String content)
+    {
+        try {
+            return add(name, content.getBytes("UTF-8"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Add the bytecode of a test class, which should only depend on classes of the JRE.
+     * 
+     * @param type a test class
+     * @return this builder
+     */
+    TestJars add(Class< ? > type)
+    {
+        String name = type.getName().replace('.', '/') + ".class";
+        return add(name, getBytes(type));
+    }
+
+    /**
+     * @param classPath the value of the Class-Path attribute of the manifest
+     * @return this builder
+     */
+    TestJars classPath(String classPath)
+    {
+        manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        return this;
+    }
+
+    /**
+     * @param file the jar file to be written
+     * @return the written jar file
+     * @throws IOException if the jar file could not be written
+     */
+    File write(File file) throws IOException
+    {
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(file), manifest);
+        try {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                JarEntry jarEntry = new JarEntry(entry.getKey());
+                if (stored.contains(entry.getKey())) {
+                    CRC32 crc = new CRC32();
+                    crc.update(entry.getValue());
+                    jarEntry.setMethod(JarEntry.STORED);
+                    jarEntry.setSize(entry.getValue().length);
+                    jarEntry.setCompressedSize(entry.getValue().length);
+                    jarEntry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(jarEntry);
+                out.write(entry.getValue());
+                out.closeEntry();
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * @param type a test class
+     * @return the bytecode of the class
+     */
+    static byte[] getBytes(Class< ? > type)
+    {
+        String name = type.getName().replace('.', '/') + ".class";
+        InputStream in = type.getClassLoader().getResourceAsStream(name);
+        if (in == null)
+            throw new IllegalStateException("No bytecode for " + type);
+        try {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int n; (n = in.read(buffer)) != -1;) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Build the bytecode of an empty public class extending <code>java.lang.Object</code>, without any member.
+     * 
+     * @param name the binary name of the class
+     * @return the content of the class file
+     */
+    static byte[] createClass(String name)
+    {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(50);
+            out.writeShort(5);
+            out.writeByte(1);
+            out.writeUTF(name.replace('.', '/'));
+            out.writeByte(7);
+            out.writeShort(1);
+            out.writeByte(1);
+            out.writeUTF("java/lang/Object");
+            out.writeByte(7);
+            out.writeShort(3);
+            out.writeShort(0x0021);
+            out.writeShort(2);
+            out.writeShort(4);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param prefix the prefix of the directory name
+     * @return a new temporary directory
+     * @throws IOException if the directory could not be created
+     */
+    static File createTempDir(String prefix) throws IOException
+    {
+        File dir = File.createTempFile(prefix, "");
+        if (!dir.delete() || !dir.mkdir())
+            throw new IOException("Could not create " + dir);
+        return dir;
+    }
+
+    /**
+     * @param file a file or directory to be deleted with its content
+     */
+    static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2026 SOFTEC sa.
+ *
+ *  This library is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU Lesser General Public
+ *  License as published by the Free Software Foundation; either
+ *  version 2.1 of the License, or (at your option) any later version.
+ *
+ *  This library is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  Lesser General Public License for more details.
+ *
+ *  You should have received a copy of the GNU Lesser General Public
+ *  License along with this library; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA 
+ */
+package lu.softec.net;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+import lu.softec.net.fixtures.Child;
+import lu.softec.net.fixtures.Other;
+import lu.softec.net.fixtures.Parent;
+
+/**
+ * Tests of the recording, saving, loading and replaying of a WarmStartProfile.
+ */
+public class WarmStartProfileTest extends TestCase
+{
+    private File dir;
+
+    private URL jar;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = TestJars.createTempDir("profile");
+        jar = new TestJars().add(Parent.class).add(Child.class).add(Other.class).write(new File(dir, "fixtures.jar"))
+            .toURI().toURL();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        TestJars.delete(dir);
+    }
+
+    public void testRoundTrip() throws Exception
+    {
+        File file = new File(dir, "profile.bin");
+        CachedURLClassLoaderFactory factory = new CachedURLClassLoaderFactory();
+        WarmStartProfile profile = new WarmStartProfile();
+        factory.setWarmStartProfile(profile);
+        ComparableURLClassLoader recorded = factory.getURLClassLoader(ClassPathKey.of(new URL[] {jar}, null));
+        recorded.loadClass(Child.class.getName());
+        assertEquals(1, profile.getLoaderCount());
+        assertEquals(2, profile.getClassCount());
+        profile.save(file);
+        // Saved again over the previous file
+        recorded.loadClass(Other.class.getName());
+        profile.save(file);
+        recorded.stop();
+        for (String name : dir.list()) {
+            assertFalse(name, name.endsWith(".tmp"));
+        }
+
+        WarmStartProfile loaded = WarmStartProfile.load(file);
+        assertEquals(1, loaded.getLoaderCount());
+        assertEquals(3, loaded.getClassCount());
+
+        CachedURLClassLoaderFactory replaying = new CachedURLClassLoaderFactory();
+        List<Future<PreloadResult>> results = loaded.replay(replaying, null, null);
+        assertEquals(1, results.size());
+        PreloadResult result = results.get(0).get(30, TimeUnit.SECONDS);
+        assertEquals(3, result.getLoadedCount());
+        assertEquals(0, result.getFailedCount());
+
+        ComparableURLClassLoader replayed = replaying.getURLClassLoader(ClassPathKey.of(new URL[] {jar}, null));
+        assertEquals(1, replaying.getStatNewLoader());
+        assertEquals(3, replayed.getDefinedClassNames().size());
+        replayed.stop();
+    }
+
+    public void testNotAProfileRejected() throws IOException
+    {
+        File file = new File(dir, "profile.bin");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("not a profile".getBytes("UTF-8"));
+        out.close();
+        checkRejected(file);
+
+        DataOutputStream data = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file)));
+        data.writeInt(0x12345678);
+        data.writeInt(1);
+        data.writeInt(0);
+        data.close();
+        checkRejected(file);
+    }
+
+    public void testCorruptedProfileRejected() throws IOException
+    {
+        File file = new File(dir, "profile.bin");
+        DataOutputStream data = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file)));
+        data.writeInt(0x57535046);
+        data.writeInt(1);
+        data.writeInt(-1);
+        data.close();
+        checkRejected(file);
+
+        // Truncated
+        data = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file)));
+        data.writeInt(0x57535046);
+        data.writeInt(1);
+        data.writeInt(2);
+        data.writeInt(1);
+        data.close();
+        checkRejected(file);
+    }
+
+    private static void checkRejected(File file)
+    {
+        try {
+            WarmStartProfile.load(file);
+            fail("Invalid profile loaded");
+        } catch (IOException e) {
+        }
+    }
+}